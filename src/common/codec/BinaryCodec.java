@@ -0,0 +1,734 @@
+package common.codec;
+
+import common.models.Batch;
+import common.models.Exam;
+import common.models.Lecturer;
+import common.models.Module;
+import common.models.ModuleRegistration;
+import common.models.Result;
+import common.models.Student;
+import common.models.User;
+import common.network.BatchRequest;
+import common.network.BatchResponse;
+import common.network.LoginRequest;
+import common.network.Page;
+import common.network.PageRequest;
+import common.network.Request;
+import common.network.Response;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact hand-written binary codec for the models and network envelopes
+ *
+ * Layout: magic "NP", schema version, then one tagged value.
+ * - ints and longs are zigzag varints
+ * - dates are epoch millis (0 means null)
+ * - strings are interned per message: repeated module codes, student ids
+ *   and grades are written once and then referenced by index
+ * - models are written field by field in a fixed order per schema version
+ * Any other Serializable value falls back to embedded Java serialization,
+ * which is read through JavaSerializationCodec's class allow-list.
+ *
+ * Decoding treats its input as untrusted: sizes, references, nesting depth
+ * and value types are checked, and malformed data only ever produces an
+ * IOException.
+ */
+public class BinaryCodec implements Codec {
+
+    public static final String NAME = "binary";
+    public static final int SCHEMA_VERSION = 1;
+
+    private static final byte MAGIC_0 = 'N';
+    private static final byte MAGIC_1 = 'P';
+
+    // Value tags
+    private static final int T_NULL = 0;
+    private static final int T_STRING = 1;
+    private static final int T_INT = 2;
+    private static final int T_LONG = 3;
+    private static final int T_TRUE = 4;
+    private static final int T_FALSE = 5;
+    private static final int T_DATE = 6;
+    private static final int T_LIST = 7;
+    private static final int T_DOUBLE = 8;
+    private static final int T_STUDENT = 16;
+    private static final int T_MODULE = 17;
+    private static final int T_EXAM = 18;
+    private static final int T_RESULT = 19;
+    private static final int T_LECTURER = 20;
+    private static final int T_BATCH = 21;
+    private static final int T_USER = 22;
+    private static final int T_REGISTRATION = 23;
+    private static final int T_REQUEST = 32;
+    private static final int T_RESPONSE = 33;
+    private static final int T_LOGIN_REQUEST = 34;
+    private static final int T_BATCH_REQUEST = 35;
+    private static final int T_BATCH_RESPONSE = 36;
+    private static final int T_PAGE_REQUEST = 37;
+    private static final int T_PAGE = 38;
+    private static final int T_JAVA = 127;
+
+    private static final int MAX_DEPTH = 64;
+
+    @Override
+    public byte[] encode(Object obj) throws IOException {
+        Writer out = new Writer();
+        out.writeByte(MAGIC_0);
+        out.writeByte(MAGIC_1);
+        out.writeByte(SCHEMA_VERSION);
+        writeValue(out, obj);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] data) throws IOException {
+        if (!canDecode(data)) {
+            throw new IOException("Not binary codec data");
+        }
+        Reader in = new Reader(data, 2);
+        int version = in.readByte();
+        if (version != SCHEMA_VERSION) {
+            throw new IOException("Unsupported schema version: " + version);
+        }
+        try {
+            return readValue(in);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed binary data: " + e, e);
+        }
+    }
+
+    @Override
+    public boolean canDecode(byte[] data) {
+        return data.length >= 3 && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    private void writeValue(Writer out, Object value) throws IOException {
+        if (value == null) {
+            out.writeVarInt(T_NULL);
+        } else if (value instanceof String) {
+            out.writeVarInt(T_STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Integer) {
+            out.writeVarInt(T_INT);
+            out.writeVarLong(zigzag((Integer) value));
+        } else if (value instanceof Long) {
+            out.writeVarInt(T_LONG);
+            out.writeVarLong(zigzag((Long) value));
+        } else if (value instanceof Boolean) {
+            out.writeVarInt((Boolean) value ? T_TRUE : T_FALSE);
+        } else if (value instanceof Double) {
+            out.writeVarInt(T_DOUBLE);
+            out.writeLong(Double.doubleToLongBits((Double) value));
+        } else if (value.getClass() == Date.class) {
+            out.writeVarInt(T_DATE);
+            out.writeDate((Date) value);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeVarInt(T_LIST);
+            out.writeVarInt(list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof Student) {
+            out.writeVarInt(T_STUDENT);
+            writeStudent(out, (Student) value);
+        } else if (value instanceof Module) {
+            out.writeVarInt(T_MODULE);
+            writeModule(out, (Module) value);
+        } else if (value instanceof Exam) {
+            out.writeVarInt(T_EXAM);
+            writeExam(out, (Exam) value);
+        } else if (value instanceof Result) {
+            out.writeVarInt(T_RESULT);
+            writeResult(out, (Result) value);
+        } else if (value instanceof Lecturer) {
+            out.writeVarInt(T_LECTURER);
+            writeLecturer(out, (Lecturer) value);
+        } else if (value instanceof Batch) {
+            out.writeVarInt(T_BATCH);
+            writeBatch(out, (Batch) value);
+        } else if (value instanceof User) {
+            out.writeVarInt(T_USER);
+            writeUser(out, (User) value);
+        } else if (value instanceof ModuleRegistration) {
+            out.writeVarInt(T_REGISTRATION);
+            writeRegistration(out, (ModuleRegistration) value);
+        } else if (value.getClass() == Request.class) {
+            out.writeVarInt(T_REQUEST);
+            Request request = (Request) value;
+            out.writeString(request.getType());
+            writeValue(out, request.getData());
+            out.writeString(request.getSessionId());
+            out.writeDate(request.getTimestamp());
+        } else if (value.getClass() == Response.class) {
+            out.writeVarInt(T_RESPONSE);
+            Response response = (Response) value;
+            out.writeString(response.getStatus());
+            out.writeString(response.getMessage());
+            writeValue(out, response.getData());
+            out.writeDate(response.getTimestamp());
+        } else if (value.getClass() == BatchRequest.class) {
+            out.writeVarInt(T_BATCH_REQUEST);
+            BatchRequest batch = (BatchRequest) value;
+            out.writeString(batch.getSessionId());
+            out.writeDate(batch.getTimestamp());
+            out.writeVarInt(batch.getItems().size());
+            for (BatchRequest.Item item : batch.getItems()) {
+                out.writeVarLong(item.getCorrelationId());
+                writeValue(out, item.getRequest());
+            }
+        } else if (value.getClass() == BatchResponse.class) {
+            out.writeVarInt(T_BATCH_RESPONSE);
+            BatchResponse batch = (BatchResponse) value;
+            out.writeString(batch.getStatus());
+            out.writeString(batch.getMessage());
+            out.writeDate(batch.getTimestamp());
+            out.writeVarInt(batch.getItems().size());
+            for (BatchResponse.Item item : batch.getItems()) {
+                out.writeVarLong(item.getCorrelationId());
+                writeValue(out, item.getResponse());
+            }
+        } else if (value instanceof PageRequest) {
+            out.writeVarInt(T_PAGE_REQUEST);
+            PageRequest pageRequest = (PageRequest) value;
+            out.writeString(pageRequest.getCursor());
+            out.writeVarLong(zigzag(pageRequest.getLimit()));
+        } else if (value instanceof Page) {
+            out.writeVarInt(T_PAGE);
+            Page page = (Page) value;
+            writeValue(out, page.getItems());
+            out.writeString(page.getNextCursor());
+        } else if (value instanceof LoginRequest) {
+            out.writeVarInt(T_LOGIN_REQUEST);
+            LoginRequest login = (LoginRequest) value;
+            out.writeString(login.getUsername());
+            out.writeString(login.getPassword());
+            out.writeString(login.getRole());
+        } else {
+            out.writeVarInt(T_JAVA);
+            byte[] serialized = Codecs.JAVA.encode(value);
+            out.writeVarInt(serialized.length);
+            out.writeBytes(serialized);
+        }
+    }
+
+    private Object readValue(Reader in) throws IOException {
+        if (++in.depth > MAX_DEPTH) {
+            throw new IOException("Values nested deeper than " + MAX_DEPTH);
+        }
+        try {
+            return readTagged(in, in.readVarInt());
+        } finally {
+            in.depth--;
+        }
+    }
+
+    private Object readTagged(Reader in, int tag) throws IOException {
+        switch (tag) {
+            case T_NULL:
+                return null;
+            case T_STRING:
+                return in.readString();
+            case T_INT:
+                return (int) unzigzag(in.readVarLong());
+            case T_LONG:
+                return unzigzag(in.readVarLong());
+            case T_TRUE:
+                return Boolean.TRUE;
+            case T_FALSE:
+                return Boolean.FALSE;
+            case T_DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case T_DATE:
+                return in.readDate();
+            case T_LIST: {
+                int size = in.readSize();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case T_STUDENT:
+                return readStudent(in);
+            case T_MODULE:
+                return readModule(in);
+            case T_EXAM:
+                return readExam(in);
+            case T_RESULT:
+                return readResult(in);
+            case T_LECTURER:
+                return readLecturer(in);
+            case T_BATCH:
+                return readBatch(in);
+            case T_USER:
+                return readUser(in);
+            case T_REGISTRATION:
+                return readRegistration(in);
+            case T_REQUEST: {
+                Request request = new Request();
+                request.setType(in.readString());
+                request.setData(readValue(in));
+                request.setSessionId(in.readString());
+                request.setTimestamp(in.readDate());
+                return request;
+            }
+            case T_RESPONSE: {
+                Response response = new Response();
+                response.setStatus(in.readString());
+                response.setMessage(in.readString());
+                response.setData(readValue(in));
+                response.setTimestamp(in.readDate());
+                return response;
+            }
+            case T_BATCH_REQUEST: {
+                BatchRequest batch = new BatchRequest();
+                batch.setSessionId(in.readString());
+                batch.setTimestamp(in.readDate());
+                int size = in.readSize();
+                for (int i = 0; i < size; i++) {
+                    long correlationId = in.readVarLong();
+                    batch.add(correlationId, readTyped(in, Request.class));
+                }
+                return batch;
+            }
+            case T_BATCH_RESPONSE: {
+                BatchResponse batch = new BatchResponse();
+                batch.setStatus(in.readString());
+                batch.setMessage(in.readString());
+                batch.setTimestamp(in.readDate());
+                int size = in.readSize();
+                for (int i = 0; i < size; i++) {
+                    long correlationId = in.readVarLong();
+                    batch.add(correlationId, readTyped(in, Response.class));
+                }
+                return batch;
+            }
+            case T_PAGE_REQUEST:
+                return new PageRequest(in.readString(), in.readInt());
+            case T_PAGE: {
+                @SuppressWarnings("unchecked")
+                List<Object> items = readTyped(in, List.class);
+                return new Page(items, in.readString());
+            }
+            case T_LOGIN_REQUEST:
+                return new LoginRequest(in.readString(), in.readString(), in.readString());
+            case T_JAVA:
+                return Codecs.JAVA.decode(in.readBytes(in.readSize()));
+            default:
+                throw new IOException("Unknown value tag: " + tag);
+        }
+    }
+
+    /**
+     * Read a value that must be null or of the given type
+     */
+    private <T> T readTyped(Reader in, Class<T> type) throws IOException {
+        Object value = readValue(in);
+        if (value != null && !type.isInstance(value)) {
+            throw new IOException("Expected " + type.getSimpleName() + " but got " + value.getClass().getSimpleName());
+        }
+        return type.cast(value);
+    }
+
+    private static void writeStudent(Writer out, Student s) {
+        out.writeString(s.getId());
+        out.writeString(s.getName());
+        out.writeString(s.getEmail());
+        out.writeString(s.getBatchId());
+        out.writeString(s.getPhoneNumber());
+        out.writeDate(s.getEnrollmentDate());
+        out.writeStringList(s.getRegisteredModules());
+    }
+
+    private static Student readStudent(Reader in) throws IOException {
+        Student s = new Student();
+        s.setId(in.readString());
+        s.setName(in.readString());
+        s.setEmail(in.readString());
+        s.setBatchId(in.readString());
+        s.setPhoneNumber(in.readString());
+        s.setEnrollmentDate(in.readDate());
+        s.setRegisteredModules(in.readStringList());
+        return s;
+    }
+
+    private static void writeModule(Writer out, Module m) {
+        out.writeString(m.getCode());
+        out.writeString(m.getName());
+        out.writeVarLong(zigzag(m.getCredits()));
+        out.writeString(m.getLecturerId());
+        out.writeString(m.getSemester());
+        out.writeString(m.getDescription());
+        out.writeVarLong(zigzag(m.getMaxStudents()));
+    }
+
+    private static Module readModule(Reader in) throws IOException {
+        Module m = new Module();
+        m.setCode(in.readString());
+        m.setName(in.readString());
+        m.setCredits(in.readInt());
+        m.setLecturerId(in.readString());
+        m.setSemester(in.readString());
+        m.setDescription(in.readString());
+        m.setMaxStudents(in.readInt());
+        return m;
+    }
+
+    private static void writeExam(Writer out, Exam e) {
+        out.writeString(e.getId());
+        out.writeString(e.getModuleCode());
+        out.writeString(e.getBatchId());
+        out.writeDate(e.getDate());
+        out.writeString(e.getStartTime());
+        out.writeString(e.getEndTime());
+        out.writeString(e.getVenue());
+        out.writeVarLong(zigzag(e.getMaxMarks()));
+        out.writeString(e.getType());
+    }
+
+    private static Exam readExam(Reader in) throws IOException {
+        Exam e = new Exam();
+        e.setId(in.readString());
+        e.setModuleCode(in.readString());
+        e.setBatchId(in.readString());
+        e.setDate(in.readDate());
+        e.setStartTime(in.readString());
+        e.setEndTime(in.readString());
+        e.setVenue(in.readString());
+        e.setMaxMarks(in.readInt());
+        e.setType(in.readString());
+        return e;
+    }
+
+    private static void writeResult(Writer out, Result r) {
+        out.writeString(r.getId());
+        out.writeString(r.getStudentId());
+        out.writeString(r.getModuleCode());
+        out.writeString(r.getModuleName());
+        out.writeString(r.getExamId());
+        out.writeVarLong(zigzag(r.getMarks()));
+        out.writeString(r.getGrade());
+        out.writeVarLong(zigzag(r.getCredits()));
+        out.writeString(r.getLecturerId());
+        out.writeDate(r.getUploadDate());
+        out.writeByte(r.isPublished() ? 1 : 0);
+    }
+
+    private static Result readResult(Reader in) throws IOException {
+        Result r = new Result();
+        r.setId(in.readString());
+        r.setStudentId(in.readString());
+        r.setModuleCode(in.readString());
+        r.setModuleName(in.readString());
+        r.setExamId(in.readString());
+        r.setMarks(in.readInt());
+        r.setGrade(in.readString());
+        r.setCredits(in.readInt());
+        r.setLecturerId(in.readString());
+        r.setUploadDate(in.readDate());
+        r.setPublished(in.readByte() != 0);
+        return r;
+    }
+
+    private static void writeLecturer(Writer out, Lecturer l) {
+        out.writeString(l.getId());
+        out.writeString(l.getName());
+        out.writeString(l.getEmail());
+        out.writeString(l.getDepartment());
+        out.writeString(l.getPhoneNumber());
+        out.writeStringList(l.getModuleIds());
+        out.writeDate(l.getJoinDate());
+    }
+
+    private static Lecturer readLecturer(Reader in) throws IOException {
+        Lecturer l = new Lecturer();
+        l.setId(in.readString());
+        l.setName(in.readString());
+        l.setEmail(in.readString());
+        l.setDepartment(in.readString());
+        l.setPhoneNumber(in.readString());
+        l.setModuleIds(in.readStringList());
+        l.setJoinDate(in.readDate());
+        return l;
+    }
+
+    private static void writeBatch(Writer out, Batch b) {
+        out.writeString(b.getId());
+        out.writeString(b.getName());
+        out.writeString(b.getYear());
+        out.writeString(b.getSemester());
+        out.writeStringList(b.getStudentIds());
+        out.writeDate(b.getCreatedDate());
+    }
+
+    private static Batch readBatch(Reader in) throws IOException {
+        Batch b = new Batch();
+        b.setId(in.readString());
+        b.setName(in.readString());
+        b.setYear(in.readString());
+        b.setSemester(in.readString());
+        b.setStudentIds(in.readStringList());
+        b.setCreatedDate(in.readDate());
+        return b;
+    }
+
+    private static void writeUser(Writer out, User u) {
+        out.writeString(u.getUserId());
+        out.writeString(u.getPassword());
+        out.writeString(u.getRole());
+        out.writeDate(u.getLastLogin());
+        out.writeByte(u.isActive() ? 1 : 0);
+    }
+
+    private static User readUser(Reader in) throws IOException {
+        User u = new User();
+        u.setUserId(in.readString());
+        u.setPassword(in.readString());
+        u.setRole(in.readString());
+        u.setLastLogin(in.readDate());
+        u.setActive(in.readByte() != 0);
+        return u;
+    }
+
+    private static void writeRegistration(Writer out, ModuleRegistration r) {
+        out.writeString(r.getStudentId());
+        out.writeString(r.getModuleCode());
+        out.writeDate(r.getRegistrationDate());
+        out.writeString(r.getStatus());
+    }
+
+    private static ModuleRegistration readRegistration(Reader in) throws IOException {
+        ModuleRegistration r = new ModuleRegistration();
+        r.setStudentId(in.readString());
+        r.setModuleCode(in.readString());
+        r.setRegistrationDate(in.readDate());
+        r.setStatus(in.readString());
+        return r;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Growable output buffer with a per-message string table
+     */
+    private static final class Writer {
+        private byte[] buf = new byte[256];
+        private int pos;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        void writeLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeVarInt(int v) {
+            writeVarLong(v & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        /**
+         * 0 = null, odd = reference to an earlier string, even = literal of length (n/2 - 1)
+         */
+        void writeString(String s) {
+            if (s == null) {
+                writeVarInt(0);
+                return;
+            }
+            Integer ref = strings.get(s);
+            if (ref != null) {
+                writeVarLong(((long) ref << 1) | 1);
+                return;
+            }
+            strings.put(s, strings.size());
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(((long) utf8.length + 1) << 1);
+            writeBytes(utf8);
+        }
+
+        void writeStringList(List<String> list) {
+            if (list == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(list.size() + 1);
+            for (String s : list) {
+                writeString(s);
+            }
+        }
+
+        void writeDate(Date date) {
+            writeVarLong(date == null ? 0 : zigzag(date.getTime()) + 1);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+    }
+
+    /**
+     * Cursor over encoded bytes with the matching string table
+     */
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+        private final List<String> strings = new ArrayList<>();
+        private int depth;
+
+        Reader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        int remaining() {
+            return buf.length - pos;
+        }
+
+        int readByte() throws IOException {
+            if (pos >= buf.length) {
+                throw new IOException("Unexpected end of data");
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        byte[] readBytes(int length) throws IOException {
+            if (length < 0 || length > remaining()) {
+                throw new IOException("Invalid length: " + length);
+            }
+            byte[] bytes = Arrays.copyOfRange(buf, pos, pos + length);
+            pos += length;
+            return bytes;
+        }
+
+        long readLong() throws IOException {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | readByte();
+            }
+            return v;
+        }
+
+        int readVarInt() throws IOException {
+            return (int) readVarLong();
+        }
+
+        /**
+         * Read an element count or byte length
+         * Every element takes at least one byte, so a count larger than the
+         * remaining data is malformed (and must not size an allocation).
+         */
+        int readSize() throws IOException {
+            long size = readVarLong();
+            if (size < 0 || size > remaining()) {
+                throw new IOException("Invalid size: " + size);
+            }
+            return (int) size;
+        }
+
+        long readVarLong() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        int readInt() throws IOException {
+            return (int) unzigzag(readVarLong());
+        }
+
+        String readString() throws IOException {
+            long header = readVarLong();
+            if (header == 0) {
+                return null;
+            }
+            if ((header & 1) == 1) {
+                long ref = header >>> 1;
+                if (ref >= strings.size()) {
+                    throw new IOException("Invalid string reference: " + ref);
+                }
+                return strings.get((int) ref);
+            }
+            long encodedLength = (header >>> 1) - 1;
+            if (encodedLength < 0 || encodedLength > remaining()) {
+                throw new IOException("Invalid string length: " + encodedLength);
+            }
+            int length = (int) encodedLength;
+            String s = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            strings.add(s);
+            return s;
+        }
+
+        List<String> readStringList() throws IOException {
+            long header = readVarLong();
+            if (header == 0) {
+                return null;
+            }
+            long size = header - 1;
+            if (size > remaining()) {
+                throw new IOException("Invalid list size: " + size);
+            }
+            List<String> list = new ArrayList<>((int) size);
+            for (int i = 0; i < size; i++) {
+                list.add(readString());
+            }
+            return list;
+        }
+
+        Date readDate() throws IOException {
+            long v = readVarLong();
+            return v == 0 ? null : new Date(unzigzag(v - 1));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package common.codec;
+
+import java.io.IOException;
+
+/**
+ * Interface for encoding objects to bytes and back
+ * Used for both file persistence and network messages
+ */
+public interface Codec {
+    
+    /**
+     * Encode an object graph to bytes
+     * @param obj The object to encode (may be null)
+     * @return The encoded bytes
+     */
+    byte[] encode(Object obj) throws IOException;
+    
+    /**
+     * Decode bytes produced by encode()
+     * @param data The encoded bytes
+     * @return The decoded object
+     */
+    Object decode(byte[] data) throws IOException;
+    
+    /**
+     * Check whether the bytes look like this codec's output
+     * @param data The encoded bytes
+     * @return true if this codec can decode them
+     */
+    boolean canDecode(byte[] data);
+    
+    /**
+     * Name used in configuration (see Constants)
+     */
+    String getName();
+}
@@ -0,0 +1,45 @@
+package common.codec;
+
+import java.io.IOException;
+
+/**
+ * Registry of available codecs
+ */
+public final class Codecs {
+    
+    public static final Codec JAVA = new JavaSerializationCodec();
+    public static final Codec BINARY = new BinaryCodec();
+    
+    private Codecs() {}
+    
+    /**
+     * Look up a codec by its configured name
+     * @param name "java" or "binary"
+     * @return The codec
+     */
+    public static Codec forName(String name) {
+        if (JavaSerializationCodec.NAME.equalsIgnoreCase(name)) {
+            return JAVA;
+        }
+        if (BinaryCodec.NAME.equalsIgnoreCase(name)) {
+            return BINARY;
+        }
+        throw new IllegalArgumentException("Unknown codec: " + name);
+    }
+    
+    /**
+     * Decode bytes written by any registered codec
+     * Lets a file written in one format be read after switching to the other.
+     * @param data The encoded bytes
+     * @return The decoded object
+     */
+    public static Object decode(byte[] data) throws IOException {
+        if (BINARY.canDecode(data)) {
+            return BINARY.decode(data);
+        }
+        if (JAVA.canDecode(data)) {
+            return JAVA.decode(data);
+        }
+        throw new IOException("Unrecognized data format");
+    }
+}
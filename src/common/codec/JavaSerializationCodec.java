@@ -0,0 +1,54 @@
+package common.codec;
+
+import java.io.*;
+
+/**
+ * Codec using default Java serialization
+ * This is the format FileManager has always written.
+ * Decoding only accepts the classes in ALLOWED_CLASSES, since decoded bytes
+ * may come from the network (see Codecs.decode).
+ */
+public class JavaSerializationCodec implements Codec {
+    
+    public static final String NAME = "java";
+    
+    // ObjectOutputStream.STREAM_MAGIC
+    private static final byte MAGIC_0 = (byte) 0xAC;
+    private static final byte MAGIC_1 = (byte) 0xED;
+    
+    // Models, envelopes and service results plus the JDK value and collection types they use
+    private static final String ALLOWED_CLASSES =
+            "maxdepth=64;maxarray=16777216;java.lang.*;java.util.*;java.time.*;java.math.*;common.**;!*";
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(ALLOWED_CLASSES);
+    
+    @Override
+    public byte[] encode(Object obj) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(obj);
+        }
+        return bytes.toByteArray();
+    }
+    
+    @Override
+    public Object decode(byte[] data) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            ois.setObjectInputFilter(FILTER);
+            return ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class in serialized data", e);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed serialized data: " + e, e);
+        }
+    }
+    
+    @Override
+    public boolean canDecode(byte[] data) {
+        return data.length >= 2 && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
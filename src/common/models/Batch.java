@@ -2,8 +2,10 @@ package common.models;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 public class Batch implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -14,6 +16,8 @@ public class Batch implements Serializable {
     private String semester;
     private List<String> studentIds;
     private Date createdDate;
+    // Membership index over studentIds, rebuilt on first use after deserialization
+    private transient Set<String> studentIndex;
     
     public Batch() {
         this.studentIds = new ArrayList<>();
@@ -30,17 +34,39 @@ public class Batch implements Serializable {
     }
     
     public void addStudent(String studentId) {
-        if (!studentIds.contains(studentId)) {
+        if (studentIndex().add(studentId)) {
             studentIds.add(studentId);
         }
     }
     
+    /**
+     * Add students that are not in the batch yet
+     * @return Number of students added
+     */
+    public int addStudents(Collection<String> ids) {
+        return Memberships.addAll(studentIndex(), studentIds, ids);
+    }
+    
     public void removeStudent(String studentId) {
-        studentIds.remove(studentId);
+        if (studentIndex().remove(studentId)) {
+            studentIds.remove(studentId);
+        }
+    }
+    
+    /**
+     * Remove students from the batch
+     * @return Number of students removed
+     */
+    public int removeStudents(Collection<String> ids) {
+        return Memberships.removeAll(studentIndex(), studentIds, ids);
+    }
+    
+    public boolean hasStudent(String studentId) {
+        return studentIndex().contains(studentId);
     }
     
     public int getStudentCount() {
-        return studentIds.size();
+        return getStudentIds().size();
     }
     
     // Getters and Setters
@@ -56,14 +82,31 @@ public class Batch implements Serializable {
     public String getSemester() { return semester; }
     public void setSemester(String semester) { this.semester = semester; }
     
-    public List<String> getStudentIds() { return studentIds; }
-    public void setStudentIds(List<String> studentIds) { this.studentIds = studentIds; }
+    /**
+     * Student ids in the order they were added; changes made through the returned list are kept
+     */
+    public List<String> getStudentIds() {
+        if (studentIds == null) studentIds = new ArrayList<>();
+        return Memberships.view(studentIds, () -> studentIndex = null);
+    }
+    public void setStudentIds(List<String> studentIds) {
+        this.studentIds = Memberships.copy(studentIds);
+        this.studentIndex = null;
+    }
     
     public Date getCreatedDate() { return createdDate; }
     public void setCreatedDate(Date createdDate) { this.createdDate = createdDate; }
     
+    private Set<String> studentIndex() {
+        if (studentIndex == null) {
+            if (studentIds == null) studentIds = new ArrayList<>();
+            studentIndex = Memberships.index(studentIds);
+        }
+        return studentIndex;
+    }
+    
     @Override
     public String toString() {
-        return "Batch{id='" + id + "', name='" + name + "', students=" + studentIds.size() + "}";
+        return "Batch{id='" + id + "', name='" + name + "', students=" + getStudentIds().size() + "}";
     }
 }
\ No newline at end of file
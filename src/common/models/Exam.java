@@ -1,11 +1,15 @@
 package common.models;
 
+import common.utils.DateUtils;
+
 import java.io.Serializable;
 import java.util.Date;
 
 public class Exam implements Serializable {
     private static final long serialVersionUID = 1L;
     
+    public static final int DEFAULT_DURATION_MINUTES = 120;
+    
     private String id;
     private String moduleCode;
     private String batchId;
@@ -27,14 +31,42 @@ public class Exam implements Serializable {
         this.maxMarks = 100;
     }
     
+    /**
+     * Check if both exams are for the same batch on the same day with overlapping times
+     * An exam without an end time is taken to last DEFAULT_DURATION_MINUTES.
+     */
     public boolean isConflictWith(Exam other) {
-        if (!this.batchId.equals(other.batchId)) {
+        if (batchId == null || !batchId.equals(other.batchId)) {
             return false;
         }
-        if (!this.date.equals(other.date)) {
+        if (!DateUtils.isSameDate(date, other.date)) {
             return false;
         }
-        return this.startTime.equals(other.startTime);
+        int start = getStartMinutes();
+        int otherStart = other.getStartMinutes();
+        if (start < 0 || otherStart < 0) {
+            return startTime != null && startTime.equals(other.startTime);
+        }
+        return start < other.getEndMinutes() && otherStart < getEndMinutes();
+    }
+    
+    /**
+     * Start time in minutes since midnight, or -1 if not set or invalid
+     */
+    public int getStartMinutes() {
+        return DateUtils.parseMinutes(startTime);
+    }
+    
+    /**
+     * End time in minutes since midnight, or -1 if the start time is invalid
+     */
+    public int getEndMinutes() {
+        int start = getStartMinutes();
+        if (start < 0) {
+            return -1;
+        }
+        int end = DateUtils.parseMinutes(endTime);
+        return end > start ? end : start + DEFAULT_DURATION_MINUTES;
     }
     
     // Getters and Setters
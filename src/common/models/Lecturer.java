@@ -2,8 +2,10 @@ package common.models;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 public class Lecturer implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -15,6 +17,8 @@ public class Lecturer implements Serializable {
     private String phoneNumber;
     private List<String> moduleIds;
     private Date joinDate;
+    // Membership index over moduleIds, rebuilt on first use after deserialization
+    private transient Set<String> moduleIndex;
     
     public Lecturer() {
         this.moduleIds = new ArrayList<>();
@@ -30,6 +34,47 @@ public class Lecturer implements Serializable {
         this.joinDate = new Date();
     }
     
+    /**
+     * Assign a module if it is not assigned yet
+     * @return true if it was added
+     */
+    public boolean addModule(String moduleId) {
+        if (moduleIndex().add(moduleId)) {
+            moduleIds.add(moduleId);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * @return Number of modules added
+     */
+    public int addModules(Collection<String> ids) {
+        return Memberships.addAll(moduleIndex(), moduleIds, ids);
+    }
+    
+    /**
+     * @return true if the module was assigned
+     */
+    public boolean removeModule(String moduleId) {
+        if (moduleIndex().remove(moduleId)) {
+            moduleIds.remove(moduleId);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * @return Number of modules removed
+     */
+    public int removeModules(Collection<String> ids) {
+        return Memberships.removeAll(moduleIndex(), moduleIds, ids);
+    }
+    
+    public boolean teachesModule(String moduleId) {
+        return moduleIndex().contains(moduleId);
+    }
+    
     // Getters and Setters
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -46,12 +91,29 @@ public class Lecturer implements Serializable {
     public String getPhoneNumber() { return phoneNumber; }
     public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
     
-    public List<String> getModuleIds() { return moduleIds; }
-    public void setModuleIds(List<String> moduleIds) { this.moduleIds = moduleIds; }
+    /**
+     * Assigned module ids; changes made through the returned list are kept
+     */
+    public List<String> getModuleIds() {
+        if (moduleIds == null) moduleIds = new ArrayList<>();
+        return Memberships.view(moduleIds, () -> moduleIndex = null);
+    }
+    public void setModuleIds(List<String> moduleIds) {
+        this.moduleIds = Memberships.copy(moduleIds);
+        this.moduleIndex = null;
+    }
     
     public Date getJoinDate() { return joinDate; }
     public void setJoinDate(Date joinDate) { this.joinDate = joinDate; }
     
+    private Set<String> moduleIndex() {
+        if (moduleIndex == null) {
+            if (moduleIds == null) moduleIds = new ArrayList<>();
+            moduleIndex = Memberships.index(moduleIds);
+        }
+        return moduleIndex;
+    }
+    
     @Override
     public String toString() {
         return "Lecturer{id='" + id + "', name='" + name + "', department='" + department + "'}";
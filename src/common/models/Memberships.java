@@ -0,0 +1,112 @@
+package common.models;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Helpers for the id lists kept by Batch, Student and Lecturer
+ * Each list is paired with a transient HashSet of the same ids, so
+ * membership checks and duplicate-free adds are O(1) while the stored list
+ * (and therefore the serialized form) stays an ordered ArrayList.
+ * The getters hand out a live view of the list that drops the index on
+ * every change, so callers that edit the list directly keep working.
+ */
+final class Memberships {
+
+    private Memberships() {}
+
+    /**
+     * Copy a list for storage, treating null as empty
+     */
+    static List<String> copy(List<String> ids) {
+        return ids != null ? new ArrayList<>(ids) : new ArrayList<>();
+    }
+
+    /**
+     * Editable view of a member list
+     * Every change made through the view runs dropIndex, and the index is
+     * rebuilt from the list on next use, so the two cannot disagree.
+     */
+    static List<String> view(List<String> ids, Runnable dropIndex) {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int i) {
+                return ids.get(i);
+            }
+
+            @Override
+            public int size() {
+                return ids.size();
+            }
+
+            @Override
+            public String set(int i, String id) {
+                dropIndex.run();
+                return ids.set(i, id);
+            }
+
+            @Override
+            public void add(int i, String id) {
+                dropIndex.run();
+                ids.add(i, id);
+            }
+
+            @Override
+            public String remove(int i) {
+                dropIndex.run();
+                return ids.remove(i);
+            }
+        };
+    }
+
+    /**
+     * Build the membership index of a list
+     */
+    static Set<String> index(List<String> ids) {
+        Set<String> index = new HashSet<>(Math.max(16, ids.size() * 2));
+        index.addAll(ids);
+        return index;
+    }
+
+    /**
+     * Add the ids that are not members yet, keeping their order
+     * The index comes first so that building it can replace a null list.
+     * @return Number of ids added
+     */
+    static int addAll(Set<String> index, List<String> ids, Collection<String> toAdd) {
+        if (ids instanceof ArrayList) {
+            ((ArrayList<String>) ids).ensureCapacity(ids.size() + toAdd.size());
+        }
+        int added = 0;
+        for (String id : toAdd) {
+            if (index.add(id)) {
+                ids.add(id);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Remove every given id in one pass over the list
+     * @return Number of ids removed
+     */
+    static int removeAll(Set<String> index, List<String> ids, Collection<String> toRemove) {
+        Set<String> removed = new HashSet<>();
+        for (String id : toRemove) {
+            if (index.remove(id)) {
+                removed.add(id);
+            }
+        }
+        if (removed.size() == 1) {
+            ids.remove(removed.iterator().next());
+        } else if (!removed.isEmpty()) {
+            ids.removeIf(removed::contains);
+        }
+        return removed.size();
+    }
+}
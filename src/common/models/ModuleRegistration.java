@@ -6,21 +6,32 @@ import java.util.Date;
 public class ModuleRegistration implements Serializable {
     private static final long serialVersionUID = 1L;
     
+    public static final String ACTIVE = "ACTIVE";
+    public static final String WAITLISTED = "WAITLISTED";
+    public static final String DROPPED = "DROPPED";
+    
     private String studentId;
     private String moduleCode;
     private Date registrationDate;
-    private String status; // ACTIVE, DROPPED
+    private String status; // ACTIVE, WAITLISTED, DROPPED
     
     public ModuleRegistration() {
         this.registrationDate = new Date();
-        this.status = "ACTIVE";
+        this.status = ACTIVE;
     }
     
     public ModuleRegistration(String studentId, String moduleCode) {
         this.studentId = studentId;
         this.moduleCode = moduleCode;
         this.registrationDate = new Date();
-        this.status = "ACTIVE";
+        this.status = ACTIVE;
+    }
+    
+    /**
+     * Check whether the registration holds a seat (not waitlisted or dropped)
+     */
+    public boolean isActive() {
+        return !DROPPED.equals(status) && !WAITLISTED.equals(status);
     }
     
     // Getters and Setters
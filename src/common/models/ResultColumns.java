@@ -0,0 +1,386 @@
+package common.models;
+
+import common.utils.GradeCalculator;
+import common.utils.IDGenerator;
+import common.utils.StringDictionary;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented, primitive-array form of a set of results
+ *
+ * Each Result field becomes one array indexed by row: strings that repeat
+ * (student ids, module codes and names, exam ids, lecturers, grades) are
+ * dictionary-encoded to int or byte codes, generated result ids are kept
+ * as their number, and upload dates as epoch millis. A million rows take
+ * a few tens of MB instead of the hundreds used by Result objects, and the
+ * aggregates below scan contiguous arrays.
+ *
+ * Meant for analytics and reports over a loaded result set. Not
+ * thread-safe while rows are being added.
+ */
+public class ResultColumns implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final char ID_PREFIX = 'R';
+    private static final long NO_ID = -1;
+    private static final long IRREGULAR_ID = -2;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    // Module filters besides a module's code
+    private static final int ALL = -2;
+    private static final int MISSING = -3;
+
+    private final StringDictionary students = new StringDictionary();
+    private final StringDictionary modules = new StringDictionary();
+    private final StringDictionary moduleNames = new StringDictionary();
+    private final StringDictionary exams = new StringDictionary();
+    private final StringDictionary lecturers = new StringDictionary();
+    private final StringDictionary grades = new StringDictionary();
+    // Ids that are not R + number as generated by IDGenerator, by row
+    private final Map<Integer, String> irregularIds = new HashMap<>();
+    private final BitSet published = new BitSet();
+
+    private long[] idNumbers;
+    private int[] studentCodes;
+    private int[] moduleCodes;
+    private int[] moduleNameCodes;
+    private int[] examCodes;
+    private int[] lecturerCodes;
+    private int[] marks;
+    private byte[] gradeCodes;
+    private byte[] credits;
+    private long[] uploadTimes;
+    private int size;
+
+    public ResultColumns() {
+        this(1024);
+    }
+
+    public ResultColumns(int capacity) {
+        int initial = Math.max(16, capacity);
+        idNumbers = new long[initial];
+        studentCodes = new int[initial];
+        moduleCodes = new int[initial];
+        moduleNameCodes = new int[initial];
+        examCodes = new int[initial];
+        lecturerCodes = new int[initial];
+        marks = new int[initial];
+        gradeCodes = new byte[initial];
+        credits = new byte[initial];
+        uploadTimes = new long[initial];
+    }
+
+    /**
+     * Build columns from loaded objects, skipping anything that is not a Result
+     * @param objects For example DataStorage.loadAll(Constants.RESULTS_FILE)
+     */
+    public static ResultColumns of(List<?> objects) {
+        ResultColumns columns = new ResultColumns(objects.size());
+        for (Object obj : objects) {
+            if (obj instanceof Result) {
+                columns.add((Result) obj);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Append a result as a new row
+     * @return The row index
+     * @throws IllegalArgumentException if the credits do not fit the byte column
+     */
+    public int add(Result result) {
+        if (result.getCredits() < Byte.MIN_VALUE || result.getCredits() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Credits out of range: " + result.getCredits());
+        }
+        if (size == marks.length) {
+            grow();
+        }
+        int row = size;
+        idNumbers[row] = encodeId(row, result.getId());
+        studentCodes[row] = students.encode(result.getStudentId());
+        moduleCodes[row] = modules.encode(result.getModuleCode());
+        moduleNameCodes[row] = moduleNames.encode(result.getModuleName());
+        examCodes[row] = exams.encode(result.getExamId());
+        lecturerCodes[row] = lecturers.encode(result.getLecturerId());
+        marks[row] = result.getMarks();
+        int grade = grades.encode(result.getGrade());
+        if (grade > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct grades: " + grades.size());
+        }
+        gradeCodes[row] = (byte) grade;
+        credits[row] = (byte) result.getCredits();
+        uploadTimes[row] = result.getUploadDate() != null ? result.getUploadDate().getTime() : NO_DATE;
+        published.set(row, result.isPublished());
+        size++;
+        return row;
+    }
+
+    /**
+     * Rebuild the Result stored in a row
+     */
+    public Result toResult(int row) {
+        checkRow(row);
+        Result result = new Result(students.decode(studentCodes[row]), modules.decode(moduleCodes[row]), marks[row]);
+        result.setId(getId(row));
+        result.setModuleName(moduleNames.decode(moduleNameCodes[row]));
+        result.setExamId(exams.decode(examCodes[row]));
+        result.setLecturerId(lecturers.decode(lecturerCodes[row]));
+        result.setGrade(grades.decode(gradeCodes[row]));
+        result.setCredits(credits[row]);
+        result.setUploadDate(uploadTimes[row] != NO_DATE ? new Date(uploadTimes[row]) : null);
+        result.setPublished(published.get(row));
+        return result;
+    }
+
+    /**
+     * Rebuild every row as a Result
+     */
+    public List<Result> toResults() {
+        List<Result> results = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            results.add(toResult(row));
+        }
+        return results;
+    }
+
+    // Aggregates
+
+    /**
+     * Average marks of a module's results
+     * @param moduleCode The module, or null for all results
+     * @return The average, or 0 if there are no results
+     */
+    public double averageMarks(String moduleCode) {
+        int module = moduleFilter(moduleCode);
+        if (module == MISSING) return 0.0;
+        long total = 0;
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (module == ALL || moduleCodes[row] == module) {
+                total += marks[row];
+                count++;
+            }
+        }
+        return count > 0 ? (double) total / count : 0.0;
+    }
+
+    /**
+     * Fraction of a module's results at or above the pass mark
+     * @param moduleCode The module, or null for all results
+     * @return Between 0 and 1, 0 if there are no results
+     */
+    public double passRate(String moduleCode) {
+        int module = moduleFilter(moduleCode);
+        if (module == MISSING) return 0.0;
+        int passed = 0;
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (module == ALL || moduleCodes[row] == module) {
+                if (GradeCalculator.isPass(marks[row])) {
+                    passed++;
+                }
+                count++;
+            }
+        }
+        return count > 0 ? (double) passed / count : 0.0;
+    }
+
+    /**
+     * Number of results per grade, in order of first appearance
+     * @param moduleCode The module, or null for all results
+     */
+    public Map<String, Integer> gradeDistribution(String moduleCode) {
+        Map<String, Integer> distribution = new LinkedHashMap<>();
+        int module = moduleFilter(moduleCode);
+        if (module == MISSING) return distribution;
+        int[] counts = new int[grades.size() + 1];
+        for (int row = 0; row < size; row++) {
+            if (module == ALL || moduleCodes[row] == module) {
+                counts[gradeCodes[row] + 1]++;
+            }
+        }
+        for (int code = 0; code < grades.size(); code++) {
+            if (counts[code + 1] > 0) {
+                distribution.put(grades.decode(code), counts[code + 1]);
+            }
+        }
+        return distribution;
+    }
+
+    /**
+     * Average marks of every module
+     * @return Module code to average marks
+     */
+    public Map<String, Double> averageMarksByModule() {
+        long[] totals = new long[modules.size()];
+        int[] counts = new int[modules.size()];
+        for (int row = 0; row < size; row++) {
+            int module = moduleCodes[row];
+            if (module != StringDictionary.NULL_CODE) {
+                totals[module] += marks[row];
+                counts[module]++;
+            }
+        }
+        Map<String, Double> averages = new LinkedHashMap<>();
+        for (int module = 0; module < totals.length; module++) {
+            if (counts[module] > 0) {
+                averages.put(modules.decode(module), (double) totals[module] / counts[module]);
+            }
+        }
+        return averages;
+    }
+
+    /**
+     * Credit-weighted GPA of a student
+     * Uses the stored grade, or the grade for the marks if none is stored.
+     * @param publishedOnly Only count published results
+     * @return The GPA, or 0 if the student has no credits
+     */
+    public double getGpa(String studentId, boolean publishedOnly) {
+        int student = students.lookup(studentId);
+        if (student == StringDictionary.NULL_CODE) return 0.0;
+        double[] points = gradePoints();
+        double weighted = 0;
+        int totalCredits = 0;
+        for (int row = 0; row < size; row++) {
+            if (studentCodes[row] != student || (publishedOnly && !published.get(row))) {
+                continue;
+            }
+            double gradePoints = gradeCodes[row] != StringDictionary.NULL_CODE
+                    ? points[gradeCodes[row]]
+                    : GradeCalculator.getGradePoints(marks[row]);
+            weighted += gradePoints * credits[row];
+            totalCredits += credits[row];
+        }
+        return totalCredits > 0 ? weighted / totalCredits : 0.0;
+    }
+
+    // Row access
+
+    public int size() { return size; }
+
+    public String getId(int row) {
+        checkRow(row);
+        long id = idNumbers[row];
+        if (id == NO_ID) return null;
+        if (id == IRREGULAR_ID) return irregularIds.get(row);
+        return IDGenerator.format(ID_PREFIX, id);
+    }
+
+    public String getStudentId(int row) { checkRow(row); return students.decode(studentCodes[row]); }
+
+    public String getModuleCode(int row) { checkRow(row); return modules.decode(moduleCodes[row]); }
+
+    public int getMarks(int row) { checkRow(row); return marks[row]; }
+
+    public String getGrade(int row) { checkRow(row); return grades.decode(gradeCodes[row]); }
+
+    public int getCredits(int row) { checkRow(row); return credits[row]; }
+
+    public boolean isPublished(int row) { checkRow(row); return published.get(row); }
+
+    /**
+     * Upload time in epoch millis, or Long.MIN_VALUE if the result has no upload date
+     */
+    public long getUploadTime(int row) { checkRow(row); return uploadTimes[row]; }
+
+    public int getStudentCount() { return students.size(); }
+
+    public int getModuleCount() { return modules.size(); }
+
+    public int getGradeCount() { return grades.size(); }
+
+    /**
+     * Dictionary code of a row's student (0 to getStudentCount() - 1, or -1 if none)
+     * Codes let callers group rows into arrays instead of hash maps.
+     */
+    public int getStudentKey(int row) { checkRow(row); return studentCodes[row]; }
+
+    /**
+     * Dictionary code of a row's module (0 to getModuleCount() - 1, or -1 if none)
+     */
+    public int getModuleKey(int row) { checkRow(row); return moduleCodes[row]; }
+
+    /**
+     * Dictionary code of a row's grade (0 to getGradeCount() - 1, or -1 if none)
+     */
+    public int getGradeKey(int row) { checkRow(row); return gradeCodes[row]; }
+
+    public String studentOfKey(int key) { return students.decode(key); }
+
+    public String moduleOfKey(int key) { return modules.decode(key); }
+
+    public String gradeOfKey(int key) { return grades.decode(key); }
+
+    /**
+     * Shrink the arrays to the number of rows, e.g. before serializing
+     */
+    public void trimToSize() {
+        if (size == marks.length) return;
+        resize(Math.max(size, 1));
+    }
+
+    private int moduleFilter(String moduleCode) {
+        if (moduleCode == null) return ALL;
+        int module = modules.lookup(moduleCode);
+        return module != StringDictionary.NULL_CODE ? module : MISSING;
+    }
+
+    private double[] gradePoints() {
+        double[] points = new double[grades.size()];
+        for (int code = 0; code < points.length; code++) {
+            points[code] = GradeCalculator.getGradePoints(grades.decode(code));
+        }
+        return points;
+    }
+
+    private long encodeId(int row, String id) {
+        if (id == null) return NO_ID;
+        if (id.length() > 1 && id.length() < 19 && id.charAt(0) == ID_PREFIX) {
+            long number = 0;
+            boolean digits = true;
+            for (int i = 1; i < id.length() && digits; i++) {
+                char c = id.charAt(i);
+                digits = c >= '0' && c <= '9';
+                number = number * 10 + (c - '0');
+            }
+            if (digits && IDGenerator.format(ID_PREFIX, number).equals(id)) {
+                return number;
+            }
+        }
+        irregularIds.put(row, id);
+        return IRREGULAR_ID;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+        }
+    }
+
+    private void grow() {
+        resize(marks.length + (marks.length >> 1));
+    }
+
+    private void resize(int capacity) {
+        idNumbers = Arrays.copyOf(idNumbers, capacity);
+        studentCodes = Arrays.copyOf(studentCodes, capacity);
+        moduleCodes = Arrays.copyOf(moduleCodes, capacity);
+        moduleNameCodes = Arrays.copyOf(moduleNameCodes, capacity);
+        examCodes = Arrays.copyOf(examCodes, capacity);
+        lecturerCodes = Arrays.copyOf(lecturerCodes, capacity);
+        marks = Arrays.copyOf(marks, capacity);
+        gradeCodes = Arrays.copyOf(gradeCodes, capacity);
+        credits = Arrays.copyOf(credits, capacity);
+        uploadTimes = Arrays.copyOf(uploadTimes, capacity);
+    }
+}
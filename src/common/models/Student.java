@@ -2,8 +2,10 @@ package common.models;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 public class Student implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -15,6 +17,8 @@ public class Student implements Serializable {
     private String phoneNumber;
     private Date enrollmentDate;
     private List<String> registeredModules;
+    // Membership index over registeredModules, rebuilt on first use after deserialization
+    private transient Set<String> moduleIndex;
     
     public Student() {
         this.registeredModules = new ArrayList<>();
@@ -30,6 +34,48 @@ public class Student implements Serializable {
         this.enrollmentDate = new Date();
     }
     
+    /**
+     * Add a module code if it is not listed yet
+     * @return true if it was added
+     */
+    public boolean addRegisteredModule(String moduleCode) {
+        if (moduleIndex().add(moduleCode)) {
+            registeredModules.add(moduleCode);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Add module codes that are not listed yet
+     * @return Number of modules added
+     */
+    public int addRegisteredModules(Collection<String> moduleCodes) {
+        return Memberships.addAll(moduleIndex(), registeredModules, moduleCodes);
+    }
+    
+    /**
+     * @return true if the module was listed
+     */
+    public boolean removeRegisteredModule(String moduleCode) {
+        if (moduleIndex().remove(moduleCode)) {
+            registeredModules.remove(moduleCode);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * @return Number of modules removed
+     */
+    public int removeRegisteredModules(Collection<String> moduleCodes) {
+        return Memberships.removeAll(moduleIndex(), registeredModules, moduleCodes);
+    }
+    
+    public boolean isRegisteredFor(String moduleCode) {
+        return moduleIndex().contains(moduleCode);
+    }
+    
     // Getters and Setters
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -49,8 +95,25 @@ public class Student implements Serializable {
     public Date getEnrollmentDate() { return enrollmentDate; }
     public void setEnrollmentDate(Date enrollmentDate) { this.enrollmentDate = enrollmentDate; }
     
-    public List<String> getRegisteredModules() { return registeredModules; }
-    public void setRegisteredModules(List<String> registeredModules) { this.registeredModules = registeredModules; }
+    /**
+     * Registered module codes; changes made through the returned list are kept
+     */
+    public List<String> getRegisteredModules() {
+        if (registeredModules == null) registeredModules = new ArrayList<>();
+        return Memberships.view(registeredModules, () -> moduleIndex = null);
+    }
+    public void setRegisteredModules(List<String> registeredModules) {
+        this.registeredModules = Memberships.copy(registeredModules);
+        this.moduleIndex = null;
+    }
+    
+    private Set<String> moduleIndex() {
+        if (moduleIndex == null) {
+            if (registeredModules == null) registeredModules = new ArrayList<>();
+            moduleIndex = Memberships.index(registeredModules);
+        }
+        return moduleIndex;
+    }
     
     @Override
     public String toString() {
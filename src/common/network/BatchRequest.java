@@ -0,0 +1,58 @@
+package common.network;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Envelope carrying several typed sub-requests in one round trip
+ * Each sub-request has a correlation id that is echoed in the matching
+ * entry of the BatchResponse. Sub-requests are independent and may be
+ * executed concurrently.
+ */
+public class BatchRequest extends Request {
+    private static final long serialVersionUID = 1L;
+    
+    public static final String TYPE = "BATCH";
+    
+    private List<Item> items;
+    
+    public BatchRequest() {
+        super(TYPE, null);
+        this.items = new ArrayList<>();
+    }
+    
+    /**
+     * Add a sub-request
+     * @param correlationId Id used to match the sub-response
+     * @param request The sub-request (must not itself be a batch)
+     * @return this batch, for chaining
+     */
+    public BatchRequest add(long correlationId, Request request) {
+        items.add(new Item(correlationId, request));
+        return this;
+    }
+    
+    public List<Item> getItems() { return items; }
+    public void setItems(List<Item> items) { this.items = items; }
+    
+    public int size() { return items.size(); }
+    
+    /**
+     * A sub-request with its correlation id
+     */
+    public static class Item implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        private final long correlationId;
+        private final Request request;
+        
+        public Item(long correlationId, Request request) {
+            this.correlationId = correlationId;
+            this.request = request;
+        }
+        
+        public long getCorrelationId() { return correlationId; }
+        public Request getRequest() { return request; }
+    }
+}
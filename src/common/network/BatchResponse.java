@@ -0,0 +1,59 @@
+package common.network;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Responses to the sub-requests of a BatchRequest
+ * Entries are in completion order, not request order; use the
+ * correlation ids to match them up.
+ */
+public class BatchResponse extends Response {
+    private static final long serialVersionUID = 1L;
+    
+    private List<Item> items;
+    
+    public BatchResponse() {
+        super("SUCCESS", null);
+        this.items = new ArrayList<>();
+    }
+    
+    public void add(long correlationId, Response response) {
+        items.add(new Item(correlationId, response));
+    }
+    
+    /**
+     * Find the response for a correlation id
+     * @return The sub-response or null if not present
+     */
+    public Response get(long correlationId) {
+        for (Item item : items) {
+            if (item.getCorrelationId() == correlationId) {
+                return item.getResponse();
+            }
+        }
+        return null;
+    }
+    
+    public List<Item> getItems() { return items; }
+    public void setItems(List<Item> items) { this.items = items; }
+    
+    /**
+     * A sub-response with its correlation id
+     */
+    public static class Item implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        private final long correlationId;
+        private final Response response;
+        
+        public Item(long correlationId, Response response) {
+            this.correlationId = correlationId;
+            this.response = response;
+        }
+        
+        public long getCorrelationId() { return correlationId; }
+        public Response getResponse() { return response; }
+    }
+}
@@ -0,0 +1,49 @@
+package common.network;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Bounded pool of fixed-size direct byte buffers
+ * Buffers are only held by connections while a read is in progress,
+ * so idle connections cost no buffer memory.
+ */
+public class BufferPool {
+    
+    private final int bufferSize;
+    private final ArrayBlockingQueue<ByteBuffer> free;
+    
+    /**
+     * @param bufferSize Size of each buffer in bytes
+     * @param maxPooled Maximum number of buffers kept for reuse
+     */
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<>(maxPooled);
+    }
+    
+    /**
+     * Take a cleared buffer from the pool, allocating one if the pool is empty
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+    
+    /**
+     * Return a buffer to the pool; dropped if the pool is full
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer != null && buffer.capacity() == bufferSize) {
+            free.offer(buffer);
+        }
+    }
+    
+    public int getBufferSize() { return bufferSize; }
+    
+    public int getPooledCount() { return free.size(); }
+}
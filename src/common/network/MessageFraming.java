@@ -0,0 +1,108 @@
+package common.network;
+
+import common.codec.Codec;
+import common.codec.Codecs;
+import common.utils.Constants;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Length-prefixed framing of Request/Response messages on a stream
+ * Frame layout: [int length][long correlationId][encoded message]
+ * The length covers only the encoded message. A response carries the
+ * correlation id of the request it answers, so requests can be pipelined
+ * and answered out of order.
+ */
+public final class MessageFraming {
+
+    public static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+    private MessageFraming() {}
+
+    /**
+     * Get the codec configured for network messages
+     */
+    public static Codec wireCodec() {
+        return Codecs.forName(Constants.WIRE_CODEC);
+    }
+
+    /**
+     * Write one message as a frame
+     * @param out The stream to write to
+     * @param correlationId Id echoed back in the matching response
+     * @param message The message to send
+     * @param codec The codec used to encode the message
+     */
+    public static void writeMessage(DataOutputStream out, long correlationId, Object message, Codec codec) throws IOException {
+        writeFrame(out, correlationId, codec.encode(message));
+    }
+
+    /**
+     * Write already encoded message bytes as a frame
+     */
+    public static void writeFrame(DataOutputStream out, long correlationId, byte[] payload) throws IOException {
+        out.writeInt(payload.length);
+        out.writeLong(correlationId);
+        out.write(payload);
+        out.flush();
+    }
+
+    /**
+     * Build a complete frame in a buffer ready for a channel write
+     */
+    public static ByteBuffer toBuffer(long correlationId, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        frame.putInt(payload.length).putLong(correlationId).put(payload).flip();
+        return frame;
+    }
+
+    /**
+     * Read one frame
+     * @param in The stream to read from
+     * @return The frame
+     */
+    public static Frame readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        checkLength(length);
+        long correlationId = in.readLong();
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return new Frame(correlationId, payload);
+    }
+
+    /**
+     * Reject frame lengths that are negative or above Constants.MAX_FRAME_SIZE
+     */
+    public static void checkLength(int length) throws IOException {
+        if (length < 0 || length > Constants.MAX_FRAME_SIZE) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+    }
+
+    /**
+     * One received frame
+     */
+    public static final class Frame {
+        private final long correlationId;
+        private final byte[] payload;
+
+        public Frame(long correlationId, byte[] payload) {
+            this.correlationId = correlationId;
+            this.payload = payload;
+        }
+
+        public long getCorrelationId() { return correlationId; }
+
+        public byte[] getPayload() { return payload; }
+
+        /**
+         * Decode the payload with whichever codec wrote it
+         */
+        public Object decode() throws IOException {
+            return Codecs.decode(payload);
+        }
+    }
+}
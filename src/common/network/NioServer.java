@@ -0,0 +1,554 @@
+package common.network;
+
+import common.codec.Codec;
+import common.utils.Constants;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Selector-based non-blocking server hosting several services
+ * One event-loop thread accepts, reads and writes for every port.
+ * Complete frames are decoded and dispatched on a small worker pool,
+ * so a connection only costs a socket and a little state while idle.
+ * Clients may pipeline requests: up to Constants.MAX_PIPELINED_REQUESTS
+ * frames of one connection are handled at once and answered in completion
+ * order, matched by correlation id.
+ *
+ * Frame layout: [int length][long correlationId][encoded Request] (see MessageFraming)
+ */
+public class NioServer implements Server {
+
+    private final Codec codec;
+    private final BufferPool bufferPool;
+    private final ExecutorService workers;
+    private final Map<Integer, RequestDispatcher> services = new LinkedHashMap<>();
+    private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    private Selector selector;
+    private Thread eventLoop;
+    private volatile boolean running;
+
+    public NioServer() {
+        this(MessageFraming.wireCodec(), Constants.SERVER_WORKER_THREADS);
+    }
+
+    /**
+     * @param codec Codec used to encode responses
+     * @param workerThreads Number of threads running request handlers
+     */
+    public NioServer(Codec codec, int workerThreads) {
+        this.codec = codec;
+        this.bufferPool = new BufferPool(Constants.IO_BUFFER_SIZE, Constants.BUFFER_POOL_SIZE);
+        this.workers = Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread t = new Thread(r, "nio-worker");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void addService(int port, RequestDispatcher dispatcher) {
+        if (running) {
+            throw new IllegalStateException("Server already started");
+        }
+        services.put(port, dispatcher);
+    }
+
+    /**
+     * Bind all registered ports and start the event loop
+     */
+    @Override
+    public void start() throws IOException {
+        selector = Selector.open();
+        for (Map.Entry<Integer, RequestDispatcher> service : services.entrySet()) {
+            ServerSocketChannel server = ServerSocketChannel.open();
+            server.configureBlocking(false);
+            server.bind(new InetSocketAddress(service.getKey()), Constants.SERVER_BACKLOG);
+            server.register(selector, SelectionKey.OP_ACCEPT, service.getValue());
+            System.out.println("🚀 " + service.getValue().getServiceName() + " listening on port " + service.getKey());
+        }
+        running = true;
+        eventLoop = new Thread(this::runEventLoop, "nio-event-loop");
+        eventLoop.start();
+    }
+
+    /**
+     * Stop accepting, close every connection and stop the workers
+     */
+    @Override
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        try {
+            if (eventLoop != null) {
+                eventLoop.join(5000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+        System.out.println("🛑 Server stopped");
+    }
+
+    public int getOpenConnections() { return openConnections.get(); }
+
+    private void runEventLoop() {
+        try {
+            while (running) {
+                selector.select();
+                flushPendingWrites();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept(key);
+                        } else {
+                            if (key.isReadable()) {
+                                read((Connection) key.attachment());
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                flush((Connection) key.attachment());
+                            }
+                        }
+                    } catch (IOException e) {
+                        if (key.attachment() instanceof Connection) {
+                            close((Connection) key.attachment());
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("❌ Event loop failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void accept(SelectionKey key) throws IOException {
+        ServerSocketChannel server = (ServerSocketChannel) key.channel();
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel, (RequestDispatcher) key.attachment());
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            openConnections.incrementAndGet();
+        }
+    }
+
+    private void read(Connection c) throws IOException {
+        if (c.in == null) {
+            c.in = bufferPool.acquire();
+        }
+        int n = c.channel.read(c.in);
+        if (n < 0) {
+            close(c);
+            return;
+        }
+        parse(c);
+    }
+
+    /**
+     * Cut complete frames out of the read buffer and queue them
+     * Parsing stops, and reading is paused, while the connection has
+     * Constants.MAX_QUEUED_REQUESTS frames waiting or more than
+     * Constants.MAX_OUTBOUND_BYTES of responses unread, so a client that
+     * sends faster than it is served is held back by TCP instead of growing
+     * the queues. resumeReading() carries on from the buffered bytes.
+     */
+    private void parse(Connection c) throws IOException {
+        c.in.flip();
+        while (!pauseIfOverloaded(c)) {
+            if (c.frame == null) {
+                if (c.in.remaining() < MessageFraming.HEADER_SIZE) {
+                    break;
+                }
+                c.frameLength = c.in.getInt();
+                MessageFraming.checkLength(c.frameLength);
+                c.frameCorrelationId = c.in.getLong();
+                // Grow with the bytes that arrive rather than trusting the header
+                c.frame = ByteBuffer.allocate(Math.min(c.frameLength, Constants.IO_BUFFER_SIZE));
+            }
+            int chunk = Math.min(c.in.remaining(), c.frame.remaining());
+            ByteBuffer slice = c.in.slice();
+            slice.limit(chunk);
+            c.frame.put(slice);
+            c.in.position(c.in.position() + chunk);
+            if (c.frame.position() < c.frameLength) {
+                if (c.frame.hasRemaining()) {
+                    break;
+                }
+                c.frame = grow(c.frame, c.frameLength);
+                continue;
+            }
+            MessageFraming.Frame frame = new MessageFraming.Frame(c.frameCorrelationId, c.frame.array());
+            c.frame = null;
+            submit(c, frame);
+        }
+        c.in.compact();
+        // Give the buffer back while nothing is buffered, so idle connections hold none
+        if (c.in.position() == 0) {
+            bufferPool.release(c.in);
+            c.in = null;
+        }
+        c.key.interestOps(readOps(c) | (c.key.interestOps() & SelectionKey.OP_WRITE));
+    }
+
+    /**
+     * Double a partly filled frame buffer, up to the frame length
+     */
+    private static ByteBuffer grow(ByteBuffer frame, int length) {
+        ByteBuffer bigger = ByteBuffer.allocate((int) Math.min(length, 2L * frame.capacity()));
+        frame.flip();
+        bigger.put(frame);
+        return bigger;
+    }
+
+    /**
+     * Record whether reading must pause for this connection, and return it
+     */
+    private boolean pauseIfOverloaded(Connection c) {
+        synchronized (c) {
+            c.readPaused = c.inbound.size() >= Constants.MAX_QUEUED_REQUESTS
+                    || c.outboundBytes.get() > Constants.MAX_OUTBOUND_BYTES;
+            return c.readPaused;
+        }
+    }
+
+    /**
+     * Pick up a paused connection once its queues have drained
+     */
+    private void resumeReading(Connection c) throws IOException {
+        if (pauseIfOverloaded(c)) {
+            return;
+        }
+        if (c.in != null) {
+            parse(c);
+        } else {
+            c.key.interestOps(c.key.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    private static int readOps(Connection c) {
+        return c.readPaused ? 0 : SelectionKey.OP_READ;
+    }
+
+    /**
+     * Queue a frame for the handlers, starting another worker for this
+     * connection unless it already has the maximum number in flight
+     */
+    private void submit(Connection c, MessageFraming.Frame frame) {
+        synchronized (c) {
+            c.inbound.add(frame);
+            if (c.inFlight >= Constants.MAX_PIPELINED_REQUESTS) {
+                return;
+            }
+            c.inFlight++;
+        }
+        workers.execute(() -> process(c));
+    }
+
+    /**
+     * Handle queued frames until none are left
+     * The in-flight slot is given back however this worker ends, and a
+     * frame whose handling fails still gets an error response.
+     */
+    private void process(Connection c) {
+        boolean released = false;
+        try {
+            while (true) {
+                MessageFraming.Frame frame;
+                synchronized (c) {
+                    frame = c.inbound.poll();
+                    if (c.readPaused && c.inbound.size() == Constants.MAX_QUEUED_REQUESTS / 2) {
+                        // Half drained; let the event loop read again
+                        pendingWrites.add(c);
+                        selector.wakeup();
+                    }
+                    if (frame == null) {
+                        c.inFlight--;
+                        released = true;
+                        return;
+                    }
+                }
+                try {
+                    handle(c, frame);
+                } catch (RuntimeException e) {
+                    System.err.println("❌ Error handling request: " + e);
+                    send(c, frame.getCorrelationId(), Response.error("Internal error: " + e.getMessage()));
+                }
+            }
+        } finally {
+            if (!released) {
+                synchronized (c) {
+                    c.inFlight--;
+                }
+            }
+        }
+    }
+
+    private void handle(Connection c, MessageFraming.Frame frame) {
+        long correlationId = frame.getCorrelationId();
+        Object message;
+        try {
+            message = frame.decode();
+        } catch (IOException | RuntimeException e) {
+            send(c, correlationId, Response.error("Malformed request: " + e.getMessage()));
+            return;
+        }
+        if (!(message instanceof Request)) {
+            send(c, correlationId, Response.error("Expected a Request"));
+            return;
+        }
+        Request request = (Request) message;
+        ResponseCache cache = c.dispatcher.getResponseCache();
+        ResponseCache.Lookup lookup = cache != null ? cache.lookup(request) : null;
+        if (lookup != null && lookup.getPayload() != null) {
+            send(c, correlationId, lookup.getPayload());
+            return;
+        }
+        c.dispatcher.dispatch(request, new Reply(c, correlationId, lookup));
+    }
+
+    private void send(Connection c, long correlationId, Response response) {
+        send(c, correlationId, response, null);
+    }
+
+    /**
+     * Encode a response and queue it, offering it to the cache on a miss
+     */
+    private void send(Connection c, long correlationId, Response response, ResponseCache.Lookup lookup) {
+        byte[] payload;
+        try {
+            payload = codec.encode(response);
+        } catch (IOException e) {
+            System.err.println("❌ Error encoding response: " + e.getMessage());
+            return;
+        }
+        if (lookup != null) {
+            lookup.offer(response, payload);
+        }
+        send(c, correlationId, payload);
+    }
+
+    /**
+     * Queue an encoded response frame for the event loop
+     */
+    private void send(Connection c, long correlationId, byte[] payload) {
+        ByteBuffer frame = MessageFraming.toBuffer(correlationId, payload);
+        c.outbound.add(frame);
+        c.outboundBytes.addAndGet(frame.remaining());
+        pendingWrites.add(c);
+        selector.wakeup();
+    }
+
+    /**
+     * Send the chunks of a streamed response while the client keeps up
+     * Once the connection has more than Constants.MAX_OUTBOUND_BYTES queued
+     * the rest of the stream is parked on the connection and the worker
+     * returns; flush() resumes it on a worker when the client has read
+     * enough. A slow reader therefore neither makes the server buffer the
+     * whole stream nor holds a worker.
+     */
+    private void pump(Connection c, long correlationId, ResponseStream chunks, ResponseCache.Lookup lookup) {
+        try {
+            while (!c.closed && chunks.hasNext()) {
+                synchronized (c.stalled) {
+                    if (!c.closed && c.outboundBytes.get() > Constants.MAX_OUTBOUND_BYTES) {
+                        c.stalled.add(() -> pump(c, correlationId, chunks, lookup));
+                        return;
+                    }
+                }
+                send(c, correlationId, chunks.next(), lookup);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("❌ Error streaming response: " + e.getMessage());
+            send(c, correlationId, Response.error(e.getMessage()));
+        }
+        chunks.close();
+    }
+
+    /**
+     * Hand parked streams back to the workers
+     * Called when the outbound queue drained below the limit, and on close
+     * so the streams see the closed connection and release their records.
+     */
+    private void resumeStalled(Connection c) {
+        List<Runnable> resumed;
+        synchronized (c.stalled) {
+            if (c.stalled.isEmpty()) {
+                return;
+            }
+            resumed = new ArrayList<>(c.stalled);
+            c.stalled.clear();
+        }
+        for (Runnable stream : resumed) {
+            try {
+                workers.execute(stream);
+            } catch (RejectedExecutionException e) {
+                // Shutting down; finish on this thread so the stream is closed
+                stream.run();
+            }
+        }
+    }
+
+    private void flushPendingWrites() {
+        Connection c;
+        while ((c = pendingWrites.poll()) != null) {
+            try {
+                flush(c);
+            } catch (IOException e) {
+                close(c);
+            }
+        }
+    }
+
+    private void flush(Connection c) throws IOException {
+        if (!c.key.isValid()) {
+            return;
+        }
+        ByteBuffer frame;
+        boolean blocked = false;
+        while ((frame = c.outbound.peek()) != null) {
+            int written = c.channel.write(frame);
+            if (c.outboundBytes.addAndGet(-written) <= Constants.MAX_OUTBOUND_BYTES) {
+                resumeStalled(c);
+            }
+            if (frame.hasRemaining()) {
+                // Socket buffer full; resume when writable
+                blocked = true;
+                break;
+            }
+            c.outbound.poll();
+        }
+        c.key.interestOps(readOps(c) | (blocked ? SelectionKey.OP_WRITE : 0));
+        if (c.readPaused) {
+            resumeReading(c);
+        }
+    }
+
+    private void close(Connection c) {
+        if (c.key != null) {
+            c.key.cancel();
+        }
+        try {
+            c.channel.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        if (c.in != null) {
+            bufferPool.release(c.in);
+            c.in = null;
+        }
+        if (!c.closed) {
+            c.closed = true;
+            openConnections.decrementAndGet();
+            resumeStalled(c);
+        }
+    }
+
+    private void closeAll() {
+        if (selector == null) {
+            return;
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                close((Connection) key.attachment());
+            } else {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    // Ignore on shutdown
+                }
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Ignore on shutdown
+        }
+    }
+
+    /**
+     * Sink for the responses to one request
+     */
+    private final class Reply implements ResponseSink {
+        private final Connection c;
+        private final long correlationId;
+        private final ResponseCache.Lookup lookup;
+
+        Reply(Connection c, long correlationId, ResponseCache.Lookup lookup) {
+            this.c = c;
+            this.correlationId = correlationId;
+            this.lookup = lookup;
+        }
+
+        @Override
+        public void send(Response response) {
+            NioServer.this.send(c, correlationId, response, lookup);
+        }
+
+        @Override
+        public void sendAll(ResponseStream responses) {
+            pump(c, correlationId, responses, lookup);
+        }
+    }
+
+    /**
+     * Per-connection state, owned by the event loop except for the queues
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final RequestDispatcher dispatcher;
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        private final ArrayDeque<MessageFraming.Frame> inbound = new ArrayDeque<>();
+        private SelectionKey key;
+        private ByteBuffer in;
+        private ByteBuffer frame;
+        private int frameLength;
+        private long frameCorrelationId;
+        private int inFlight;
+        // Set while too much is queued; reading resumes once the queues drain
+        private volatile boolean readPaused;
+        private final AtomicLong outboundBytes = new AtomicLong();
+        // Streamed responses waiting for the client to read
+        private final List<Runnable> stalled = new ArrayList<>();
+        private volatile boolean closed;
+
+        Connection(SocketChannel channel, RequestDispatcher dispatcher) {
+            this.channel = channel;
+            this.dispatcher = dispatcher;
+        }
+    }
+}
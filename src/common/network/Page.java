@@ -0,0 +1,41 @@
+package common.network;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page or streamed chunk of records
+ * nextCursor is null on the last page.
+ */
+public class Page implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private List<Object> items;
+    private String nextCursor;
+    
+    public Page() {
+        this.items = new ArrayList<>();
+    }
+    
+    public Page(List<Object> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+    
+    // Getters and Setters
+    public List<Object> getItems() { return items; }
+    public void setItems(List<Object> items) { this.items = items; }
+    
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    
+    @Override
+    public String toString() {
+        return "Page{items=" + items.size() + ", nextCursor='" + nextCursor + "'}";
+    }
+}
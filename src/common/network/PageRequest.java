@@ -0,0 +1,38 @@
+package common.network;
+
+import java.io.Serializable;
+
+/**
+ * Request data for a paginated LIST_* request
+ * Pass the nextCursor of the previous Page to get the following page;
+ * a null cursor starts from the beginning.
+ */
+public class PageRequest implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+    
+    private String cursor;
+    private int limit;
+    
+    public PageRequest() {
+        this.limit = DEFAULT_LIMIT;
+    }
+    
+    public PageRequest(String cursor, int limit) {
+        this.cursor = cursor;
+        this.limit = limit;
+    }
+    
+    public static PageRequest first(int limit) {
+        return new PageRequest(null, limit);
+    }
+    
+    // Getters and Setters
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+    
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+}
@@ -0,0 +1,257 @@
+package common.network;
+
+import common.storage.DataStorage;
+import common.storage.EntityKeys;
+import common.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * Cursor-based pagination and chunked streaming for LIST_* requests
+ *
+ * A cursor is "position:lastKey". The key of the last record sent lets a
+ * page resume at the right record even if records were added or deleted
+ * before it since the previous page.
+ *
+ * The LIST_* handlers read through DataStorage.stream(), so a page or a
+ * streamed chunk only holds its own records in memory.
+ */
+public final class Pagination {
+    
+    private Pagination() {}
+    
+    /**
+     * Cut one page out of a record list
+     * @param records All records, in storage order
+     * @param request Cursor and limit
+     * @return The page, with nextCursor null on the last page
+     */
+    public static Page page(List<?> records, PageRequest request) {
+        int limit = Math.max(1, Math.min(request.getLimit(), PageRequest.MAX_LIMIT));
+        int start = resolveStart(records, request.getCursor());
+        int end = Math.min(records.size(), start + limit);
+        
+        List<Object> items = new ArrayList<>(records.subList(start, end));
+        String nextCursor = end < records.size() ? cursor(end, records.get(end - 1)) : null;
+        return new Page(items, nextCursor);
+    }
+    
+    /**
+     * Read one page of a file through its record stream
+     * Records before the cursor are skipped as they stream past, and the
+     * stream is closed as soon as the page (plus one record to tell whether
+     * more follow) has been read. The file is only searched for the last
+     * record sent when that record is no longer at the cursor's position.
+     * @param storage The storage to read from
+     * @param filename The entity file
+     * @param request Cursor and limit
+     * @return The page, with nextCursor null on the last page
+     */
+    public static Page page(DataStorage storage, String filename, PageRequest request) {
+        int limit = Math.max(1, Math.min(request.getLimit(), PageRequest.MAX_LIMIT));
+        String cursor = request.getCursor();
+        int position = positionOf(cursor);
+        String lastKey = cursor != null ? cursor.substring(cursor.indexOf(':') + 1) : "";
+        try (Stream<Object> records = storage.stream(filename)) {
+            Iterator<Object> it = records.iterator();
+            if (lastKey.isEmpty() || position == 0) {
+                return collect(it, skip(it, position), limit);
+            }
+            // Fast path: nothing moved since the previous page
+            if (skip(it, position - 1) == position - 1 && it.hasNext()
+                    && lastKey.equals(EntityKeys.keyOf(it.next()))) {
+                return collect(it, position, limit);
+            }
+        }
+        // Resume after the last record sent, wherever it is now, keeping the
+        // records from the old position in case it was deleted
+        try (Stream<Object> records = storage.stream(filename)) {
+            Iterator<Object> it = records.iterator();
+            List<Object> fallback = new ArrayList<>(limit);
+            boolean more = false;
+            int index = 0;
+            while (it.hasNext()) {
+                Object record = it.next();
+                index++;
+                if (lastKey.equals(EntityKeys.keyOf(record))) {
+                    return collect(it, index, limit);
+                }
+                if (index > position) {
+                    if (fallback.size() < limit) {
+                        fallback.add(record);
+                    } else {
+                        more = true;
+                    }
+                }
+            }
+            // The last record was deleted; fall back to its old position
+            String nextCursor = more ? cursor(position + fallback.size(), fallback.get(fallback.size() - 1)) : null;
+            return new Page(fallback, nextCursor);
+        }
+    }
+    
+    /**
+     * Send records to a sink in chunks as they are read
+     * Every chunk but the last is sent with status PARTIAL, so at most one
+     * chunk of records is held in memory at a time.
+     * @param records Records in storage order
+     * @param sink Where to send the chunks
+     * @param chunkSize Records per chunk
+     */
+    public static void stream(Iterator<?> records, ResponseSink sink, int chunkSize) {
+        sink.sendAll(new Chunks(records, null, chunkSize));
+    }
+    
+    /**
+     * Chunks of a record stream, read only as each chunk is requested
+     * The chunks own the stream and close it when they are closed.
+     * @param records Records in storage order
+     * @param chunkSize Records per chunk
+     */
+    public static ResponseStream chunks(Stream<?> records, int chunkSize) {
+        return new Chunks(records.iterator(), records, chunkSize);
+    }
+    
+    /**
+     * Handler for a LIST_* type
+     * Returns a Page when the request data is a PageRequest and the whole
+     * list otherwise, so existing clients keep working.
+     * @param storage The storage to read from
+     * @param filename The entity file
+     */
+    public static RequestHandler listHandler(DataStorage storage, String filename) {
+        return request -> {
+            if (request.getData() instanceof PageRequest) {
+                return Response.success(page(storage, filename, (PageRequest) request.getData()));
+            }
+            return Response.success(storage.loadAll(filename));
+        };
+    }
+    
+    /**
+     * Streaming handler for a LIST_* type
+     * @param storage The storage to read from
+     * @param filename The entity file
+     */
+    public static StreamingRequestHandler streamingListHandler(DataStorage storage, String filename) {
+        return (request, sink) -> sink.sendAll(chunks(storage.stream(filename), Constants.STREAM_CHUNK_SIZE));
+    }
+    
+    static String cursor(int position, Object lastRecord) {
+        String key = EntityKeys.keyOf(lastRecord);
+        return position + ":" + (key != null ? key : "");
+    }
+    
+    /**
+     * Skip up to count records, returning how many were skipped
+     */
+    private static int skip(Iterator<Object> records, int count) {
+        int skipped = 0;
+        while (skipped < count && records.hasNext()) {
+            records.next();
+            skipped++;
+        }
+        return skipped;
+    }
+    
+    private static Page collect(Iterator<Object> records, int position, int limit) {
+        List<Object> items = new ArrayList<>(limit);
+        while (items.size() < limit && records.hasNext()) {
+            items.add(records.next());
+        }
+        int end = position + items.size();
+        String nextCursor = records.hasNext() ? cursor(end, items.get(items.size() - 1)) : null;
+        return new Page(items, nextCursor);
+    }
+    
+    /**
+     * Position part of a cursor, 0 for no cursor
+     */
+    private static int positionOf(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        int separator = cursor.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        try {
+            return Math.max(0, Integer.parseInt(cursor.substring(0, separator)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+    
+    private static int resolveStart(List<?> records, String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        int position = Math.min(positionOf(cursor), records.size());
+        String lastKey = cursor.substring(cursor.indexOf(':') + 1);
+        if (lastKey.isEmpty()) {
+            return position;
+        }
+        
+        // Fast path: nothing moved since the previous page
+        if (position > 0 && lastKey.equals(EntityKeys.keyOf(records.get(position - 1)))) {
+            return position;
+        }
+        for (int i = 0; i < records.size(); i++) {
+            if (lastKey.equals(EntityKeys.keyOf(records.get(i)))) {
+                return i + 1;
+            }
+        }
+        // The last record was deleted; fall back to its old position
+        return position;
+    }
+    
+    private static final class Chunks implements ResponseStream {
+        private final Iterator<?> records;
+        private final Stream<?> source;
+        private final int chunkSize;
+        private int position;
+        private boolean done;
+        
+        Chunks(Iterator<?> records, Stream<?> source, int chunkSize) {
+            this.records = records;
+            this.source = source;
+            this.chunkSize = chunkSize;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return !done;
+        }
+        
+        @Override
+        public Response next() {
+            if (done) {
+                throw new NoSuchElementException();
+            }
+            List<Object> chunk = new ArrayList<>(chunkSize);
+            Object last = null;
+            while (chunk.size() < chunkSize && records.hasNext()) {
+                last = records.next();
+                chunk.add(last);
+                position++;
+            }
+            if (records.hasNext()) {
+                return new Response(Constants.PARTIAL, null, new Page(chunk, cursor(position, last)));
+            }
+            done = true;
+            return Response.success(new Page(chunk, null));
+        }
+        
+        @Override
+        public void close() {
+            done = true;
+            if (source != null) {
+                source.close();
+            }
+        }
+    }
+}
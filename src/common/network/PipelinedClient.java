@@ -0,0 +1,188 @@
+package common.network;
+
+import common.codec.Codec;
+import common.utils.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Client that pipelines requests over one connection
+ * send() writes the request and returns immediately; a reader thread
+ * completes the returned future when the response with the matching
+ * correlation id arrives, in whatever order the server answers.
+ * stream() delivers the PARTIAL chunks of a streamed response as they arrive.
+ */
+public class PipelinedClient implements Closeable {
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private final Codec codec;
+    private final AtomicLong nextCorrelationId = new AtomicLong(1);
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final Thread reader;
+    private volatile boolean closed;
+
+    /**
+     * Connect to a service
+     * @param host Server host (usually Constants.SERVER_HOST)
+     * @param port Service port from Constants
+     */
+    public PipelinedClient(String host, int port) throws IOException {
+        this(host, port, MessageFraming.wireCodec());
+    }
+
+    public PipelinedClient(String host, int port, Codec codec) throws IOException {
+        this.codec = codec;
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.reader = new Thread(this::readLoop, "client-reader-" + port);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Send a request without waiting for earlier replies
+     * @param request The request
+     * @return Future completed with the response
+     */
+    public CompletableFuture<Response> send(Request request) {
+        return stream(request, null);
+    }
+
+    /**
+     * Send a request whose response may be streamed in chunks
+     * @param request The request
+     * @param onChunk Called on the reader thread for every PARTIAL chunk (may be null)
+     * @return Future completed with the final response
+     */
+    public CompletableFuture<Response> stream(Request request, Consumer<Response> onChunk) {
+        long correlationId = nextCorrelationId.getAndIncrement();
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        pending.put(correlationId, new Pending(future, onChunk));
+        try {
+            byte[] payload = codec.encode(request);
+            synchronized (out) {
+                MessageFraming.writeFrame(out, correlationId, payload);
+            }
+        } catch (IOException e) {
+            pending.remove(correlationId);
+            future.completeExceptionally(e);
+        }
+        if (closed) {
+            failPending(new IOException("Connection closed"));
+        }
+        return future;
+    }
+
+    /**
+     * Send a batch of sub-requests in one frame
+     * @param batch The batch
+     * @return Future completed with the batch response
+     */
+    public CompletableFuture<BatchResponse> sendBatch(BatchRequest batch) {
+        return send(batch).thenApply(response -> {
+            if (response instanceof BatchResponse) {
+                return (BatchResponse) response;
+            }
+            BatchResponse failed = new BatchResponse();
+            failed.setStatus(response.getStatus());
+            failed.setMessage(response.getMessage());
+            return failed;
+        });
+    }
+
+    /**
+     * Send a request and wait for its response
+     */
+    public Response call(Request request) throws IOException {
+        try {
+            return send(request).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for response", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Request failed", e.getCause());
+        }
+    }
+
+    /**
+     * Number of requests sent but not yet answered
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        socket.close();
+        failPending(new IOException("Connection closed"));
+    }
+
+    private void readLoop() {
+        try {
+            while (!closed) {
+                MessageFraming.Frame frame = MessageFraming.readFrame(in);
+                Pending request = pending.get(frame.getCorrelationId());
+                if (request == null) {
+                    continue;
+                }
+                Object message = frame.decode();
+                if (!(message instanceof Response)) {
+                    pending.remove(frame.getCorrelationId());
+                    request.future.completeExceptionally(new IOException("Expected a Response"));
+                    continue;
+                }
+                Response response = (Response) message;
+                if (Constants.PARTIAL.equals(response.getStatus())) {
+                    if (request.onChunk != null) {
+                        request.onChunk.accept(response);
+                    }
+                } else {
+                    pending.remove(frame.getCorrelationId());
+                    request.future.complete(response);
+                }
+            }
+        } catch (IOException e) {
+            closed = true;
+            failPending(e);
+        }
+    }
+
+    private void failPending(IOException cause) {
+        for (Long correlationId : pending.keySet()) {
+            Pending request = pending.remove(correlationId);
+            if (request != null) {
+                request.future.completeExceptionally(cause);
+            }
+        }
+    }
+
+    /**
+     * A request waiting for its final response
+     */
+    private static final class Pending {
+        private final CompletableFuture<Response> future;
+        private final Consumer<Response> onChunk;
+
+        Pending(CompletableFuture<Response> future, Consumer<Response> onChunk) {
+            this.future = future;
+            this.onChunk = onChunk;
+        }
+    }
+}
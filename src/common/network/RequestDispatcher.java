@@ -0,0 +1,268 @@
+package common.network;
+
+import common.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Routes requests to handlers by Request.getType()
+ * One dispatcher is registered per service port. Requests dispatched to a
+ * sink each hold one of the service's permits while they run (see
+ * setMaxConcurrentRequests). A BatchRequest is split into its
+ * sub-requests, which run on the batch executor with at most
+ * Constants.MAX_PIPELINED_REQUESTS of one batch at a time, each holding a
+ * permit, so a batch is bound by the same service limit as single requests.
+ * Streaming handlers send PARTIAL chunks before their final response.
+ * With a ResponseCache set, the servers answer cached read types from it
+ * and every handled request invalidates the files its type writes.
+ */
+public class RequestDispatcher {
+    
+    private final String serviceName;
+    private final Map<String, RequestHandler> handlers = new ConcurrentHashMap<>();
+    private final Map<String, StreamingRequestHandler> streamingHandlers = new ConcurrentHashMap<>();
+    private volatile Executor batchExecutor;
+    private volatile Semaphore permits = new Semaphore(Constants.SERVICE_MAX_CONCURRENT_REQUESTS);
+    private volatile ResponseCache responseCache;
+    
+    public RequestDispatcher(String serviceName) {
+        this.serviceName = serviceName;
+    }
+    
+    /**
+     * Set the executor used for the sub-requests of a batch
+     * Defaults to virtual threads (or a cached pool before Java 21).
+     */
+    public RequestDispatcher setBatchExecutor(Executor batchExecutor) {
+        this.batchExecutor = batchExecutor;
+        return this;
+    }
+    
+    /**
+     * Limit how many requests of this service run at once
+     * Defaults to Constants.SERVICE_MAX_CONCURRENT_REQUESTS. Set it before
+     * the service starts serving.
+     */
+    public RequestDispatcher setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.permits = new Semaphore(maxConcurrentRequests);
+        return this;
+    }
+    
+    /**
+     * Set the cache the servers answer read requests of this service from
+     * @param responseCache The cache, or null to disable caching
+     */
+    public RequestDispatcher setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+    
+    /**
+     * Register the handler for a request type
+     * @param type One of the request type constants
+     * @param handler The handler
+     * @return this dispatcher, for chaining
+     */
+    public RequestDispatcher register(String type, RequestHandler handler) {
+        handlers.put(type, handler);
+        streamingHandlers.remove(type);
+        return this;
+    }
+    
+    /**
+     * Register a streaming handler for a request type
+     * @param type One of the request type constants
+     * @param handler The handler
+     * @return this dispatcher, for chaining
+     */
+    public RequestDispatcher registerStreaming(String type, StreamingRequestHandler handler) {
+        streamingHandlers.put(type, handler);
+        handlers.remove(type);
+        return this;
+    }
+    
+    /**
+     * Dispatch a request, sending every response frame to the sink
+     * Used by the server runtimes so streaming handlers can send chunks.
+     * @param request The request
+     * @param sink Where to send the responses
+     */
+    public void dispatch(Request request, ResponseSink sink) {
+        if (request instanceof BatchRequest) {
+            // Sub-requests take their own permits
+            sink.send(dispatchBatch((BatchRequest) request));
+            return;
+        }
+        Semaphore limit = permits;
+        try {
+            limit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sink.send(Response.error("Server shutting down"));
+            return;
+        }
+        try {
+            dispatchPermitted(request, sink);
+        } finally {
+            limit.release();
+        }
+    }
+    
+    private void dispatchPermitted(Request request, ResponseSink sink) {
+        StreamingRequestHandler streaming = streamingHandlers.get(request.getType());
+        if (streaming == null) {
+            sink.send(dispatch(request));
+            return;
+        }
+        try {
+            streaming.handle(request, sink);
+        } catch (Exception e) {
+            System.err.println("❌ " + serviceName + " failed on " + request.getType() + ": " + e.getMessage());
+            sink.send(Response.error(e.getMessage()));
+        } finally {
+            written(request);
+        }
+    }
+    
+    /**
+     * Run the handler registered for the request's type
+     * Handler failures are turned into error responses. No permit is taken
+     * here, so a batch worker already holding one does not wait for a second.
+     * @param request The request
+     * @return The handler's response, or an error response
+     */
+    public Response dispatch(Request request) {
+        if (request instanceof BatchRequest) {
+            return dispatchBatch((BatchRequest) request);
+        }
+        if (streamingHandlers.containsKey(request.getType())) {
+            return collect(request);
+        }
+        RequestHandler handler = handlers.get(request.getType());
+        if (handler == null) {
+            return Response.error("Unknown request type: " + request.getType());
+        }
+        try {
+            Response response = handler.handle(request);
+            return response != null ? response : Response.error("No response from handler");
+        } catch (Exception e) {
+            System.err.println("❌ " + serviceName + " failed on " + request.getType() + ": " + e.getMessage());
+            return Response.error(e.getMessage());
+        } finally {
+            written(request);
+        }
+    }
+    
+    /**
+     * Invalidate cached responses built from the files this request type writes
+     * Runs after the handler, so a response built before the write cannot be stored.
+     */
+    private void written(Request request) {
+        ResponseCache cache = responseCache;
+        if (cache != null) {
+            cache.written(request.getType());
+        }
+    }
+    
+    /**
+     * Run the sub-requests of a batch concurrently
+     * A few workers per batch take sub-requests from a queue, each under a
+     * service permit. Sub-responses are collected in completion order.
+     */
+    private Response dispatchBatch(BatchRequest batch) {
+        BatchResponse batchResponse = new BatchResponse();
+        List<BatchRequest.Item> items = batch.getItems();
+        if (items == null) {
+            return batchResponse;
+        }
+        Queue<BatchRequest.Item> queue = new ConcurrentLinkedQueue<>();
+        for (BatchRequest.Item item : items) {
+            Request sub = item != null ? item.getRequest() : null;
+            if (sub == null) {
+                addItem(batchResponse, item != null ? item.getCorrelationId() : 0, Response.error("Missing request"));
+                continue;
+            }
+            if (sub instanceof BatchRequest) {
+                addItem(batchResponse, item.getCorrelationId(), Response.error("Nested batches are not supported"));
+                continue;
+            }
+            if (sub.getSessionId() == null) {
+                sub.setSessionId(batch.getSessionId());
+            }
+            queue.add(item);
+        }
+        int workers = Math.min(queue.size(), Constants.MAX_PIPELINED_REQUESTS);
+        List<CompletableFuture<Void>> pending = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            pending.add(CompletableFuture.runAsync(() -> drain(queue, batchResponse), executor()));
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        return batchResponse;
+    }
+    
+    private void drain(Queue<BatchRequest.Item> queue, BatchResponse batchResponse) {
+        BatchRequest.Item item;
+        while ((item = queue.poll()) != null) {
+            Semaphore limit = permits;
+            try {
+                limit.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                addItem(batchResponse, item.getCorrelationId(), Response.error("Server shutting down"));
+                continue;
+            }
+            try {
+                addItem(batchResponse, item.getCorrelationId(), dispatch(item.getRequest()));
+            } finally {
+                limit.release();
+            }
+        }
+    }
+    
+    /**
+     * Run a streaming handler and merge its chunks into one response
+     * Runs under the caller's permit, if any, like the other handlers.
+     */
+    private Response collect(Request request) {
+        List<Object> items = new ArrayList<>();
+        Response[] last = new Response[1];
+        dispatchPermitted(request, response -> {
+            if (response.getData() instanceof Page) {
+                items.addAll(((Page) response.getData()).getItems());
+            }
+            last[0] = response;
+        });
+        Response result = last[0];
+        if (result != null && Constants.SUCCESS.equals(result.getStatus())) {
+            result.setData(new Page(items, null));
+        }
+        return result;
+    }
+    
+    private static void addItem(BatchResponse batchResponse, long correlationId, Response response) {
+        synchronized (batchResponse) {
+            batchResponse.add(correlationId, response);
+        }
+    }
+    
+    private Executor executor() {
+        Executor executor = batchExecutor;
+        return executor != null ? executor : DefaultBatchExecutor.INSTANCE;
+    }
+    
+    public String getServiceName() { return serviceName; }
+    
+    public ResponseCache getResponseCache() { return responseCache; }
+    
+    private static final class DefaultBatchExecutor {
+        static final Executor INSTANCE = VirtualThreadServer.newVirtualThreadExecutor();
+    }
+}
@@ -0,0 +1,15 @@
+package common.network;
+
+/**
+ * Handler for one request type on a service
+ */
+@FunctionalInterface
+public interface RequestHandler {
+    
+    /**
+     * Handle a request
+     * @param request The incoming request
+     * @return The response to send back
+     */
+    Response handle(Request request) throws Exception;
+}
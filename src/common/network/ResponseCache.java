@@ -0,0 +1,638 @@
+package common.network;
+
+import common.storage.ObservableStorage;
+import common.storage.StorageListener;
+import common.utils.Constants;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Server-side cache of encoded responses to read requests
+ * Responses are keyed by request type plus a normalized form of the request
+ * data, and stored as the bytes the server's wire codec produced, so a hit
+ * skips the handler, the storage and the encoding. Only SUCCESS responses
+ * of non-streamed requests are stored.
+ *
+ * Every declared read type names the entity files its responses are built
+ * from. Each file has a generation counter that is bumped by the write
+ * request types declared for it (see RequestDispatcher.setResponseCache) and,
+ * when the cache is added as a listener of an ObservableStorage, by every
+ * write to the file. An entry is only served while the generations it was
+ * built under are current, and a response is not stored if a write landed
+ * while it was being built.
+ *
+ * Entries live in LRU segments bounded by entry count and bytes. When a
+ * segment is full a new entry is only admitted if it has been requested
+ * more often than the entry it would evict (TinyLFU), so a burst of
+ * one-off requests cannot flush the hot entries.
+ *
+ * One cache belongs to one server, since the stored bytes are in that
+ * server's wire codec.
+ */
+public class ResponseCache implements StorageListener {
+
+    private static final int SEGMENTS = 16;
+
+    private final Map<String, Rule> reads = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong[]> writes = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public ResponseCache() {
+        this(Constants.RESPONSE_CACHE_MAX_ENTRIES, Constants.RESPONSE_CACHE_MAX_BYTES);
+    }
+
+    /**
+     * @param maxEntries Maximum number of cached responses
+     * @param maxBytes Maximum total size of the cached responses
+     */
+    public ResponseCache(int maxEntries, long maxBytes) {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(Math.max(1, maxEntries / SEGMENTS), Math.max(1, maxBytes / SEGMENTS));
+        }
+    }
+
+    /**
+     * Create a cache for the standard read and write request types
+     * Module, exam, batch and lecturer views are shared by every client.
+     * The per-student module views (VIEW_AVAILABLE_MODULES and friends) are
+     * only cached when a resolver is given, since without request data
+     * their response depends on the session's student.
+     *
+     * The cache listens to the storage as well, so writes that do not come
+     * from a request of a declared write type (such as registrations that
+     * RegistrationEngine flushes in the background) still invalidate it.
+     * @param storage Storage the cached responses are read from
+     * @param studentIdResolver Maps a session id to the logged-in student id (may be null)
+     */
+    public static ResponseCache withDefaults(ObservableStorage storage, Function<String, String> studentIdResolver) {
+        ResponseCache cache = new ResponseCache()
+                .cache(Constants.VIEW_MODULE, Constants.MODULES_FILE)
+                .cache(Constants.LIST_MODULES, Constants.MODULES_FILE)
+                .cache(Constants.VIEW_EXAM, Constants.EXAMS_FILE)
+                .cache(Constants.LIST_EXAMS, Constants.EXAMS_FILE)
+                .cache(Constants.GET_MODULE_EXAMS, Constants.EXAMS_FILE)
+                .cache(Constants.GET_EXAM_SCHEDULE, Constants.EXAMS_FILE, Constants.MODULES_FILE)
+                .cache(Constants.VIEW_BATCH, Constants.BATCHES_FILE)
+                .cache(Constants.LIST_BATCHES, Constants.BATCHES_FILE)
+                .cache(Constants.VIEW_LECTURER, Constants.LECTURERS_FILE)
+                .cache(Constants.LIST_LECTURERS, Constants.LECTURERS_FILE)
+                .invalidatedBy(Constants.ADD_MODULE, Constants.MODULES_FILE)
+                .invalidatedBy(Constants.UPDATE_MODULE, Constants.MODULES_FILE)
+                .invalidatedBy(Constants.DELETE_MODULE, Constants.MODULES_FILE)
+                .invalidatedBy(Constants.ADD_EXAM, Constants.EXAMS_FILE)
+                .invalidatedBy(Constants.UPDATE_EXAM, Constants.EXAMS_FILE)
+                .invalidatedBy(Constants.DELETE_EXAM, Constants.EXAMS_FILE)
+                .invalidatedBy(Constants.GENERATE_EXAM_SCHEDULE, Constants.EXAMS_FILE)
+                .invalidatedBy(Constants.ADD_BATCH, Constants.BATCHES_FILE)
+                .invalidatedBy(Constants.UPDATE_BATCH, Constants.BATCHES_FILE)
+                .invalidatedBy(Constants.DELETE_BATCH, Constants.BATCHES_FILE, Constants.STUDENTS_FILE)
+                .invalidatedBy(Constants.ADD_STUDENTS_TO_BATCH, Constants.BATCHES_FILE, Constants.STUDENTS_FILE)
+                .invalidatedBy(Constants.ADD_LECTURER, Constants.LECTURERS_FILE)
+                .invalidatedBy(Constants.UPDATE_LECTURER, Constants.LECTURERS_FILE)
+                .invalidatedBy(Constants.DELETE_LECTURER, Constants.LECTURERS_FILE, Constants.MODULES_FILE)
+                .invalidatedBy(Constants.ADD_STUDENT, Constants.STUDENTS_FILE, Constants.BATCHES_FILE)
+                .invalidatedBy(Constants.UPDATE_STUDENT, Constants.STUDENTS_FILE, Constants.BATCHES_FILE)
+                .invalidatedBy(Constants.DELETE_STUDENT, Constants.STUDENTS_FILE, Constants.BATCHES_FILE,
+                        Constants.REGISTRATIONS_FILE)
+                .invalidatedBy(Constants.REGISTER_MODULE, Constants.REGISTRATIONS_FILE, Constants.STUDENTS_FILE)
+                .invalidatedBy(Constants.DROP_MODULE, Constants.REGISTRATIONS_FILE, Constants.STUDENTS_FILE);
+        if (studentIdResolver != null) {
+            String[] files = {
+                    Constants.MODULES_FILE, Constants.BATCHES_FILE,
+                    Constants.STUDENTS_FILE, Constants.REGISTRATIONS_FILE
+            };
+            cache.cachePerUser(Constants.GET_STUDENT_MODULES, studentIdResolver, files)
+                    .cachePerUser(Constants.GET_AVAILABLE_MODULES, studentIdResolver, files)
+                    .cacheForSession(Constants.VIEW_REGISTERED_MODULES, studentIdResolver, files)
+                    .cacheForSession(Constants.VIEW_AVAILABLE_MODULES, studentIdResolver, files);
+        }
+        storage.addListener(cache);
+        return cache;
+    }
+
+    /**
+     * Cache responses of a read type whose response only depends on the request data
+     * @param type The read request type
+     * @param files Entity files the responses are built from
+     * @return this cache, for chaining
+     */
+    public ResponseCache cache(String type, String... files) {
+        reads.put(type, new Rule(type, generationsOf(files), null, false));
+        return this;
+    }
+
+    /**
+     * Cache responses of a read type that answers for the session's user when
+     * the request carries no data
+     * Such requests are keyed by the resolved user id, and are not cached
+     * when the session does not resolve.
+     * @param type The read request type
+     * @param userResolver Maps a session id to a user id, or to null
+     * @param files Entity files the responses are built from
+     * @return this cache, for chaining
+     */
+    public ResponseCache cachePerUser(String type, Function<String, String> userResolver, String... files) {
+        reads.put(type, new Rule(type, generationsOf(files), userResolver, false));
+        return this;
+    }
+
+    /**
+     * Cache responses of a read type that always answers for the session's user
+     * Request data is ignored, as the handler ignores it; requests are keyed
+     * by the resolved user id and not cached when the session does not resolve.
+     * @param type The read request type
+     * @param userResolver Maps a session id to a user id, or to null
+     * @param files Entity files the responses are built from
+     * @return this cache, for chaining
+     */
+    public ResponseCache cacheForSession(String type, Function<String, String> userResolver, String... files) {
+        reads.put(type, new Rule(type, generationsOf(files), userResolver, true));
+        return this;
+    }
+
+    /**
+     * Declare the entity files a write request type changes
+     * @param type The write request type
+     * @param files Entity files the handler writes
+     * @return this cache, for chaining
+     */
+    public ResponseCache invalidatedBy(String type, String... files) {
+        writes.put(type, generationsOf(files));
+        return this;
+    }
+
+    /**
+     * Look a request up
+     * @param request The request
+     * @return null if the request type is not cached or its data cannot be
+     *         keyed; otherwise a lookup whose payload is the cached response,
+     *         or null on a miss (then pass the response to Lookup.offer)
+     */
+    public Lookup lookup(Request request) {
+        if (request == null || request instanceof BatchRequest) {
+            return null;
+        }
+        Rule rule = reads.get(request.getType());
+        if (rule == null) {
+            return null;
+        }
+        String key = rule.keyOf(request);
+        if (key == null) {
+            return null;
+        }
+        long[] snapshot = rule.snapshot();
+        Segment segment = segmentFor(key);
+        byte[] payload = segment.get(key, snapshot);
+        Stats typeStats = statsOf(rule.type);
+        if (payload != null) {
+            typeStats.hits.increment();
+        } else {
+            typeStats.misses.increment();
+        }
+        return new Lookup(rule, key, snapshot, segment, payload);
+    }
+
+    /**
+     * Invalidate the files a write request type changes
+     * Called by RequestDispatcher after the handler of any request has run.
+     * @param type The request type
+     */
+    public void written(String type) {
+        AtomicLong[] files = writes.get(type);
+        if (files != null) {
+            for (AtomicLong generation : files) {
+                generation.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Invalidate every response built from a file
+     * @param filename The entity file
+     */
+    public void invalidate(String filename) {
+        AtomicLong generation = generations.get(filename);
+        if (generation != null) {
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drop every cached response (hit statistics are kept)
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    // Storage events
+
+    @Override
+    public void onSave(String filename, Object obj) {
+        invalidate(filename);
+    }
+
+    @Override
+    public void onUpdate(String filename, Object oldObj, Object newObj) {
+        invalidate(filename);
+    }
+
+    @Override
+    public void onDelete(String filename, String id) {
+        invalidate(filename);
+    }
+
+    @Override
+    public void onReset(String filename) {
+        invalidate(filename);
+    }
+
+    // Statistics
+
+    /**
+     * Fraction of lookups of a request type answered from the cache, 0 before any lookup
+     */
+    public double getHitRatio(String type) {
+        Stats typeStats = stats.get(type);
+        return typeStats != null ? typeStats.ratio() : 0.0;
+    }
+
+    /**
+     * Hit ratio of every request type looked up so far, by type
+     */
+    public Map<String, Double> getHitRatios() {
+        Map<String, Double> ratios = new TreeMap<>();
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            ratios.put(entry.getKey(), entry.getValue().ratio());
+        }
+        return ratios;
+    }
+
+    public long getHits(String type) {
+        Stats typeStats = stats.get(type);
+        return typeStats != null ? typeStats.hits.sum() : 0;
+    }
+
+    public long getMisses(String type) {
+        Stats typeStats = stats.get(type);
+        return typeStats != null ? typeStats.misses.sum() : 0;
+    }
+
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long getSizeInBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Print the hit ratio of every request type
+     */
+    public void printStats() {
+        System.out.println("📊 Response cache: " + getSize() + " entries, " + getSizeInBytes() + " bytes");
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(stats).entrySet()) {
+            Stats typeStats = entry.getValue();
+            System.out.printf("   %-24s %6.1f%% (%d hits, %d misses)%n", entry.getKey(),
+                    typeStats.ratio() * 100, typeStats.hits.sum(), typeStats.misses.sum());
+        }
+    }
+
+    private AtomicLong[] generationsOf(String[] files) {
+        AtomicLong[] result = new AtomicLong[files.length];
+        for (int i = 0; i < files.length; i++) {
+            result[i] = generations.computeIfAbsent(files[i], f -> new AtomicLong());
+        }
+        return result;
+    }
+
+    private Stats statsOf(String type) {
+        Stats typeStats = stats.get(type);
+        return typeStats != null ? typeStats : stats.computeIfAbsent(type, t -> new Stats());
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Append a canonical form of request data to the key
+     * Lists keep their order; sets and maps are sorted, so equal payloads
+     * built in a different order share an entry.
+     * @return false if the data holds a type that cannot be keyed
+     */
+    static boolean normalize(Object data, StringBuilder key) {
+        if (data == null) {
+            key.append('-');
+        } else if (data instanceof String) {
+            String s = (String) data;
+            key.append('s').append(s.length()).append(':').append(s);
+        } else if (data instanceof Number || data instanceof Boolean || data instanceof Character) {
+            String s = data.toString();
+            key.append(data.getClass().getSimpleName()).append(s.length()).append(':').append(s);
+        } else if (data instanceof Enum) {
+            String s = ((Enum<?>) data).name();
+            key.append('e').append(s.length()).append(':').append(s);
+        } else if (data instanceof PageRequest) {
+            PageRequest page = (PageRequest) data;
+            key.append('p').append(page.getLimit()).append(':');
+            return normalize(page.getCursor(), key);
+        } else if (data instanceof List) {
+            key.append('[');
+            for (Object item : (List<?>) data) {
+                if (!normalize(item, key)) {
+                    return false;
+                }
+            }
+            key.append(']');
+        } else if (data instanceof Set) {
+            Set<String> items = new TreeSet<>();
+            for (Object item : (Set<?>) data) {
+                StringBuilder itemKey = new StringBuilder();
+                if (!normalize(item, itemKey)) {
+                    return false;
+                }
+                items.add(itemKey.toString());
+            }
+            key.append('{');
+            items.forEach(key::append);
+            key.append('}');
+        } else if (data instanceof Map) {
+            Map<String, String> entries = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) data).entrySet()) {
+                StringBuilder entryKey = new StringBuilder();
+                StringBuilder entryValue = new StringBuilder();
+                if (!normalize(entry.getKey(), entryKey) || !normalize(entry.getValue(), entryValue)) {
+                    return false;
+                }
+                entries.put(entryKey.toString(), entryValue.toString());
+            }
+            key.append('<');
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                key.append(entry.getKey()).append('=').append(entry.getValue());
+            }
+            key.append('>');
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Result of a lookup; on a miss, offer the response frames as they are sent
+     */
+    public static final class Lookup {
+        private final Rule rule;
+        private final String key;
+        private final long[] snapshot;
+        private final Segment segment;
+        private final byte[] payload;
+        private boolean streamed;
+
+        private Lookup(Rule rule, String key, long[] snapshot, Segment segment, byte[] payload) {
+            this.rule = rule;
+            this.key = key;
+            this.snapshot = snapshot;
+            this.segment = segment;
+            this.payload = payload;
+        }
+
+        /**
+         * The cached encoded response, or null on a miss
+         */
+        public byte[] getPayload() {
+            return payload;
+        }
+
+        /**
+         * Store a response frame sent for the missed request
+         * Only a single SUCCESS frame is stored; a streamed response (one
+         * with PARTIAL chunks) is never cached, and neither is a response
+         * built while one of its files was written.
+         * @param response The response
+         * @param encoded The response as encoded for the wire
+         */
+        public void offer(Response response, byte[] encoded) {
+            if (payload != null || response == null) {
+                return;
+            }
+            if (Constants.PARTIAL.equals(response.getStatus())) {
+                streamed = true;
+                return;
+            }
+            if (streamed || !Constants.SUCCESS.equals(response.getStatus())) {
+                return;
+            }
+            if (Arrays.equals(snapshot, rule.snapshot())) {
+                segment.put(key, new Entry(encoded, snapshot));
+            }
+        }
+    }
+
+    private static final class Rule {
+        final String type;
+        final AtomicLong[] files;
+        final Function<String, String> userResolver;
+        final boolean sessionOnly;
+
+        Rule(String type, AtomicLong[] files, Function<String, String> userResolver, boolean sessionOnly) {
+            this.type = type;
+            this.files = files;
+            this.userResolver = userResolver;
+            this.sessionOnly = sessionOnly;
+        }
+
+        String keyOf(Request request) {
+            StringBuilder key = new StringBuilder(type).append('\u0000');
+            Object data = request.getData();
+            if ((data == null || sessionOnly) && userResolver != null) {
+                String userId = request.getSessionId() != null ? userResolver.apply(request.getSessionId()) : null;
+                if (userId == null) {
+                    return null;
+                }
+                return key.append('u').append(userId).toString();
+            }
+            return normalize(data, key) ? key.toString() : null;
+        }
+
+        long[] snapshot() {
+            long[] snapshot = new long[files.length];
+            for (int i = 0; i < files.length; i++) {
+                snapshot[i] = files[i].get();
+            }
+            return snapshot;
+        }
+    }
+
+    private static final class Entry {
+        final byte[] payload;
+        final long[] generations;
+
+        Entry(byte[] payload, long[] generations) {
+            this.payload = payload;
+            this.generations = generations;
+        }
+    }
+
+    private static final class Stats {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+
+        double ratio() {
+            long h = hits.sum();
+            long total = h + misses.sum();
+            return total > 0 ? (double) h / total : 0.0;
+        }
+    }
+
+    /**
+     * One LRU segment with its own TinyLFU frequency sketch
+     */
+    private static final class Segment {
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch sketch;
+        private final int maxEntries;
+        private final long maxBytes;
+        private long bytes;
+
+        Segment(int maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+            this.sketch = new FrequencySketch(maxEntries);
+        }
+
+        synchronized byte[] get(String key, long[] snapshot) {
+            sketch.increment(key.hashCode());
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (!Arrays.equals(entry.generations, snapshot)) {
+                // Built from files that have been written since
+                remove(key);
+                return null;
+            }
+            return entry.payload;
+        }
+
+        synchronized void put(String key, Entry entry) {
+            if (entry.payload.length > maxBytes) {
+                return;
+            }
+            remove(key);
+            int frequency = sketch.frequency(key.hashCode());
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (entries.size() >= maxEntries || bytes + entry.payload.length > maxBytes) {
+                Map.Entry<String, Entry> victim = eldest.next();
+                if (frequency <= sketch.frequency(victim.getKey().hashCode())) {
+                    return;
+                }
+                bytes -= victim.getValue().payload.length;
+                eldest.remove();
+            }
+            entries.put(key, entry);
+            bytes += entry.payload.length;
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+
+        private void remove(String key) {
+            Entry old = entries.remove(key);
+            if (old != null) {
+                bytes -= old.payload.length;
+            }
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit request counters
+     * All counters are halved once the sample reaches ten times the segment
+     * capacity, so the estimate follows recent popularity.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] rows = new byte[SEEDS.length][];
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(64, 4 * capacity - 1) << 1);
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = new byte[width];
+            }
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(16, capacity);
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < rows.length; i++) {
+                int index = indexOf(hash, i);
+                if (rows[i][index] < MAX_COUNT) {
+                    rows[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (byte[] row : rows) {
+                    for (int j = 0; j < row.length; j++) {
+                        row[j] >>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < rows.length; i++) {
+                frequency = Math.min(frequency, rows[i][indexOf(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            return (int) (h >>> 32) & mask;
+        }
+    }
+}
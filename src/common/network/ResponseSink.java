@@ -0,0 +1,31 @@
+package common.network;
+
+/**
+ * Destination for the responses of a streaming handler
+ * Every response but the last is sent with status Constants.PARTIAL.
+ */
+@FunctionalInterface
+public interface ResponseSink {
+    
+    /**
+     * Send one response frame to the client
+     * May block while the client is slow to read.
+     * @param response The response or chunk
+     */
+    void send(Response response);
+    
+    /**
+     * Send every response of a stream, then close it
+     * The sink owns the stream from here on: a server may send the rest
+     * later, as the client reads, after this method has returned. This
+     * default sends them all now.
+     * @param responses The responses, every one but the last PARTIAL
+     */
+    default void sendAll(ResponseStream responses) {
+        try (ResponseStream chunks = responses) {
+            while (chunks.hasNext()) {
+                send(chunks.next());
+            }
+        }
+    }
+}
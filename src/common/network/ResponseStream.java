@@ -0,0 +1,17 @@
+package common.network;
+
+import java.util.Iterator;
+
+/**
+ * Responses of a streamed request, produced one at a time as they are sent
+ * Lets a server pull the next chunk only once the client has read the
+ * previous ones. Closing it releases what the chunks are read from.
+ */
+public interface ResponseStream extends Iterator<Response>, AutoCloseable {
+    
+    /**
+     * Release the records the chunks are read from
+     */
+    @Override
+    void close();
+}
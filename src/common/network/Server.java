@@ -0,0 +1,26 @@
+package common.network;
+
+import java.io.IOException;
+
+/**
+ * A server runtime hosting one dispatcher per service port
+ */
+public interface Server {
+    
+    /**
+     * Register a service on a port (call before start)
+     * @param port One of the service ports in Constants
+     * @param dispatcher The dispatcher for that service
+     */
+    void addService(int port, RequestDispatcher dispatcher);
+    
+    /**
+     * Bind all registered ports and start serving
+     */
+    void start() throws IOException;
+    
+    /**
+     * Stop serving and close all connections
+     */
+    void stop();
+}
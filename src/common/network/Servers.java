@@ -0,0 +1,35 @@
+package common.network;
+
+import common.utils.Constants;
+
+/**
+ * Creates the server runtime selected by Constants.SERVER_MODE
+ */
+public final class Servers {
+    
+    public static final String MODE_NIO = "NIO";
+    public static final String MODE_VIRTUAL_THREADS = "VIRTUAL_THREADS";
+    
+    private Servers() {}
+    
+    /**
+     * Create a server for the configured mode
+     */
+    public static Server create() {
+        return create(Constants.SERVER_MODE);
+    }
+    
+    /**
+     * Create a server for the given mode
+     * @param mode MODE_NIO or MODE_VIRTUAL_THREADS
+     */
+    public static Server create(String mode) {
+        if (MODE_NIO.equalsIgnoreCase(mode)) {
+            return new NioServer();
+        }
+        if (MODE_VIRTUAL_THREADS.equalsIgnoreCase(mode)) {
+            return new VirtualThreadServer();
+        }
+        throw new IllegalArgumentException("Unknown server mode: " + mode);
+    }
+}
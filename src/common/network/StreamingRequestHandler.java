@@ -0,0 +1,15 @@
+package common.network;
+
+/**
+ * Handler that answers one request with a stream of responses
+ */
+@FunctionalInterface
+public interface StreamingRequestHandler {
+    
+    /**
+     * Handle a request, sending PARTIAL chunks followed by one final response
+     * @param request The incoming request
+     * @param sink Where to send the chunks
+     */
+    void handle(Request request, ResponseSink sink) throws Exception;
+}
@@ -0,0 +1,246 @@
+package common.network;
+
+import common.codec.Codec;
+import common.utils.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Connection-per-virtual-thread server
+ * Each accepted connection is served by its own virtual thread using plain
+ * blocking I/O, so handlers can call blocking DataStorage methods without
+ * tying up a platform thread. Each service's dispatcher caps how many
+ * requests of that service run at once. Pipelined frames of a connection
+ * are each handled on their own virtual thread, up to
+ * Constants.MAX_PIPELINED_REQUESTS in flight, and answered as they finish.
+ *
+ * On a JVM without virtual threads (before Java 21) this falls back to a
+ * cached platform thread pool.
+ */
+public class VirtualThreadServer implements Server {
+
+    private final Codec codec;
+    private final ExecutorService executor;
+    private final Map<Integer, RequestDispatcher> services = new LinkedHashMap<>();
+    private final List<ServerSocket> listeners = new ArrayList<>();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+
+    public VirtualThreadServer() {
+        this(MessageFraming.wireCodec());
+    }
+
+    /**
+     * @param codec Codec used to encode responses
+     */
+    public VirtualThreadServer(Codec codec) {
+        this.codec = codec;
+        this.executor = newVirtualThreadExecutor();
+    }
+
+    /**
+     * Register a service, keeping whatever limit its dispatcher already has
+     */
+    @Override
+    public void addService(int port, RequestDispatcher dispatcher) {
+        if (running) {
+            throw new IllegalStateException("Server already started");
+        }
+        services.put(port, dispatcher);
+    }
+
+    /**
+     * Register a service with its own concurrency limit
+     * @param port One of the service ports in Constants
+     * @param dispatcher The dispatcher for that service
+     * @param maxConcurrentRequests Maximum requests of this service handled at once
+     *        (see RequestDispatcher.setMaxConcurrentRequests)
+     */
+    public void addService(int port, RequestDispatcher dispatcher, int maxConcurrentRequests) {
+        if (running) {
+            throw new IllegalStateException("Server already started");
+        }
+        addService(port, dispatcher.setMaxConcurrentRequests(maxConcurrentRequests));
+    }
+
+    @Override
+    public void start() throws IOException {
+        running = true;
+        for (Map.Entry<Integer, RequestDispatcher> entry : services.entrySet()) {
+            ServerSocket listener = new ServerSocket(entry.getKey(), Constants.SERVER_BACKLOG);
+            listeners.add(listener);
+            RequestDispatcher dispatcher = entry.getValue();
+            executor.execute(() -> acceptLoop(listener, dispatcher));
+            System.out.println("🚀 " + dispatcher.getServiceName() + " listening on port " + entry.getKey());
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (ServerSocket listener : listeners) {
+            closeQuietly(listener);
+        }
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+        executor.shutdownNow();
+        System.out.println("🛑 Server stopped");
+    }
+
+    private void acceptLoop(ServerSocket listener, RequestDispatcher dispatcher) {
+        while (running) {
+            try {
+                Socket socket = listener.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                executor.execute(() -> serve(socket, dispatcher));
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("❌ Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket, RequestDispatcher dispatcher) {
+        Semaphore inFlight = new Semaphore(Constants.MAX_PIPELINED_REQUESTS);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            Output out = new Output(stream);
+            while (running) {
+                MessageFraming.Frame frame = MessageFraming.readFrame(in);
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        handle(dispatcher, frame, out);
+                    } catch (RuntimeException e) {
+                        System.err.println("❌ Error handling request: " + e);
+                        reply(out, frame.getCorrelationId(),
+                                Response.error("Internal error: " + e.getMessage()), null);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            // Let in-flight requests finish writing before the streams close
+            inFlight.acquire(Constants.MAX_PIPELINED_REQUESTS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (EOFException | SocketException e) {
+            // Client disconnected
+        } catch (IOException e) {
+            System.err.println("❌ Connection error: " + e.getMessage());
+        } finally {
+            connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private void reply(Output out, long correlationId, Response response, ResponseCache.Lookup lookup) {
+        byte[] payload;
+        try {
+            payload = codec.encode(response);
+        } catch (IOException e) {
+            System.err.println("❌ Error encoding response: " + e.getMessage());
+            return;
+        }
+        if (lookup != null) {
+            lookup.offer(response, payload);
+        }
+        reply(out, correlationId, payload);
+    }
+
+    /**
+     * Write one frame
+     * Guarded by a ReentrantLock rather than a monitor, so a virtual thread
+     * blocked on a slow socket does not pin its carrier thread.
+     */
+    private void reply(Output out, long correlationId, byte[] payload) {
+        out.lock.lock();
+        try {
+            MessageFraming.writeFrame(out.stream, correlationId, payload);
+        } catch (IOException e) {
+            // Connection closed while the request was running
+        } finally {
+            out.lock.unlock();
+        }
+    }
+
+    private void handle(RequestDispatcher dispatcher, MessageFraming.Frame frame, Output out) {
+        long correlationId = frame.getCorrelationId();
+        ResponseSink sink = response -> reply(out, correlationId, response, null);
+        Object message;
+        try {
+            message = frame.decode();
+        } catch (IOException | RuntimeException e) {
+            sink.send(Response.error("Malformed request: " + e.getMessage()));
+            return;
+        }
+        if (!(message instanceof Request)) {
+            sink.send(Response.error("Expected a Request"));
+            return;
+        }
+        // Cache hits are answered without taking a permit
+        Request request = (Request) message;
+        ResponseCache cache = dispatcher.getResponseCache();
+        ResponseCache.Lookup lookup = cache != null ? cache.lookup(request) : null;
+        if (lookup != null && lookup.getPayload() != null) {
+            reply(out, correlationId, lookup.getPayload());
+            return;
+        }
+        dispatcher.dispatch(request, response -> reply(out, correlationId, response, lookup));
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() when running on Java 21+
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("⚠️ Virtual threads not available, using platform threads");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Ignore on shutdown
+        }
+    }
+
+    /**
+     * Output stream of a connection with the lock its frame writes take
+     */
+    private static final class Output {
+        private final DataOutputStream stream;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        Output(DataOutputStream stream) {
+            this.stream = stream;
+        }
+    }
+}
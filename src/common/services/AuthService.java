@@ -0,0 +1,189 @@
+package common.services;
+
+import common.models.User;
+import common.network.LoginRequest;
+import common.network.RequestDispatcher;
+import common.network.Response;
+import common.storage.DataStorage;
+import common.storage.ObservableStorage;
+import common.storage.StorageListener;
+import common.utils.Constants;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * LOGIN / LOGOUT backed by an in-memory credential index
+ *
+ * Users are read from the users file once and then kept current from
+ * ObservableStorage events, so a burst of logins never touches the disk.
+ * Successful logins get a Session from the SessionStore; other services
+ * resolve request session ids through sessionResolver().
+ */
+public class AuthService implements StorageListener {
+
+    private final DataStorage storage;
+    private final SessionStore sessions;
+    // Null until first use and after the users file is reset
+    private volatile Map<String, User> users;
+
+    /**
+     * @param storage Storage whose user writes keep the index current
+     * @param sessions Where sessions are kept
+     */
+    public AuthService(ObservableStorage storage, SessionStore sessions) {
+        this.storage = storage;
+        this.sessions = sessions;
+        storage.addListener(this);
+    }
+
+    /**
+     * Register LOGIN (data: LoginRequest, response: Session) and LOGOUT
+     */
+    public void register(RequestDispatcher dispatcher) {
+        dispatcher.register(Constants.LOGIN, request -> {
+            if (!(request.getData() instanceof LoginRequest)) {
+                return Response.failure("LOGIN expects a LoginRequest");
+            }
+            Session session = login((LoginRequest) request.getData());
+            return session != null ? Response.success(session) : Response.failure("Invalid username or password");
+        });
+        dispatcher.register(Constants.LOGOUT, request ->
+                sessions.invalidate(request.getSessionId())
+                        ? Response.success(null)
+                        : Response.failure("Not logged in"));
+    }
+
+    /**
+     * Check credentials and start a session
+     * @return The session, or null if the user, password, role or account state does not match
+     */
+    public Session login(LoginRequest login) {
+        if (login.getUsername() == null || login.getPassword() == null) {
+            return null;
+        }
+        User user = users().get(login.getUsername());
+        if (user == null || !user.isActive() || !user.authenticate(login.getPassword())) {
+            return null;
+        }
+        if (login.getRole() != null && !login.getRole().equals(user.getRole())) {
+            return null;
+        }
+        return sessions.create(user.getUserId(), user.getRole());
+    }
+
+    /**
+     * Maps a session id to its user id, or to null if the session is invalid
+     * or belongs to another role
+     * @param role Required role, or null for any role
+     */
+    public Function<String, String> sessionResolver(String role) {
+        return sessionId -> {
+            Session session = sessions.validate(sessionId);
+            if (session == null || (role != null && !role.equals(session.getRole()))) {
+                return null;
+            }
+            return session.getUserId();
+        };
+    }
+
+    public SessionStore getSessions() {
+        return sessions;
+    }
+
+    private Map<String, User> users() {
+        Map<String, User> index = users;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if (users == null) {
+                Map<String, User> loaded = new ConcurrentHashMap<>();
+                for (Object obj : storage.loadAll(Constants.USERS_FILE)) {
+                    if (obj instanceof User && ((User) obj).getUserId() != null) {
+                        loaded.put(((User) obj).getUserId(), (User) obj);
+                    }
+                }
+                users = loaded;
+                System.out.println("🔐 Loaded " + loaded.size() + " user credentials");
+            }
+            return users;
+        }
+    }
+
+    // StorageListener
+
+    @Override
+    public synchronized void onSave(String filename, Object obj) {
+        if (users != null && Constants.USERS_FILE.equals(filename) && obj instanceof User) {
+            put((User) obj);
+        }
+    }
+
+    @Override
+    public synchronized void onUpdate(String filename, Object oldObj, Object newObj) {
+        if (!Constants.USERS_FILE.equals(filename)) {
+            return;
+        }
+        if (oldObj instanceof User && newObj instanceof User
+                && !Objects.equals(((User) oldObj).getUserId(), ((User) newObj).getUserId())) {
+            remove(((User) oldObj).getUserId());
+        }
+        if (newObj instanceof User) {
+            User user = (User) newObj;
+            User before = oldObj instanceof User && oldObj != newObj ? (User) oldObj : null;
+            if (before == null && users != null && users.get(user.getUserId()) != newObj) {
+                before = users.get(user.getUserId());
+            }
+            if (users != null) {
+                put(user);
+            }
+            // Sessions carry the role they were opened with and were opened with the old password
+            if (!user.isActive() || credentialsChanged(before, user)) {
+                sessions.invalidateUser(user.getUserId());
+            }
+        }
+    }
+
+    /**
+     * Whether the role or password differs, assuming so without an earlier copy to compare
+     */
+    private static boolean credentialsChanged(User before, User after) {
+        return before == null
+                || !Objects.equals(before.getRole(), after.getRole())
+                || !Objects.equals(before.getPassword(), after.getPassword());
+    }
+
+    @Override
+    public synchronized void onDelete(String filename, String id) {
+        if (Constants.USERS_FILE.equals(filename)) {
+            remove(id);
+        }
+    }
+
+    @Override
+    public synchronized void onReset(String filename) {
+        if (Constants.USERS_FILE.equals(filename)) {
+            // Rebuild on next login
+            users = null;
+        }
+    }
+
+    private void put(User user) {
+        if (user.getUserId() != null) {
+            users.put(user.getUserId(), user);
+        }
+    }
+
+    private void remove(String userId) {
+        if (userId == null) {
+            return;
+        }
+        if (users != null) {
+            users.remove(userId);
+        }
+        sessions.invalidateUser(userId);
+    }
+}
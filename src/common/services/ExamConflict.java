@@ -0,0 +1,46 @@
+package common.services;
+
+import java.io.Serializable;
+
+/**
+ * Two exams that overlap in time on a shared batch, venue or lecturer
+ */
+public class ExamConflict implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    public static final String BATCH = "BATCH";
+    public static final String VENUE = "VENUE";
+    public static final String LECTURER = "LECTURER";
+    
+    private String type;
+    private String resource;
+    private String examId;
+    private String otherExamId;
+    
+    public ExamConflict() {}
+    
+    public ExamConflict(String type, String resource, String examId, String otherExamId) {
+        this.type = type;
+        this.resource = resource;
+        this.examId = examId;
+        this.otherExamId = otherExamId;
+    }
+    
+    // Getters and Setters
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    
+    public String getResource() { return resource; }
+    public void setResource(String resource) { this.resource = resource; }
+    
+    public String getExamId() { return examId; }
+    public void setExamId(String examId) { this.examId = examId; }
+    
+    public String getOtherExamId() { return otherExamId; }
+    public void setOtherExamId(String otherExamId) { this.otherExamId = otherExamId; }
+    
+    @Override
+    public String toString() {
+        return "ExamConflict{" + type + " '" + resource + "': " + examId + " <-> " + otherExamId + "}";
+    }
+}
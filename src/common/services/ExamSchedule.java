@@ -0,0 +1,38 @@
+package common.services;
+
+import common.models.Exam;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exams in date and time order together with the conflicts among them
+ */
+public class ExamSchedule implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private List<Exam> exams;
+    private List<ExamConflict> conflicts;
+    
+    public ExamSchedule() {
+        this.exams = new ArrayList<>();
+        this.conflicts = new ArrayList<>();
+    }
+    
+    public ExamSchedule(List<Exam> exams, List<ExamConflict> conflicts) {
+        this.exams = exams;
+        this.conflicts = conflicts;
+    }
+    
+    public boolean isValid() {
+        return conflicts.isEmpty();
+    }
+    
+    // Getters and Setters
+    public List<Exam> getExams() { return exams; }
+    public void setExams(List<Exam> exams) { this.exams = exams; }
+    
+    public List<ExamConflict> getConflicts() { return conflicts; }
+    public void setConflicts(List<ExamConflict> conflicts) { this.conflicts = conflicts; }
+}
@@ -0,0 +1,300 @@
+package common.services;
+
+import common.models.Exam;
+import common.network.RequestDispatcher;
+import common.network.Response;
+import common.storage.DataStorage;
+import common.storage.ObservableStorage;
+import common.storage.StorageListener;
+import common.utils.Constants;
+import common.utils.DateUtils;
+import common.utils.IntervalTree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Exam scheduling index with overlap-based conflict detection
+ *
+ * Every exam occupies a [start, end) interval on its day for three
+ * resources: its batch, its venue and the lecturer of its module. Each
+ * (resource, day) pair has its own IntervalTree, so checking a new exam
+ * is a handful of O(log n) overlap queries instead of a comparison with
+ * every stored exam. The index is built from the exams file on first use
+ * and kept current from ObservableStorage events.
+ */
+public class ExamScheduler implements StorageListener {
+
+    private static final Comparator<Exam> BY_DATE_AND_TIME = Comparator
+            .comparing(Exam::getDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(Exam::getStartMinutes);
+
+    private final DataStorage storage;
+    private final Function<String, String> lecturerOfModule;
+    private final Timetable timetable;
+    private final Map<String, Slot> slots = new HashMap<>();
+    private boolean loaded;
+
+    /**
+     * @param storage Storage whose exam writes keep this index current
+     * @param lecturerOfModule Maps a module code to its lecturer id (may be null to skip lecturer checks)
+     */
+    public ExamScheduler(ObservableStorage storage, Function<String, String> lecturerOfModule) {
+        this.storage = storage;
+        this.lecturerOfModule = lecturerOfModule;
+        this.timetable = new Timetable(lecturerOfModule);
+        storage.addListener(this);
+    }
+
+    /**
+     * Register GET_EXAM_SCHEDULE
+     * Request data may be a batch id; without it the whole timetable is returned.
+     */
+    public void register(RequestDispatcher dispatcher) {
+        dispatcher.register(Constants.GET_EXAM_SCHEDULE, request -> Response.success(
+                getSchedule(request.getData() instanceof String ? (String) request.getData() : null)));
+    }
+
+    /**
+     * Find the stored exams a new or changed exam would clash with
+     * @param exam The exam to check (an exam with the same id is ignored)
+     * @return Conflicts by batch, venue and lecturer
+     */
+    public synchronized List<ExamConflict> findConflicts(Exam exam) {
+        ensureLoaded();
+        Slot slot = timetable.slotOf(exam);
+        return slot != null ? timetable.conflicts(slot) : new ArrayList<>();
+    }
+
+    /**
+     * Get exams in date and time order with their conflicts
+     * @param batchId Only this batch's exams, or null for all
+     */
+    public synchronized ExamSchedule getSchedule(String batchId) {
+        ensureLoaded();
+        List<Exam> exams = new ArrayList<>();
+        for (Object obj : storage.loadAll(Constants.EXAMS_FILE)) {
+            if (obj instanceof Exam && (batchId == null || batchId.equals(((Exam) obj).getBatchId()))) {
+                exams.add((Exam) obj);
+            }
+        }
+        exams.sort(BY_DATE_AND_TIME);
+        if (batchId == null) {
+            return new ExamSchedule(exams, validateTimetable(exams));
+        }
+        // Batch exams can still clash with other batches on venue or lecturer
+        Set<String> seen = new LinkedHashSet<>();
+        List<ExamConflict> conflicts = new ArrayList<>();
+        for (Exam exam : exams) {
+            for (ExamConflict conflict : findConflicts(exam)) {
+                String a = String.valueOf(conflict.getExamId());
+                String b = String.valueOf(conflict.getOtherExamId());
+                String key = conflict.getType() + '\u0000' + (a.compareTo(b) < 0 ? a + '\u0000' + b : b + '\u0000' + a);
+                if (seen.add(key)) {
+                    conflicts.add(conflict);
+                }
+            }
+        }
+        return new ExamSchedule(exams, conflicts);
+    }
+
+    /**
+     * Check a whole timetable, independent of what is stored
+     * Each clashing pair is reported once per resource type.
+     */
+    public List<ExamConflict> validateTimetable(Collection<Exam> exams) {
+        Timetable check = new Timetable(lecturerOfModule);
+        List<ExamConflict> conflicts = new ArrayList<>();
+        for (Exam exam : exams) {
+            Slot slot = check.slotOf(exam);
+            if (slot != null) {
+                conflicts.addAll(check.conflicts(slot));
+                check.add(slot);
+            }
+        }
+        return conflicts;
+    }
+
+    // StorageListener
+
+    @Override
+    public synchronized void onSave(String filename, Object obj) {
+        if (loaded && Constants.EXAMS_FILE.equals(filename) && obj instanceof Exam) {
+            put((Exam) obj);
+        }
+    }
+
+    @Override
+    public synchronized void onUpdate(String filename, Object oldObj, Object newObj) {
+        if (!loaded || !Constants.EXAMS_FILE.equals(filename)) {
+            return;
+        }
+        if (oldObj instanceof Exam) {
+            remove(((Exam) oldObj).getId());
+        }
+        if (newObj instanceof Exam) {
+            put((Exam) newObj);
+        }
+    }
+
+    @Override
+    public synchronized void onDelete(String filename, String id) {
+        if (loaded && Constants.EXAMS_FILE.equals(filename)) {
+            remove(id);
+        }
+    }
+
+    @Override
+    public synchronized void onReset(String filename) {
+        if (Constants.EXAMS_FILE.equals(filename)) {
+            loaded = false;
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        timetable.clear();
+        slots.clear();
+        for (Object obj : storage.loadAll(Constants.EXAMS_FILE)) {
+            if (obj instanceof Exam) {
+                put((Exam) obj);
+            }
+        }
+        loaded = true;
+    }
+
+    private void put(Exam exam) {
+        remove(exam.getId());
+        Slot slot = timetable.slotOf(exam);
+        if (slot != null && exam.getId() != null) {
+            slots.put(exam.getId(), slot);
+            timetable.add(slot);
+        }
+    }
+
+    private void remove(String examId) {
+        Slot slot = examId != null ? slots.remove(examId) : null;
+        if (slot != null) {
+            timetable.remove(slot);
+        }
+    }
+
+    /**
+     * Interval trees for every (resource, day) pair
+     */
+    private static final class Timetable {
+        private final Function<String, String> lecturerOfModule;
+        private final Map<String, IntervalTree<Slot>> trees = new HashMap<>();
+
+        Timetable(Function<String, String> lecturerOfModule) {
+            this.lecturerOfModule = lecturerOfModule;
+        }
+
+        /**
+         * Capture an exam's resources and times, or null if it has no date or valid start time
+         */
+        Slot slotOf(Exam exam) {
+            int start = exam.getStartMinutes();
+            if (exam.getDate() == null || start < 0) {
+                return null;
+            }
+            String lecturerId = lecturerOfModule != null && exam.getModuleCode() != null
+                    ? lecturerOfModule.apply(exam.getModuleCode())
+                    : null;
+            return new Slot(exam.getId(), DateUtils.formatDate(exam.getDate()), start, exam.getEndMinutes(),
+                    exam.getBatchId(), exam.getVenue(), lecturerId);
+        }
+
+        List<ExamConflict> conflicts(Slot slot) {
+            List<ExamConflict> conflicts = new ArrayList<>();
+            collect(ExamConflict.BATCH, slot.batchId, slot, conflicts);
+            collect(ExamConflict.VENUE, slot.venue, slot, conflicts);
+            collect(ExamConflict.LECTURER, slot.lecturerId, slot, conflicts);
+            return conflicts;
+        }
+
+        void add(Slot slot) {
+            forEachTree(slot, true, tree -> tree.insert(slot.start, slot.end, slot));
+        }
+
+        void remove(Slot slot) {
+            forEachTree(slot, false, tree -> tree.remove(slot.start, slot.end, slot));
+        }
+
+        void clear() {
+            trees.clear();
+        }
+
+        private void collect(String type, String resource, Slot slot, List<ExamConflict> conflicts) {
+            if (resource == null) {
+                return;
+            }
+            IntervalTree<Slot> tree = trees.get(key(type, resource, slot.day));
+            if (tree == null) {
+                return;
+            }
+            for (Slot other : tree.overlapping(slot.start, slot.end)) {
+                if (slot.examId == null || !slot.examId.equals(other.examId)) {
+                    conflicts.add(new ExamConflict(type, resource, slot.examId, other.examId));
+                }
+            }
+        }
+
+        private void forEachTree(Slot slot, boolean create, Consumer<IntervalTree<Slot>> action) {
+            String[][] resources = {
+                    {ExamConflict.BATCH, slot.batchId},
+                    {ExamConflict.VENUE, slot.venue},
+                    {ExamConflict.LECTURER, slot.lecturerId}};
+            for (String[] resource : resources) {
+                if (resource[1] == null) {
+                    continue;
+                }
+                String key = key(resource[0], resource[1], slot.day);
+                IntervalTree<Slot> tree = create ? trees.computeIfAbsent(key, k -> new IntervalTree<>()) : trees.get(key);
+                if (tree != null) {
+                    action.accept(tree);
+                    if (tree.isEmpty()) {
+                        trees.remove(key);
+                    }
+                }
+            }
+        }
+
+        private static String key(String type, String resource, String day) {
+            return type + '\u0000' + resource + '\u0000' + day;
+        }
+    }
+
+    /**
+     * An exam's interval as it was indexed
+     */
+    private static final class Slot {
+        private final String examId;
+        private final String day;
+        private final int start;
+        private final int end;
+        private final String batchId;
+        private final String venue;
+        private final String lecturerId;
+
+        Slot(String examId, String day, int start, int end, String batchId, String venue, String lecturerId) {
+            this.examId = examId;
+            this.day = day;
+            this.start = start;
+            this.end = end;
+            this.batchId = batchId;
+            this.venue = venue;
+            this.lecturerId = lecturerId;
+        }
+    }
+}
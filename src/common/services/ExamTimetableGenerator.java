@@ -0,0 +1,510 @@
+package common.services;
+
+import common.models.Batch;
+import common.models.Exam;
+import common.models.Module;
+import common.models.ModuleRegistration;
+import common.network.RequestDispatcher;
+import common.network.Response;
+import common.storage.DataStorage;
+import common.utils.Constants;
+import common.utils.DateUtils;
+import common.utils.IDGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Exam timetable generator (GENERATE_EXAM_SCHEDULE)
+ *
+ * Enrolments come from active ModuleRegistrations plus the students of any
+ * batch that already has an exam for the module. Modules sharing students
+ * form a weighted conflict graph; a greedy pass assigns every module a
+ * (day, slot) and then one simulated-annealing search per fork-join worker
+ * improves that start from a different seed until the time limit (capped
+ * at Constants.TIMETABLE_MAX_MILLIS) or a clash-free timetable is reached.
+ * The searches run in the generator's own pool so they never occupy the
+ * common pool other services use. The best result is packed into venues
+ * by best fit, one exam per venue.
+ *
+ * The generated exams are returned, not saved.
+ */
+public class ExamTimetableGenerator {
+
+    // Cost of each exam beyond the number of venues in a slot
+    private static final int ROOM_PENALTY = 1000;
+
+    private final DataStorage storage;
+    private final ForkJoinPool pool;
+
+    public ExamTimetableGenerator(DataStorage storage) {
+        this(storage, new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param storage Storage to read modules, exams and registrations from
+     * @param pool Pool the searches run in, one search per thread
+     */
+    public ExamTimetableGenerator(DataStorage storage, ForkJoinPool pool) {
+        this.storage = storage;
+        this.pool = pool;
+    }
+
+    /**
+     * Register GENERATE_EXAM_SCHEDULE; request data is a TimetableRequest
+     */
+    public void register(RequestDispatcher dispatcher) {
+        dispatcher.register(Constants.GENERATE_EXAM_SCHEDULE, request -> {
+            if (!(request.getData() instanceof TimetableRequest)) {
+                return Response.failure("GENERATE_EXAM_SCHEDULE expects a TimetableRequest");
+            }
+            return Response.success(generate((TimetableRequest) request.getData()));
+        });
+    }
+
+    /**
+     * Generate a timetable for the stored modules and enrolments
+     * @param request Days, slots, venues and time limit
+     * @return The exams and their conflict score
+     */
+    public TimetableResult generate(TimetableRequest request) throws InterruptedException {
+        long started = System.currentTimeMillis();
+        int[] slotStarts = validate(request);
+
+        Map<String, Set<String>> enrolments = loadEnrolments();
+        Map<String, String> batchOfModule = new HashMap<>();
+        for (Object obj : storage.loadAll(Constants.EXAMS_FILE)) {
+            if (obj instanceof Exam && ((Exam) obj).getBatchId() != null) {
+                batchOfModule.putIfAbsent(((Exam) obj).getModuleCode(), ((Exam) obj).getBatchId());
+            }
+        }
+
+        List<String> codes = new ArrayList<>();
+        if (request.getModuleCodes().isEmpty()) {
+            codes.addAll(enrolments.keySet());
+        } else {
+            codes.addAll(request.getModuleCodes());
+        }
+        Map<String, Integer> maxStudents = new HashMap<>();
+        for (Object obj : storage.loadAll(Constants.MODULES_FILE)) {
+            if (obj instanceof Module) {
+                maxStudents.put(((Module) obj).getCode(), ((Module) obj).getMaxStudents());
+            }
+        }
+
+        Problem problem = buildProblem(codes, enrolments, maxStudents, request, slotStarts.length);
+        int[] initial = problem.greedy();
+
+        long timeLimit = Math.max(0, Math.min(request.getTimeLimitMillis(), Constants.TIMETABLE_MAX_MILLIS));
+        long deadline = started + timeLimit;
+        int workers = Math.max(1, pool.getParallelism());
+        List<Callable<int[]>> searches = new ArrayList<>(workers);
+        SplittableRandom seeds = new SplittableRandom(started);
+        for (int i = 0; i < workers; i++) {
+            long seed = seeds.nextLong();
+            searches.add(() -> new Search(problem, initial, seed).run(deadline));
+        }
+        int[] best = initial;
+        long bestCost = problem.cost(initial);
+        for (Future<int[]> future : pool.invokeAll(searches)) {
+            try {
+                int[] assignment = future.get();
+                long cost = problem.cost(assignment);
+                if (cost < bestCost) {
+                    best = assignment;
+                    bestCost = cost;
+                }
+            } catch (ExecutionException e) {
+                System.err.println("❌ Timetable search failed: " + e.getCause());
+            }
+        }
+
+        TimetableResult result = buildResult(problem, codes, best, batchOfModule, request, slotStarts);
+        result.setElapsedMillis(System.currentTimeMillis() - started);
+        System.out.println("📅 Generated exam timetable: " + result);
+        return result;
+    }
+
+    private static int[] validate(TimetableRequest request) {
+        if (request.getStartDate() == null || request.getDays() <= 0) {
+            throw new IllegalArgumentException("Start date and a positive number of days are required");
+        }
+        if (request.getVenues().isEmpty()) {
+            throw new IllegalArgumentException("At least one venue is required");
+        }
+        if (request.getSlotTimes().isEmpty() || request.getDurationMinutes() <= 0) {
+            throw new IllegalArgumentException("Slot times and a positive duration are required");
+        }
+        int[] starts = new int[request.getSlotTimes().size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = DateUtils.parseMinutes(request.getSlotTimes().get(i));
+            if (starts[i] < 0) {
+                throw new IllegalArgumentException("Invalid slot time: " + request.getSlotTimes().get(i));
+            }
+            if (i > 0 && starts[i] < starts[i - 1] + request.getDurationMinutes()) {
+                throw new IllegalArgumentException("Slots must be in order and must not overlap: "
+                        + request.getSlotTimes().get(i - 1) + ", " + request.getSlotTimes().get(i));
+            }
+        }
+        return starts;
+    }
+
+    private Map<String, Set<String>> loadEnrolments() {
+        Map<String, Set<String>> enrolments = new LinkedHashMap<>();
+        for (Object obj : storage.loadAll(Constants.REGISTRATIONS_FILE)) {
+            if (obj instanceof ModuleRegistration) {
+                ModuleRegistration registration = (ModuleRegistration) obj;
+                if (registration.isActive()) {
+                    enrolments.computeIfAbsent(registration.getModuleCode(), m -> new HashSet<>())
+                            .add(registration.getStudentId());
+                }
+            }
+        }
+        Map<String, List<String>> batchStudents = new HashMap<>();
+        for (Object obj : storage.loadAll(Constants.BATCHES_FILE)) {
+            if (obj instanceof Batch) {
+                batchStudents.put(((Batch) obj).getId(), ((Batch) obj).getStudentIds());
+            }
+        }
+        for (Object obj : storage.loadAll(Constants.EXAMS_FILE)) {
+            if (obj instanceof Exam) {
+                List<String> students = batchStudents.get(((Exam) obj).getBatchId());
+                if (students != null && !students.isEmpty()) {
+                    enrolments.computeIfAbsent(((Exam) obj).getModuleCode(), m -> new HashSet<>()).addAll(students);
+                }
+            }
+        }
+        return enrolments;
+    }
+
+    private static Problem buildProblem(List<String> codes, Map<String, Set<String>> enrolments,
+                                        Map<String, Integer> maxStudents, TimetableRequest request, int slotsPerDay) {
+        int n = codes.size();
+        int[] size = new int[n];
+        Map<String, List<Integer>> modulesOfStudent = new HashMap<>();
+        for (int m = 0; m < n; m++) {
+            Set<String> students = enrolments.get(codes.get(m));
+            if (students == null || students.isEmpty()) {
+                // No enrolment data: reserve seats for the module's capacity
+                size[m] = maxStudents.getOrDefault(codes.get(m), 0);
+                continue;
+            }
+            size[m] = students.size();
+            for (String student : students) {
+                modulesOfStudent.computeIfAbsent(student, s -> new ArrayList<>()).add(m);
+            }
+        }
+
+        // Edge weight = number of students taking both modules
+        Map<Long, Integer> shared = new HashMap<>();
+        for (List<Integer> modules : modulesOfStudent.values()) {
+            for (int i = 0; i < modules.size(); i++) {
+                for (int j = i + 1; j < modules.size(); j++) {
+                    int a = Math.min(modules.get(i), modules.get(j));
+                    int b = Math.max(modules.get(i), modules.get(j));
+                    shared.merge((long) a * n + b, 1, Integer::sum);
+                }
+            }
+        }
+        int[] degree = new int[n];
+        for (long key : shared.keySet()) {
+            degree[(int) (key / n)]++;
+            degree[(int) (key % n)]++;
+        }
+        int[][] neighbours = new int[n][];
+        int[][] weights = new int[n][];
+        for (int m = 0; m < n; m++) {
+            neighbours[m] = new int[degree[m]];
+            weights[m] = new int[degree[m]];
+        }
+        int[] fill = new int[n];
+        for (Map.Entry<Long, Integer> edge : shared.entrySet()) {
+            int a = (int) (edge.getKey() / n);
+            int b = (int) (edge.getKey() % n);
+            neighbours[a][fill[a]] = b;
+            weights[a][fill[a]++] = edge.getValue();
+            neighbours[b][fill[b]] = a;
+            weights[b][fill[b]++] = edge.getValue();
+        }
+
+        long seats = 0;
+        for (int capacity : request.getVenues().values()) {
+            seats += capacity;
+        }
+        return new Problem(size, neighbours, weights, request.getDays() * slotsPerDay, seats, request.getVenues().size());
+    }
+
+    private static TimetableResult buildResult(Problem problem, List<String> codes, int[] slots,
+                                               Map<String, String> batchOfModule, TimetableRequest request,
+                                               int[] slotStarts) {
+        List<Map.Entry<String, Integer>> venues = new ArrayList<>(request.getVenues().entrySet());
+        venues.sort(Map.Entry.comparingByValue());
+
+        List<List<Integer>> bySlot = new ArrayList<>();
+        for (int t = 0; t < problem.slots; t++) {
+            bySlot.add(new ArrayList<>());
+        }
+        for (int m = 0; m < slots.length; m++) {
+            bySlot.get(slots[m]).add(m);
+        }
+
+        List<Exam> exams = new ArrayList<>(codes.size());
+        int unseated = 0;
+        for (int t = 0; t < problem.slots; t++) {
+            List<Integer> modules = bySlot.get(t);
+            if (modules.isEmpty()) {
+                continue;
+            }
+            modules.sort(Comparator.comparingInt((Integer m) -> problem.size[m]).reversed());
+            boolean[] used = new boolean[venues.size()];
+            int day = t / slotStarts.length;
+            int start = slotStarts[t % slotStarts.length];
+            for (int m : modules) {
+                // Best fit: smallest free venue that seats everyone, else the largest free venue
+                int chosen = -1;
+                for (int v = 0; v < venues.size(); v++) {
+                    if (!used[v]) {
+                        chosen = v;
+                        if (venues.get(v).getValue() >= problem.size[m]) {
+                            break;
+                        }
+                    }
+                }
+                Exam exam = new Exam(IDGenerator.generateExamId(), codes.get(m), batchOfModule.get(codes.get(m)));
+                exam.setDate(DateUtils.addDays(request.getStartDate(), day));
+                exam.setStartTime(formatMinutes(start));
+                exam.setEndTime(formatMinutes(start + request.getDurationMinutes()));
+                exam.setType("FINAL");
+                if (chosen >= 0) {
+                    used[chosen] = true;
+                    exam.setVenue(venues.get(chosen).getKey());
+                    unseated += Math.max(0, problem.size[m] - venues.get(chosen).getValue());
+                } else {
+                    unseated += problem.size[m];
+                }
+                exams.add(exam);
+            }
+        }
+        exams.sort(Comparator.comparing(Exam::getDate).thenComparingInt(Exam::getStartMinutes));
+        return new TimetableResult(exams, problem.clashes(slots), unseated, 0);
+    }
+
+    private static String formatMinutes(int minutes) {
+        return String.format("%02d:%02d", minutes / 60, minutes % 60);
+    }
+
+    /**
+     * Conflict graph and slot capacities; read-only once built
+     */
+    private static final class Problem {
+        private final int[] size;
+        private final int[][] neighbours;
+        private final int[][] weights;
+        private final int slots;
+        private final long seats;
+        private final int venues;
+
+        Problem(int[] size, int[][] neighbours, int[][] weights, int slots, long seats, int venues) {
+            this.size = size;
+            this.neighbours = neighbours;
+            this.weights = weights;
+            this.slots = slots;
+            this.seats = seats;
+            this.venues = venues;
+        }
+
+        long slotPenalty(long load, int count) {
+            return Math.max(0, load - seats) + (long) Math.max(0, count - venues) * ROOM_PENALTY;
+        }
+
+        /**
+         * Assign modules in order of conflict weight to the cheapest slot
+         */
+        int[] greedy() {
+            int n = size.length;
+            Integer[] order = new Integer[n];
+            long[] totalWeight = new long[n];
+            for (int m = 0; m < n; m++) {
+                order[m] = m;
+                for (int w : weights[m]) {
+                    totalWeight[m] += w;
+                }
+            }
+            Arrays.sort(order, Comparator.comparingLong((Integer m) -> totalWeight[m])
+                    .thenComparingInt(m -> size[m]).reversed());
+
+            int[] assignment = new int[n];
+            Arrays.fill(assignment, -1);
+            long[] clash = new long[slots];
+            long[] load = new long[slots];
+            int[] count = new int[slots];
+            for (int m : order) {
+                Arrays.fill(clash, 0);
+                for (int i = 0; i < neighbours[m].length; i++) {
+                    int slot = assignment[neighbours[m][i]];
+                    if (slot >= 0) {
+                        clash[slot] += weights[m][i];
+                    }
+                }
+                int best = 0;
+                long bestCost = Long.MAX_VALUE;
+                for (int t = 0; t < slots; t++) {
+                    long cost = clash[t] + slotPenalty(load[t] + size[m], count[t] + 1) - slotPenalty(load[t], count[t]);
+                    if (cost < bestCost || (cost == bestCost && load[t] < load[best])) {
+                        best = t;
+                        bestCost = cost;
+                    }
+                }
+                assignment[m] = best;
+                load[best] += size[m];
+                count[best]++;
+            }
+            return assignment;
+        }
+
+        /**
+         * Students sitting two exams in the same slot, counted once per pair of exams
+         */
+        int clashes(int[] assignment) {
+            int clashes = 0;
+            for (int m = 0; m < size.length; m++) {
+                for (int i = 0; i < neighbours[m].length; i++) {
+                    int other = neighbours[m][i];
+                    if (other > m && assignment[other] == assignment[m]) {
+                        clashes += weights[m][i];
+                    }
+                }
+            }
+            return clashes;
+        }
+
+        long cost(int[] assignment) {
+            long[] load = new long[slots];
+            int[] count = new int[slots];
+            for (int m = 0; m < size.length; m++) {
+                load[assignment[m]] += size[m];
+                count[assignment[m]]++;
+            }
+            long cost = clashes(assignment);
+            for (int t = 0; t < slots; t++) {
+                cost += slotPenalty(load[t], count[t]);
+            }
+            return cost;
+        }
+    }
+
+    /**
+     * Simulated annealing over single-module moves
+     * clash[m * slots + t] holds the students module m shares with the
+     * modules currently in slot t, so a move is evaluated in O(1) and
+     * applied in O(degree).
+     */
+    private static final class Search {
+        private static final double START_TEMPERATURE = 2.0;
+        private static final double END_TEMPERATURE = 0.05;
+
+        private final Problem problem;
+        private final int[] assignment;
+        private final int[] clash;
+        private final long[] load;
+        private final int[] count;
+        private final SplittableRandom random;
+
+        Search(Problem problem, int[] initial, long seed) {
+            this.problem = problem;
+            this.assignment = initial.clone();
+            this.clash = new int[size() * problem.slots];
+            this.load = new long[problem.slots];
+            this.count = new int[problem.slots];
+            this.random = new SplittableRandom(seed);
+            for (int m = 0; m < size(); m++) {
+                load[assignment[m]] += problem.size[m];
+                count[assignment[m]]++;
+                for (int i = 0; i < problem.neighbours[m].length; i++) {
+                    clash[m * problem.slots + assignment[problem.neighbours[m][i]]] += problem.weights[m][i];
+                }
+            }
+        }
+
+        private int size() {
+            return problem.size.length;
+        }
+
+        int[] run(long deadline) {
+            int n = size();
+            int slots = problem.slots;
+            if (n == 0 || slots < 2) {
+                return assignment;
+            }
+            long cost = problem.cost(assignment);
+            long bestCost = cost;
+            int[] best = assignment.clone();
+            long begin = System.currentTimeMillis();
+            long span = Math.max(1, deadline - begin);
+            double temperature = START_TEMPERATURE;
+
+            for (long iteration = 0; bestCost > 0; iteration++) {
+                if ((iteration & 1023) == 0) {
+                    long now = System.currentTimeMillis();
+                    if (now >= deadline || Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    double progress = (double) (now - begin) / span;
+                    temperature = START_TEMPERATURE * Math.pow(END_TEMPERATURE / START_TEMPERATURE, progress);
+                }
+                int m = random.nextInt(n);
+                int from = assignment[m];
+                // Mostly move modules that are part of the problem
+                if (clash[m * slots + from] == 0 && problem.slotPenalty(load[from], count[from]) == 0
+                        && random.nextInt(16) != 0) {
+                    continue;
+                }
+                int to = random.nextInt(slots - 1);
+                if (to >= from) {
+                    to++;
+                }
+                long delta = clash[m * slots + to] - clash[m * slots + from]
+                        + problem.slotPenalty(load[from] - problem.size[m], count[from] - 1)
+                        - problem.slotPenalty(load[from], count[from])
+                        + problem.slotPenalty(load[to] + problem.size[m], count[to] + 1)
+                        - problem.slotPenalty(load[to], count[to]);
+                if (delta > 0 && random.nextDouble() >= Math.exp(-delta / temperature)) {
+                    continue;
+                }
+                move(m, from, to);
+                cost += delta;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    System.arraycopy(assignment, 0, best, 0, n);
+                }
+            }
+            return best;
+        }
+
+        private void move(int m, int from, int to) {
+            int slots = problem.slots;
+            for (int i = 0; i < problem.neighbours[m].length; i++) {
+                int base = problem.neighbours[m][i] * slots;
+                clash[base + from] -= problem.weights[m][i];
+                clash[base + to] += problem.weights[m][i];
+            }
+            load[from] -= problem.size[m];
+            load[to] += problem.size[m];
+            count[from]--;
+            count[to]++;
+            assignment[m] = to;
+        }
+    }
+}
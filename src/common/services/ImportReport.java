@@ -0,0 +1,71 @@
+package common.services;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a CSV result import
+ * Only the first MAX_ERRORS row errors are kept; errorCount has the total.
+ */
+public class ImportReport implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    public static final int MAX_ERRORS = 1000;
+    
+    private int rowsRead;
+    private int imported;
+    private int duplicates;
+    private int failed;
+    private int errorCount;
+    private int batches;
+    private List<String> errors;
+    
+    public ImportReport() {
+        this.errors = new ArrayList<>();
+    }
+    
+    void rowRead() {
+        rowsRead++;
+    }
+    
+    void error(int lineNumber, String message) {
+        errorCount++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("Line " + lineNumber + ": " + message);
+        }
+    }
+    
+    void duplicate(int lineNumber, String studentId, String moduleCode) {
+        duplicates++;
+        error(lineNumber, "Duplicate result for " + studentId + " in " + moduleCode);
+    }
+    
+    void batchCommitted(int size) {
+        imported += size;
+        batches++;
+    }
+    
+    void batchFailed(int firstLine, int lastLine, int size, String message) {
+        failed += size;
+        errorCount += size;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("Lines " + firstLine + "-" + lastLine + ": " + size + " rows not saved: " + message);
+        }
+    }
+    
+    // Getters
+    public int getRowsRead() { return rowsRead; }
+    public int getImported() { return imported; }
+    public int getDuplicates() { return duplicates; }
+    public int getFailed() { return failed; }
+    public int getErrorCount() { return errorCount; }
+    public int getBatches() { return batches; }
+    public List<String> getErrors() { return errors; }
+    
+    @Override
+    public String toString() {
+        return "ImportReport{rows=" + rowsRead + ", imported=" + imported + ", duplicates=" + duplicates
+                + ", failed=" + failed + ", errors=" + errorCount + ", batches=" + batches + "}";
+    }
+}
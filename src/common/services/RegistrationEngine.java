@@ -0,0 +1,604 @@
+package common.services;
+
+import common.models.ModuleRegistration;
+import common.models.Student;
+import common.network.RequestDispatcher;
+import common.network.RequestHandler;
+import common.network.Response;
+import common.storage.EntityKeys;
+import common.storage.ObservableStorage;
+import common.storage.StorageListener;
+import common.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Module registration with in-memory seat accounting (REGISTER_MODULE, DROP_MODULE)
+ *
+ * Every module has an atomic count of taken seats that is only raised by
+ * compare-and-set while it is below Module.maxStudents, so a module can
+ * never be oversold however many registrations race for it. Each
+ * (student, module) pair is claimed with putIfAbsent first, which makes a
+ * repeated registration a no-op. Students who find the module full join
+ * its waitlist and are promoted in order when a seat is released or the
+ * capacity is raised.
+ *
+ * Accepted changes are written behind in batches: at most every
+ * REGISTRATION_FLUSH_MILLIS, the pending registrations are stored with one
+ * write to the registrations file and one to the students file (which
+ * keeps Student.registeredModules in step). A change that has not been
+ * flushed yet is lost if the process dies; call flush() where that matters.
+ *
+ * The engine owns the registrations file: it must be the only writer.
+ */
+public class RegistrationEngine implements StorageListener {
+
+    public enum Outcome {
+        REGISTERED, WAITLISTED, ALREADY_REGISTERED, ALREADY_WAITLISTED, UNKNOWN_MODULE, UNKNOWN_STUDENT
+    }
+
+    private static final int PENDING = 0;
+    private static final int SEATED = 1;
+    private static final int WAITING = 2;
+    private static final int DROPPED = 3;
+
+    private final ObservableStorage storage;
+    private final long flushMillis;
+    private final Map<String, ModuleSeats> modules = new ConcurrentHashMap<>();
+    private final Set<String> students = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<ModuleRegistration> pending = new ConcurrentLinkedQueue<>();
+    private volatile boolean loaded;
+
+    // Flush state, guarded by flushLock
+    private final Object flushLock = new Object();
+    private final Set<String> persistedKeys = new HashSet<>();
+    private final Map<String, ModuleRegistration> retry = new LinkedHashMap<>();
+    private volatile Thread flushThread;
+
+    // Background writer, guarded by flusherLock; record() never waits for a flush
+    private final Object flusherLock = new Object();
+    private volatile ScheduledExecutorService flusher;
+
+    public RegistrationEngine(ObservableStorage storage) {
+        this(storage, Constants.REGISTRATION_FLUSH_MILLIS);
+    }
+
+    /**
+     * @param storage Storage holding modules, students and registrations
+     * @param flushMillis Longest time an accepted change waits before it is written
+     */
+    public RegistrationEngine(ObservableStorage storage, long flushMillis) {
+        this.storage = storage;
+        this.flushMillis = flushMillis;
+        storage.addListener(this);
+    }
+
+    /**
+     * Register REGISTER_MODULE and DROP_MODULE for students only
+     * Request data is the module code; the student comes from the session.
+     * @param dispatcher The student and module service dispatcher
+     * @param studentIdResolver Maps a session id to the logged-in student id
+     */
+    public void register(RequestDispatcher dispatcher, Function<String, String> studentIdResolver) {
+        register(dispatcher, studentIdResolver, null);
+    }
+
+    /**
+     * Register REGISTER_MODULE and DROP_MODULE
+     * Request data is the module code (student from the session) or, for
+     * admins only, a ModuleRegistration naming both student and module.
+     * @param dispatcher The student and module service dispatcher
+     * @param studentIdResolver Maps a session id to the logged-in student id
+     * @param adminResolver Maps a session id to an admin allowed to register
+     *                      or drop any student, or to null; may itself be null
+     */
+    public void register(RequestDispatcher dispatcher, Function<String, String> studentIdResolver,
+                         Function<String, String> adminResolver) {
+        dispatcher.register(Constants.REGISTER_MODULE, handler(studentIdResolver, adminResolver, true));
+        dispatcher.register(Constants.DROP_MODULE, handler(studentIdResolver, adminResolver, false));
+    }
+
+    private RequestHandler handler(Function<String, String> studentIdResolver,
+                                   Function<String, String> adminResolver, boolean registering) {
+        return request -> {
+            String studentId;
+            String moduleCode;
+            if (request.getData() instanceof ModuleRegistration) {
+                if (adminResolver == null || adminResolver.apply(request.getSessionId()) == null) {
+                    return Response.failure("Not authorized to register another student");
+                }
+                ModuleRegistration data = (ModuleRegistration) request.getData();
+                studentId = data.getStudentId();
+                moduleCode = data.getModuleCode();
+            } else if (request.getData() instanceof String) {
+                studentId = studentIdResolver.apply(request.getSessionId());
+                moduleCode = (String) request.getData();
+            } else {
+                return Response.failure("Expected a module code or ModuleRegistration");
+            }
+            if (studentId == null || moduleCode == null) {
+                return Response.failure("Student or module not given");
+            }
+            if (!registering) {
+                return drop(studentId, moduleCode)
+                        ? new Response(Constants.SUCCESS, "Dropped " + moduleCode, moduleCode)
+                        : Response.failure("Not registered for " + moduleCode);
+            }
+            Outcome outcome = register(studentId, moduleCode);
+            switch (outcome) {
+                case UNKNOWN_MODULE:
+                    return Response.failure("Module not found: " + moduleCode);
+                case UNKNOWN_STUDENT:
+                    return Response.failure("Student not found: " + studentId);
+                default:
+                    return new Response(Constants.SUCCESS, outcome.name(), moduleCode);
+            }
+        };
+    }
+
+    /**
+     * Register a student for a module, or put them on its waitlist if it is full
+     * Repeating a registration returns ALREADY_REGISTERED or ALREADY_WAITLISTED
+     * and changes nothing.
+     */
+    public Outcome register(String studentId, String moduleCode) {
+        ensureLoaded();
+        ModuleSeats seats = modules.get(moduleCode);
+        if (seats == null) {
+            return Outcome.UNKNOWN_MODULE;
+        }
+        if (!students.contains(studentId)) {
+            return Outcome.UNKNOWN_STUDENT;
+        }
+        Entry claim = new Entry(studentId);
+        while (true) {
+            Entry existing = seats.entries.putIfAbsent(studentId, claim);
+            if (existing == null) {
+                break;
+            }
+            int state = settledState(existing);
+            if (state == SEATED) {
+                return Outcome.ALREADY_REGISTERED;
+            }
+            if (state == WAITING) {
+                return Outcome.ALREADY_WAITLISTED;
+            }
+            // Being dropped; the dropping thread removes it next
+            Thread.onSpinWait();
+        }
+
+        // A change is recorded before its state is visible, so the records
+        // of one (student, module) pair are queued in the order they happen
+        if (seats.tryTakeSeat()) {
+            record(studentId, moduleCode, ModuleRegistration.ACTIVE);
+            claim.state.set(SEATED);
+            return Outcome.REGISTERED;
+        }
+        record(studentId, moduleCode, ModuleRegistration.WAITLISTED);
+        claim.state.set(WAITING);
+        seats.waitlist.add(claim);
+        // A seat may have been released before the claim joined the waitlist
+        promote(seats);
+        return settledState(claim) == SEATED ? Outcome.REGISTERED : Outcome.WAITLISTED;
+    }
+
+    /**
+     * Drop a registration or leave the waitlist
+     * A released seat goes to the first student on the waitlist.
+     * @return true if the student was registered or waitlisted
+     */
+    public boolean drop(String studentId, String moduleCode) {
+        ensureLoaded();
+        ModuleSeats seats = modules.get(moduleCode);
+        Entry entry = seats != null ? seats.entries.get(studentId) : null;
+        if (entry == null) {
+            return false;
+        }
+        while (true) {
+            int state = settledState(entry);
+            if (state == DROPPED || !entry.state.compareAndSet(state, DROPPED)) {
+                if (state == DROPPED) {
+                    return false;
+                }
+                continue;
+            }
+            record(studentId, moduleCode, ModuleRegistration.DROPPED);
+            seats.entries.remove(studentId, entry);
+            if (state == SEATED) {
+                seats.releaseSeat();
+                promote(seats);
+            } else {
+                seats.waitlist.remove(entry);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Check whether a student holds a seat in a module
+     */
+    public boolean isRegistered(String studentId, String moduleCode) {
+        ensureLoaded();
+        ModuleSeats seats = modules.get(moduleCode);
+        Entry entry = seats != null ? seats.entries.get(studentId) : null;
+        return entry != null && entry.state.get() == SEATED;
+    }
+
+    /**
+     * Number of taken seats in a module, or -1 if the module is unknown
+     */
+    public int getTakenSeats(String moduleCode) {
+        ensureLoaded();
+        ModuleSeats seats = modules.get(moduleCode);
+        return seats != null ? seats.taken.get() : -1;
+    }
+
+    /**
+     * Number of students waiting for a module, or -1 if the module is unknown
+     */
+    public int getWaitlistSize(String moduleCode) {
+        ensureLoaded();
+        ModuleSeats seats = modules.get(moduleCode);
+        if (seats == null) {
+            return -1;
+        }
+        int waiting = 0;
+        for (Entry entry : seats.waitlist) {
+            if (entry.state.get() == WAITING) {
+                waiting++;
+            }
+        }
+        return waiting;
+    }
+
+    /**
+     * Write every accepted change now
+     * Registrations go to the registrations file in one write, and the
+     * affected students' registeredModules in one write to the students file.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<String, ModuleRegistration> batch = new LinkedHashMap<>(retry);
+            retry.clear();
+            ModuleRegistration change;
+            while ((change = pending.poll()) != null) {
+                batch.put(EntityKeys.keyOf(change), change);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            flushThread = Thread.currentThread();
+            try {
+                writeRegistrations(batch);
+                // Written; a retry after a failed students write replaces them instead of appending again
+                persistedKeys.addAll(batch.keySet());
+                writeStudents(batch);
+            } catch (RuntimeException e) {
+                System.err.println("❌ Error writing " + batch.size() + " registrations, will retry: " + e.getMessage());
+                e.printStackTrace();
+                retry.putAll(batch);
+            } finally {
+                flushThread = null;
+            }
+        }
+    }
+
+    /**
+     * Stop the background writer and write what is pending
+     */
+    public void close() {
+        synchronized (flusherLock) {
+            if (flusher != null) {
+                flusher.shutdown();
+                flusher = null;
+            }
+        }
+        flush();
+    }
+
+    private void writeRegistrations(Map<String, ModuleRegistration> batch) {
+        boolean rewrite = false;
+        for (String key : batch.keySet()) {
+            if (persistedKeys.contains(key)) {
+                rewrite = true;
+                break;
+            }
+        }
+        if (!rewrite) {
+            storage.appendAll(new ArrayList<>(batch.values()), Constants.REGISTRATIONS_FILE);
+            return;
+        }
+        // Some registrations changed state; replace them in one rewrite
+        List<Object> all = new ArrayList<>(storage.loadAll(Constants.REGISTRATIONS_FILE));
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < all.size(); i++) {
+            positions.put(EntityKeys.keyOf(all.get(i)), i);
+        }
+        for (Map.Entry<String, ModuleRegistration> entry : batch.entrySet()) {
+            Integer position = positions.get(entry.getKey());
+            if (position != null) {
+                all.set(position, entry.getValue());
+            } else {
+                all.add(entry.getValue());
+            }
+        }
+        storage.saveAll(all, Constants.REGISTRATIONS_FILE);
+    }
+
+    /**
+     * Apply the batch to registeredModules under the students file's write
+     * lock, so a student added or updated meanwhile is not overwritten
+     */
+    private void writeStudents(Map<String, ModuleRegistration> batch) {
+        Map<String, List<ModuleRegistration>> byStudent = new HashMap<>();
+        for (ModuleRegistration registration : batch.values()) {
+            byStudent.computeIfAbsent(registration.getStudentId(), s -> new ArrayList<>()).add(registration);
+        }
+        storage.modify(Constants.STUDENTS_FILE, () -> applyToStudents(byStudent));
+    }
+
+    private void applyToStudents(Map<String, List<ModuleRegistration>> byStudent) {
+        List<Object> all = new ArrayList<>(storage.loadAll(Constants.STUDENTS_FILE));
+        boolean changed = false;
+        for (Object obj : all) {
+            if (!(obj instanceof Student)) {
+                continue;
+            }
+            Student student = (Student) obj;
+            List<ModuleRegistration> registrations = byStudent.get(student.getId());
+            if (registrations == null) {
+                continue;
+            }
+            for (ModuleRegistration registration : registrations) {
+                changed |= registration.isActive()
+                        ? student.addRegisteredModule(registration.getModuleCode())
+                        : student.removeRegisteredModule(registration.getModuleCode());
+            }
+        }
+        if (changed) {
+            storage.saveAll(all, Constants.STUDENTS_FILE);
+        }
+    }
+
+    /**
+     * Give free seats to waitlisted students, first come first served
+     */
+    private void promote(ModuleSeats seats) {
+        while (true) {
+            Entry head = seats.waitlist.peek();
+            if (head == null) {
+                return;
+            }
+            if (head.state.get() != WAITING) {
+                seats.waitlist.remove(head);
+                continue;
+            }
+            if (!seats.tryTakeSeat()) {
+                return;
+            }
+            if (head.state.compareAndSet(WAITING, PENDING)) {
+                seats.waitlist.remove(head);
+                record(head.studentId, seats.code, ModuleRegistration.ACTIVE);
+                head.state.set(SEATED);
+            } else {
+                seats.releaseSeat();
+            }
+        }
+    }
+
+    private void record(String studentId, String moduleCode, String status) {
+        ModuleRegistration registration = new ModuleRegistration(studentId, moduleCode);
+        registration.setRegistrationDate(new Date());
+        registration.setStatus(status);
+        pending.add(registration);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flusher != null) {
+            return;
+        }
+        synchronized (flusherLock) {
+            if (flusher == null) {
+                flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "registration-flusher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private static int settledState(Entry entry) {
+        int state;
+        while ((state = entry.state.get()) == PENDING) {
+            Thread.onSpinWait();
+        }
+        return state;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            for (Object obj : storage.loadAll(Constants.MODULES_FILE)) {
+                if (obj instanceof common.models.Module) {
+                    common.models.Module module = (common.models.Module) obj;
+                    modules.put(module.getCode(), new ModuleSeats(module.getCode(), module.getMaxStudents()));
+                }
+            }
+            for (Object obj : storage.loadAll(Constants.STUDENTS_FILE)) {
+                if (obj instanceof Student && ((Student) obj).getId() != null) {
+                    students.add(((Student) obj).getId());
+                }
+            }
+            int active = 0;
+            int waiting = 0;
+            synchronized (flushLock) {
+                for (Object obj : storage.loadAll(Constants.REGISTRATIONS_FILE)) {
+                    if (!(obj instanceof ModuleRegistration)) {
+                        continue;
+                    }
+                    ModuleRegistration registration = (ModuleRegistration) obj;
+                    persistedKeys.add(EntityKeys.keyOf(registration));
+                    ModuleSeats seats = modules.get(registration.getModuleCode());
+                    if (seats == null || ModuleRegistration.DROPPED.equals(registration.getStatus())) {
+                        continue;
+                    }
+                    Entry entry = new Entry(registration.getStudentId());
+                    if (seats.entries.putIfAbsent(entry.studentId, entry) != null) {
+                        continue;
+                    }
+                    if (ModuleRegistration.WAITLISTED.equals(registration.getStatus())) {
+                        entry.state.set(WAITING);
+                        seats.waitlist.add(entry);
+                        waiting++;
+                    } else {
+                        // Seats taken before capacity checks existed are kept even above maxStudents
+                        entry.state.set(SEATED);
+                        seats.taken.incrementAndGet();
+                        active++;
+                    }
+                }
+            }
+            loaded = true;
+            System.out.println("📝 Registration engine loaded " + modules.size() + " modules, "
+                    + active + " registrations, " + waiting + " waitlisted");
+        }
+    }
+
+    /**
+     * Whether a storage event has to be applied to the loaded state
+     * Waits out a load in progress, which may have read the file before the
+     * write. Before any load there is nothing to update: the load reads it.
+     */
+    private boolean awaitLoaded() {
+        if (loaded) {
+            return true;
+        }
+        synchronized (this) {
+            return loaded;
+        }
+    }
+
+    // StorageListener
+
+    @Override
+    public void onSave(String filename, Object obj) {
+        if (Thread.currentThread() == flushThread || !awaitLoaded()) {
+            return;
+        }
+        if (Constants.MODULES_FILE.equals(filename) && obj instanceof common.models.Module) {
+            updateModule((common.models.Module) obj);
+        } else if (Constants.STUDENTS_FILE.equals(filename) && obj instanceof Student) {
+            students.add(((Student) obj).getId());
+        }
+    }
+
+    @Override
+    public void onUpdate(String filename, Object oldObj, Object newObj) {
+        onSave(filename, newObj);
+    }
+
+    @Override
+    public void onDelete(String filename, String id) {
+        if (Constants.STUDENTS_FILE.equals(filename) && awaitLoaded()) {
+            students.remove(id);
+        }
+    }
+
+    @Override
+    public void onReset(String filename) {
+        if (Thread.currentThread() == flushThread || !awaitLoaded()) {
+            return;
+        }
+        if (Constants.MODULES_FILE.equals(filename)) {
+            for (Object obj : storage.loadAll(Constants.MODULES_FILE)) {
+                if (obj instanceof common.models.Module) {
+                    updateModule((common.models.Module) obj);
+                }
+            }
+        } else if (Constants.STUDENTS_FILE.equals(filename)) {
+            Set<String> ids = new HashSet<>();
+            for (Object obj : storage.loadAll(Constants.STUDENTS_FILE)) {
+                if (obj instanceof Student) {
+                    ids.add(((Student) obj).getId());
+                }
+            }
+            students.addAll(ids);
+            students.retainAll(ids);
+        }
+    }
+
+    private void updateModule(common.models.Module module) {
+        ModuleSeats seats = modules.computeIfAbsent(module.getCode(),
+                code -> new ModuleSeats(code, module.getMaxStudents()));
+        if (seats.capacity != module.getMaxStudents()) {
+            seats.capacity = module.getMaxStudents();
+            promote(seats);
+        }
+    }
+
+    /**
+     * One student's claim on a module
+     */
+    private static final class Entry {
+        private final String studentId;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        Entry(String studentId) {
+            this.studentId = studentId;
+        }
+    }
+
+    /**
+     * Seat counter, claims and waitlist of one module
+     */
+    private static final class ModuleSeats {
+        private final String code;
+        private final AtomicInteger taken = new AtomicInteger();
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        private final ConcurrentLinkedQueue<Entry> waitlist = new ConcurrentLinkedQueue<>();
+        private volatile int capacity;
+
+        ModuleSeats(String code, int capacity) {
+            this.code = code;
+            this.capacity = capacity;
+        }
+
+        boolean tryTakeSeat() {
+            while (true) {
+                int current = taken.get();
+                if (current >= capacity) {
+                    return false;
+                }
+                if (taken.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void releaseSeat() {
+            taken.decrementAndGet();
+        }
+    }
+}
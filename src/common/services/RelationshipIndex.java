@@ -0,0 +1,489 @@
+package common.services;
+
+import common.models.Batch;
+import common.models.Exam;
+import common.models.Lecturer;
+import common.models.ModuleRegistration;
+import common.models.Student;
+import common.network.RequestDispatcher;
+import common.network.RequestHandler;
+import common.network.Response;
+import common.storage.DataStorage;
+import common.storage.EntityKeys;
+import common.storage.ObservableStorage;
+import common.storage.StorageListener;
+import common.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory graph of the links between students, batches, modules,
+ * lecturers and exams
+ *
+ * Each link is kept in both directions, so questions such as "which
+ * students sit exam E" or "which modules does lecturer L teach" are a few
+ * hash lookups instead of a load of every file on the way. A link can be
+ * stated by more than one record (a batch lists its students and each
+ * student names its batch); links are reference-counted by the records
+ * that state them, so removing one record leaves the others' links in
+ * place. The graph is built on first use and kept current from
+ * ObservableStorage events.
+ */
+public class RelationshipIndex implements StorageListener {
+
+    private static final String[] FILES = {
+            Constants.MODULES_FILE, Constants.LECTURERS_FILE, Constants.BATCHES_FILE,
+            Constants.STUDENTS_FILE, Constants.REGISTRATIONS_FILE, Constants.EXAMS_FILE
+    };
+
+    private final DataStorage storage;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final Relation batchStudents = new Relation();
+    private final Relation moduleStudents = new Relation();
+    private final Relation lecturerModules = new Relation();
+    private final Relation moduleExams = new Relation();
+    private final Relation batchExams = new Relation();
+    private final Map<String, common.models.Module> modules = new LinkedHashMap<>();
+    private final Map<String, Exam> exams = new HashMap<>();
+    // Links stated by each record: file -> record key -> links
+    private final Map<String, Map<String, List<Link>>> statedBy = new HashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * @param storage Storage whose writes keep the graph current
+     */
+    public RelationshipIndex(ObservableStorage storage) {
+        this.storage = storage;
+        storage.addListener(this);
+    }
+
+    /**
+     * Register GET_STUDENT_MODULES and GET_AVAILABLE_MODULES for students only
+     * The student comes from the session. Responses are lists of Module.
+     * @param dispatcher The student and module service dispatcher
+     * @param studentIdResolver Maps a session id to the logged-in student id
+     */
+    public void register(RequestDispatcher dispatcher, Function<String, String> studentIdResolver) {
+        register(dispatcher, studentIdResolver, null);
+    }
+
+    /**
+     * Register GET_STUDENT_MODULES and GET_AVAILABLE_MODULES
+     * The student comes from the session, or, for admins only, from the
+     * request data. Responses are lists of Module.
+     * @param dispatcher The student and module service dispatcher
+     * @param studentIdResolver Maps a session id to the logged-in student id
+     * @param adminResolver Maps a session id to an admin allowed to look up
+     *                      any student, or to null; may itself be null
+     */
+    public void register(RequestDispatcher dispatcher, Function<String, String> studentIdResolver,
+                         Function<String, String> adminResolver) {
+        dispatcher.register(Constants.GET_STUDENT_MODULES, handler(studentIdResolver, adminResolver, true, true));
+        dispatcher.register(Constants.GET_AVAILABLE_MODULES, handler(studentIdResolver, adminResolver, false, true));
+    }
+
+    /**
+     * Register VIEW_REGISTERED_MODULES and VIEW_AVAILABLE_MODULES for the student portal
+     * The student always comes from the session; request data is ignored.
+     */
+    public void registerPortal(RequestDispatcher dispatcher, Function<String, String> studentIdResolver) {
+        dispatcher.register(Constants.VIEW_REGISTERED_MODULES, handler(studentIdResolver, null, true, false));
+        dispatcher.register(Constants.VIEW_AVAILABLE_MODULES, handler(studentIdResolver, null, false, false));
+    }
+
+    private RequestHandler handler(Function<String, String> studentIdResolver, Function<String, String> adminResolver,
+                                   boolean registered, boolean studentFromData) {
+        return request -> {
+            String studentId = studentIdResolver.apply(request.getSessionId());
+            if (studentFromData && request.getData() instanceof String && !request.getData().equals(studentId)) {
+                if (adminResolver == null || adminResolver.apply(request.getSessionId()) == null) {
+                    return Response.failure("Not authorized to view another student's modules");
+                }
+                studentId = (String) request.getData();
+            }
+            if (studentId == null) {
+                return Response.failure("Student not found");
+            }
+            return Response.success(registered ? getModulesOfStudent(studentId) : getAvailableModules(studentId));
+        };
+    }
+
+    // Queries
+
+    public Set<String> getStudentsOfBatch(String batchId) {
+        return read(() -> batchStudents.targets(batchId));
+    }
+
+    public Set<String> getBatchesOfStudent(String studentId) {
+        return read(() -> batchStudents.sources(studentId));
+    }
+
+    /**
+     * Codes of the modules a student is registered for
+     */
+    public Set<String> getModuleCodesOfStudent(String studentId) {
+        return read(() -> moduleStudents.sources(studentId));
+    }
+
+    public Set<String> getStudentsOfModule(String moduleCode) {
+        return read(() -> moduleStudents.targets(moduleCode));
+    }
+
+    public Set<String> getModulesOfLecturer(String lecturerId) {
+        return read(() -> lecturerModules.targets(lecturerId));
+    }
+
+    public Set<String> getLecturersOfModule(String moduleCode) {
+        return read(() -> lecturerModules.sources(moduleCode));
+    }
+
+    public Set<String> getExamsOfModule(String moduleCode) {
+        return read(() -> moduleExams.targets(moduleCode));
+    }
+
+    public Set<String> getExamsOfBatch(String batchId) {
+        return read(() -> batchExams.targets(batchId));
+    }
+
+    /**
+     * Modules a student is registered for
+     */
+    public List<common.models.Module> getModulesOfStudent(String studentId) {
+        return read(() -> {
+            List<common.models.Module> result = new ArrayList<>();
+            for (String code : moduleStudents.sourcesView(studentId)) {
+                common.models.Module module = modules.get(code);
+                if (module != null) {
+                    result.add(module);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Modules a student is not registered for
+     */
+    public List<common.models.Module> getAvailableModules(String studentId) {
+        return read(() -> {
+            Set<String> registered = moduleStudents.sourcesView(studentId);
+            List<common.models.Module> result = new ArrayList<>();
+            for (common.models.Module module : modules.values()) {
+                if (!registered.contains(module.getCode())) {
+                    result.add(module);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Students who sit an exam
+     * These are the students of the exam's batch who are registered for its
+     * module. If the exam has no batch, every registered student sits it; if
+     * nobody is registered for the module, the whole batch does.
+     */
+    public Set<String> getExamRoster(String examId) {
+        return read(() -> {
+            Exam exam = exams.get(examId);
+            if (exam == null) {
+                return Collections.<String>emptySet();
+            }
+            Set<String> registered = moduleStudents.targetsView(exam.getModuleCode());
+            if (exam.getBatchId() == null) {
+                return new LinkedHashSet<>(registered);
+            }
+            Set<String> batch = batchStudents.targetsView(exam.getBatchId());
+            if (registered.isEmpty()) {
+                return new LinkedHashSet<>(batch);
+            }
+            Set<String> roster = new LinkedHashSet<>();
+            for (String studentId : batch) {
+                if (registered.contains(studentId)) {
+                    roster.add(studentId);
+                }
+            }
+            return roster;
+        });
+    }
+
+    /**
+     * Exams a student may sit: those of their batches and of their modules
+     */
+    public Set<String> getExamsOfStudent(String studentId) {
+        return read(() -> {
+            Set<String> result = new LinkedHashSet<>();
+            for (String batchId : batchStudents.sourcesView(studentId)) {
+                result.addAll(batchExams.targetsView(batchId));
+            }
+            for (String moduleCode : moduleStudents.sourcesView(studentId)) {
+                result.addAll(moduleExams.targetsView(moduleCode));
+            }
+            return result;
+        });
+    }
+
+    // StorageListener
+
+    @Override
+    public void onSave(String filename, Object obj) {
+        lock.writeLock().lock();
+        try {
+            // Checked under the lock, so a write during the load waits for it
+            if (!loaded) {
+                return;
+            }
+            add(filename, obj);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onUpdate(String filename, Object oldObj, Object newObj) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            remove(filename, EntityKeys.keyOf(oldObj));
+            remove(filename, EntityKeys.keyOf(newObj));
+            add(filename, newObj);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDelete(String filename, String id) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            remove(filename, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onReset(String filename) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded || !statedBy.containsKey(filename)) {
+                return;
+            }
+            // Loaded under the lock so a write applied meanwhile is not undone
+            List<Object> objects = storage.loadAll(filename);
+            for (String key : new ArrayList<>(statedBy.get(filename).keySet())) {
+                remove(filename, key);
+            }
+            for (Object obj : objects) {
+                add(filename, obj);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <T> T read(Supplier<T> query) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            for (String filename : FILES) {
+                statedBy.put(filename, new HashMap<>());
+                for (Object obj : storage.loadAll(filename)) {
+                    add(filename, obj);
+                }
+            }
+            loaded = true;
+            System.out.println("🔗 Relationship index built: " + modules.size() + " modules, "
+                    + exams.size() + " exams, " + moduleStudents.size() + " registrations");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add the links a record states
+     */
+    private void add(String filename, Object obj) {
+        Map<String, List<Link>> records = statedBy.get(filename);
+        String key = EntityKeys.keyOf(obj);
+        if (records == null || key == null) {
+            return;
+        }
+        List<Link> links = records.computeIfAbsent(key, k -> new ArrayList<>());
+        if (obj instanceof Student) {
+            Student student = (Student) obj;
+            link(links, batchStudents, student.getBatchId(), student.getId());
+            for (String moduleCode : student.getRegisteredModules()) {
+                link(links, moduleStudents, moduleCode, student.getId());
+            }
+        } else if (obj instanceof Batch) {
+            Batch batch = (Batch) obj;
+            for (String studentId : batch.getStudentIds()) {
+                link(links, batchStudents, batch.getId(), studentId);
+            }
+        } else if (obj instanceof ModuleRegistration) {
+            ModuleRegistration registration = (ModuleRegistration) obj;
+            if (registration.isActive()) {
+                link(links, moduleStudents, registration.getModuleCode(), registration.getStudentId());
+            }
+        } else if (obj instanceof common.models.Module) {
+            common.models.Module module = (common.models.Module) obj;
+            modules.put(module.getCode(), module);
+            link(links, lecturerModules, module.getLecturerId(), module.getCode());
+        } else if (obj instanceof Lecturer) {
+            Lecturer lecturer = (Lecturer) obj;
+            for (String moduleCode : lecturer.getModuleIds()) {
+                link(links, lecturerModules, lecturer.getId(), moduleCode);
+            }
+        } else if (obj instanceof Exam) {
+            Exam exam = (Exam) obj;
+            exams.put(exam.getId(), exam);
+            link(links, moduleExams, exam.getModuleCode(), exam.getId());
+            link(links, batchExams, exam.getBatchId(), exam.getId());
+        }
+    }
+
+    /**
+     * Remove the links stated by the records with a key
+     */
+    private void remove(String filename, String key) {
+        Map<String, List<Link>> records = statedBy.get(filename);
+        if (records == null || key == null) {
+            return;
+        }
+        List<Link> links = records.remove(key);
+        if (links != null) {
+            for (Link link : links) {
+                link.relation.unlink(link.source, link.target);
+            }
+        }
+        if (Constants.MODULES_FILE.equals(filename)) {
+            modules.remove(key);
+        } else if (Constants.EXAMS_FILE.equals(filename)) {
+            exams.remove(key);
+        }
+    }
+
+    private static void link(List<Link> links, Relation relation, String source, String target) {
+        if (source == null || target == null) {
+            return;
+        }
+        relation.link(source, target);
+        links.add(new Link(relation, source, target));
+    }
+
+    /**
+     * One link stated by one record
+     */
+    private static final class Link {
+        private final Relation relation;
+        private final String source;
+        private final String target;
+
+        Link(Relation relation, String source, String target) {
+            this.relation = relation;
+            this.source = source;
+            this.target = target;
+        }
+    }
+
+    /**
+     * Many-to-many relation indexed both ways, with a count per link
+     */
+    private static final class Relation {
+        private final Map<String, Map<String, Integer>> forward = new HashMap<>();
+        private final Map<String, Map<String, Integer>> reverse = new HashMap<>();
+        private int size;
+
+        void link(String source, String target) {
+            if (forward.computeIfAbsent(source, s -> new LinkedHashMap<>()).merge(target, 1, Integer::sum) == 1) {
+                size++;
+            }
+            reverse.computeIfAbsent(target, t -> new LinkedHashMap<>()).merge(source, 1, Integer::sum);
+        }
+
+        void unlink(String source, String target) {
+            if (decrement(forward, source, target)) {
+                size--;
+            }
+            decrement(reverse, target, source);
+        }
+
+        Set<String> targets(String source) {
+            return new LinkedHashSet<>(targetsView(source));
+        }
+
+        Set<String> sources(String target) {
+            return new LinkedHashSet<>(sourcesView(target));
+        }
+
+        Set<String> targetsView(String source) {
+            Map<String, Integer> targets = source != null ? forward.get(source) : null;
+            return targets != null ? targets.keySet() : Collections.emptySet();
+        }
+
+        Set<String> sourcesView(String target) {
+            Map<String, Integer> sources = target != null ? reverse.get(target) : null;
+            return sources != null ? sources.keySet() : Collections.emptySet();
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return true if the last count of the link was removed
+         */
+        private static boolean decrement(Map<String, Map<String, Integer>> index, String from, String to) {
+            Map<String, Integer> links = index.get(from);
+            if (links == null) {
+                return false;
+            }
+            Integer count = links.get(to);
+            if (count == null) {
+                return false;
+            }
+            if (count > 1) {
+                links.put(to, count - 1);
+                return false;
+            }
+            links.remove(to);
+            if (links.isEmpty()) {
+                index.remove(from);
+            }
+            return true;
+        }
+    }
+}
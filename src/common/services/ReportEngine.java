@@ -0,0 +1,428 @@
+package common.services;
+
+import common.models.Result;
+import common.models.ResultColumns;
+import common.storage.DataStorage;
+import common.utils.Constants;
+import common.utils.GradeCalculator;
+import common.utils.StringDictionary;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Parallel result statistics per module or batch, with CSV output
+ *
+ * Results are loaded into ResultColumns and split into one row list per
+ * group with a counting sort. Groups are then summarised in parallel, and
+ * a large group is itself split into chunks that are summarised in
+ * parallel and merged (fork/join). Each summary is a mark histogram plus
+ * running sums, so the median and percentiles come from the histogram
+ * without sorting.
+ *
+ * Marks outside MIN_MARKS..MAX_MARKS are counted in the lowest or highest
+ * histogram bucket; the mean, standard deviation, minimum and maximum use
+ * their exact values.
+ */
+public class ReportEngine {
+
+    // Rows per fork/join leaf when summarising one group
+    private static final int CHUNK_SIZE = 1 << 15;
+
+    private static final Comparator<StudentRank> BY_STANDING = Comparator
+            .comparingDouble(StudentRank::getGpa).reversed()
+            .thenComparing(Comparator.comparingDouble(StudentRank::getAverageMarks).reversed())
+            .thenComparing(StudentRank::getStudentId);
+
+    private final DataStorage storage;
+    private final ForkJoinPool pool;
+
+    public ReportEngine(DataStorage storage) {
+        this(storage, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param storage Storage holding the results file
+     * @param pool Pool the aggregation runs in
+     */
+    public ReportEngine(DataStorage storage, ForkJoinPool pool) {
+        this.storage = storage;
+        this.pool = pool;
+    }
+
+    /**
+     * Load every stored result into columns
+     * Results the columns cannot hold are left out and logged.
+     */
+    public ResultColumns loadResults() {
+        ResultColumns columns = new ResultColumns();
+        try (Stream<Result> results = storage.stream(Constants.RESULTS_FILE, Result.class)) {
+            results.forEachOrdered(result -> {
+                try {
+                    columns.add(result);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("❌ Skipping result " + result.getId() + ": " + e.getMessage());
+                }
+            });
+        }
+        columns.trimToSize();
+        return columns;
+    }
+
+    /**
+     * Statistics of every module, in order of first appearance
+     */
+    public List<ReportStatistics> moduleReport(ResultColumns columns) {
+        int[] groupOfRow = new int[columns.size()];
+        for (int row = 0; row < groupOfRow.length; row++) {
+            groupOfRow[row] = columns.getModuleKey(row);
+        }
+        return report(columns, groupOfRow, columns.getModuleCount(), columns::moduleOfKey);
+    }
+
+    /**
+     * Statistics of every batch
+     * @param batchOfStudent Maps a student id to their batch id (null if none)
+     */
+    public List<ReportStatistics> batchReport(ResultColumns columns, Function<String, String> batchOfStudent) {
+        StringDictionary batches = new StringDictionary();
+        int[] batchOfStudentKey = batchKeys(columns, batchOfStudent, batches);
+        int[] groupOfRow = new int[columns.size()];
+        for (int row = 0; row < groupOfRow.length; row++) {
+            int student = columns.getStudentKey(row);
+            groupOfRow[row] = student != StringDictionary.NULL_CODE ? batchOfStudentKey[student] : StringDictionary.NULL_CODE;
+        }
+        return report(columns, groupOfRow, batches.size(), batches::decode);
+    }
+
+    /**
+     * Statistics of all results together, under the group name ALL
+     */
+    public ReportStatistics overallReport(ResultColumns columns) {
+        int[] rows = IntStream.range(0, columns.size()).toArray();
+        return pool.submit(() -> statistics(columns, rows, "ALL")).join();
+    }
+
+    /**
+     * Rank the students of a batch by credit-weighted GPA, then average marks
+     * Students with equal GPA and average share a rank (1, 2, 2, 4).
+     * @param batchOfStudent Maps a student id to their batch id
+     * @param batchId The batch to rank
+     */
+    public List<StudentRank> batchRanking(ResultColumns columns, Function<String, String> batchOfStudent, String batchId) {
+        int students = columns.getStudentCount();
+        boolean[] inBatch = new boolean[students];
+        for (int key = 0; key < students; key++) {
+            inBatch[key] = batchId.equals(batchOfStudent.apply(columns.studentOfKey(key)));
+        }
+        double[] gradePoints = new double[columns.getGradeCount()];
+        for (int key = 0; key < gradePoints.length; key++) {
+            gradePoints[key] = GradeCalculator.getGradePoints(columns.gradeOfKey(key));
+        }
+
+        int[] credits = new int[students];
+        double[] points = new double[students];
+        long[] marks = new long[students];
+        int[] results = new int[students];
+        for (int row = 0; row < columns.size(); row++) {
+            int student = columns.getStudentKey(row);
+            if (student == StringDictionary.NULL_CODE || !inBatch[student]) {
+                continue;
+            }
+            int grade = columns.getGradeKey(row);
+            double point = grade != StringDictionary.NULL_CODE
+                    ? gradePoints[grade]
+                    : GradeCalculator.getGradePoints(columns.getMarks(row));
+            credits[student] += columns.getCredits(row);
+            points[student] += point * columns.getCredits(row);
+            marks[student] += columns.getMarks(row);
+            results[student]++;
+        }
+
+        List<StudentRank> ranking = new ArrayList<>();
+        for (int student = 0; student < students; student++) {
+            if (results[student] > 0) {
+                ranking.add(new StudentRank(columns.studentOfKey(student),
+                        credits[student] > 0 ? points[student] / credits[student] : 0.0,
+                        (double) marks[student] / results[student], credits[student], results[student]));
+            }
+        }
+        ranking.sort(BY_STANDING);
+        for (int i = 0; i < ranking.size(); i++) {
+            StudentRank current = ranking.get(i);
+            StudentRank previous = i > 0 ? ranking.get(i - 1) : null;
+            boolean tied = previous != null && previous.getGpa() == current.getGpa()
+                    && previous.getAverageMarks() == current.getAverageMarks();
+            current.setRank(tied ? previous.getRank() : i + 1);
+        }
+        return ranking;
+    }
+
+    /**
+     * Write statistics as CSV, one line per group
+     */
+    public void writeStatisticsCsv(List<ReportStatistics> report, Writer out) throws IOException {
+        out.write("group,count,mean,median,p25,p75,p90,std_dev,min,max,pass_rate");
+        for (int band = 0; band < ReportStatistics.BANDS; band++) {
+            out.write(',');
+            out.write(bandLabel(band));
+        }
+        out.write(",grades\n");
+        for (ReportStatistics stats : report) {
+            out.write(csv(stats.getGroup()));
+            out.write(',' + String.valueOf(stats.getCount()));
+            out.write(',' + decimal(stats.getMean()));
+            out.write(',' + decimal(stats.getMedian()));
+            out.write(',' + decimal(stats.getP25()));
+            out.write(',' + decimal(stats.getP75()));
+            out.write(',' + decimal(stats.getP90()));
+            out.write(',' + decimal(stats.getStandardDeviation()));
+            out.write(',' + String.valueOf(stats.getMinMarks()));
+            out.write(',' + String.valueOf(stats.getMaxMarks()));
+            out.write(',' + decimal(stats.getPassRate()));
+            for (int count : stats.getMarkBands()) {
+                out.write(',' + String.valueOf(count));
+            }
+            StringBuilder grades = new StringBuilder();
+            for (Map.Entry<String, Integer> grade : stats.getGradeCounts().entrySet()) {
+                if (grades.length() > 0) {
+                    grades.append(';');
+                }
+                grades.append(grade.getKey()).append(':').append(grade.getValue());
+            }
+            out.write(',' + csv(grades.toString()));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Write a ranking as CSV, one line per student
+     */
+    public void writeRankingCsv(List<StudentRank> ranking, Writer out) throws IOException {
+        out.write("rank,student_id,gpa,average_marks,credits,results\n");
+        for (StudentRank rank : ranking) {
+            out.write(String.valueOf(rank.getRank()));
+            out.write(',' + csv(rank.getStudentId()));
+            out.write(',' + decimal(rank.getGpa()));
+            out.write(',' + decimal(rank.getAverageMarks()));
+            out.write(',' + String.valueOf(rank.getCredits()));
+            out.write(',' + String.valueOf(rank.getResults()));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private List<ReportStatistics> report(ResultColumns columns, int[] groupOfRow, int groups, IntFunction<String> name) {
+        int[][] partitions = partition(groupOfRow, groups);
+        // Running the parallel stream from inside the pool keeps its work in that pool
+        return pool.submit(() -> IntStream.range(0, groups).parallel()
+                .filter(group -> partitions[group].length > 0)
+                .mapToObj(group -> statistics(columns, partitions[group], name.apply(group)))
+                .collect(Collectors.toList())).join();
+    }
+
+    /**
+     * Counting sort of row numbers by group; rows with a negative group are left out
+     */
+    private static int[][] partition(int[] groupOfRow, int groups) {
+        int[] counts = new int[groups];
+        for (int group : groupOfRow) {
+            if (group >= 0) {
+                counts[group]++;
+            }
+        }
+        int[][] partitions = new int[groups][];
+        for (int group = 0; group < groups; group++) {
+            partitions[group] = new int[counts[group]];
+        }
+        int[] filled = new int[groups];
+        for (int row = 0; row < groupOfRow.length; row++) {
+            int group = groupOfRow[row];
+            if (group >= 0) {
+                partitions[group][filled[group]++] = row;
+            }
+        }
+        return partitions;
+    }
+
+    private static int[] batchKeys(ResultColumns columns, Function<String, String> batchOfStudent, StringDictionary batches) {
+        int[] keys = new int[columns.getStudentCount()];
+        for (int student = 0; student < keys.length; student++) {
+            keys[student] = batches.encode(batchOfStudent.apply(columns.studentOfKey(student)));
+        }
+        return keys;
+    }
+
+    private static ReportStatistics statistics(ResultColumns columns, int[] rows, String group) {
+        Summary summary = new SummaryTask(columns, rows, 0, rows.length).invoke();
+        ReportStatistics stats = new ReportStatistics(group);
+        long n = summary.count;
+        stats.setCount((int) n);
+        if (n == 0) {
+            return stats;
+        }
+        double mean = (double) summary.sum / n;
+        stats.setMean(mean);
+        stats.setStandardDeviation(Math.sqrt(Math.max(0.0, (double) summary.sumOfSquares / n - mean * mean)));
+        stats.setMinMarks(summary.min);
+        stats.setMaxMarks(summary.max);
+        stats.setPassCount((int) summary.passed);
+        stats.setMedian(n % 2 == 1
+                ? summary.valueAt((n + 1) / 2)
+                : (summary.valueAt(n / 2) + summary.valueAt(n / 2 + 1)) / 2.0);
+        stats.setP25(summary.percentile(25));
+        stats.setP75(summary.percentile(75));
+        stats.setP90(summary.percentile(90));
+
+        // Bands count rows like passCount, so they fit in an int
+        int[] bands = new int[ReportStatistics.BANDS];
+        for (int i = 0; i < summary.histogram.length; i++) {
+            int marks = Constants.MIN_MARKS + i;
+            bands[Math.max(0, Math.min(ReportStatistics.BANDS - 1, marks / 10))] += (int) summary.histogram[i];
+        }
+        stats.setMarkBands(bands);
+        for (int grade = 0; grade < columns.getGradeCount(); grade++) {
+            if (summary.grades[grade + 1] > 0) {
+                stats.getGradeCounts().put(columns.gradeOfKey(grade), (int) summary.grades[grade + 1]);
+            }
+        }
+        return stats;
+    }
+
+    private static String bandLabel(int band) {
+        int low = band * 10;
+        return low + "-" + (band == ReportStatistics.BANDS - 1 ? Constants.MAX_MARKS : low + 9);
+    }
+
+    private static String decimal(double value) {
+        return String.valueOf(Math.round(value * 100) / 100.0);
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Summarises rows[from, to), splitting large ranges across the pool
+     */
+    private static final class SummaryTask extends RecursiveTask<Summary> {
+        private static final long serialVersionUID = 1L;
+
+        private final ResultColumns columns;
+        private final int[] rows;
+        private final int from;
+        private final int to;
+
+        SummaryTask(ResultColumns columns, int[] rows, int from, int to) {
+            this.columns = columns;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Summary compute() {
+            if (to - from <= CHUNK_SIZE) {
+                Summary summary = new Summary(columns.getGradeCount());
+                for (int i = from; i < to; i++) {
+                    int row = rows[i];
+                    summary.add(columns.getMarks(row), columns.getGradeKey(row));
+                }
+                return summary;
+            }
+            int middle = (from + to) >>> 1;
+            SummaryTask left = new SummaryTask(columns, rows, from, middle);
+            left.fork();
+            Summary right = new SummaryTask(columns, rows, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Mergeable histogram and running sums of marks
+     */
+    private static final class Summary {
+        private final long[] histogram = new long[Constants.MAX_MARKS - Constants.MIN_MARKS + 1];
+        // Index 0 counts results without a grade
+        private final long[] grades;
+        private long count;
+        private long sum;
+        private long sumOfSquares;
+        private long passed;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+
+        Summary(int gradeCount) {
+            this.grades = new long[gradeCount + 1];
+        }
+
+        void add(int marks, int grade) {
+            int bucket = Math.max(0, Math.min(histogram.length - 1, marks - Constants.MIN_MARKS));
+            histogram[bucket]++;
+            grades[grade + 1]++;
+            count++;
+            sum += marks;
+            sumOfSquares += (long) marks * marks;
+            if (GradeCalculator.isPass(marks)) {
+                passed++;
+            }
+            min = Math.min(min, marks);
+            max = Math.max(max, marks);
+        }
+
+        Summary merge(Summary other) {
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.histogram[i];
+            }
+            for (int i = 0; i < grades.length; i++) {
+                grades[i] += other.grades[i];
+            }
+            count += other.count;
+            sum += other.sum;
+            sumOfSquares += other.sumOfSquares;
+            passed += other.passed;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            return this;
+        }
+
+        /**
+         * Marks of the result at a 1-based position in sorted order
+         */
+        int valueAt(long rank) {
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= rank) {
+                    return Constants.MIN_MARKS + i;
+                }
+            }
+            return Constants.MAX_MARKS;
+        }
+
+        /**
+         * Nearest-rank percentile
+         */
+        int percentile(int p) {
+            return valueAt(Math.max(1, (long) Math.ceil(p / 100.0 * count)));
+        }
+    }
+}
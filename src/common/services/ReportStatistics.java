@@ -0,0 +1,94 @@
+package common.services;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mark statistics of one group of results (a module or a batch)
+ */
+public class ReportStatistics implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int BANDS = 10;
+
+    private String group;
+    private int count;
+    private double mean;
+    private double median;
+    private double p25;
+    private double p75;
+    private double p90;
+    private double standardDeviation;
+    private int minMarks;
+    private int maxMarks;
+    private int passCount;
+    private int[] markBands;
+    private Map<String, Integer> gradeCounts;
+
+    public ReportStatistics() {
+        this.markBands = new int[BANDS];
+        this.gradeCounts = new LinkedHashMap<>();
+    }
+
+    public ReportStatistics(String group) {
+        this();
+        this.group = group;
+    }
+
+    /**
+     * Fraction of results at or above the pass mark, 0 when empty
+     */
+    public double getPassRate() {
+        return count > 0 ? (double) passCount / count : 0.0;
+    }
+
+    // Getters and Setters
+    public String getGroup() { return group; }
+    public void setGroup(String group) { this.group = group; }
+
+    public int getCount() { return count; }
+    public void setCount(int count) { this.count = count; }
+
+    public double getMean() { return mean; }
+    public void setMean(double mean) { this.mean = mean; }
+
+    public double getMedian() { return median; }
+    public void setMedian(double median) { this.median = median; }
+
+    public double getP25() { return p25; }
+    public void setP25(double p25) { this.p25 = p25; }
+
+    public double getP75() { return p75; }
+    public void setP75(double p75) { this.p75 = p75; }
+
+    public double getP90() { return p90; }
+    public void setP90(double p90) { this.p90 = p90; }
+
+    public double getStandardDeviation() { return standardDeviation; }
+    public void setStandardDeviation(double standardDeviation) { this.standardDeviation = standardDeviation; }
+
+    public int getMinMarks() { return minMarks; }
+    public void setMinMarks(int minMarks) { this.minMarks = minMarks; }
+
+    public int getMaxMarks() { return maxMarks; }
+    public void setMaxMarks(int maxMarks) { this.maxMarks = maxMarks; }
+
+    public int getPassCount() { return passCount; }
+    public void setPassCount(int passCount) { this.passCount = passCount; }
+
+    /**
+     * Results per 10-mark band: 0-9, 10-19, ..., 90-100
+     */
+    public int[] getMarkBands() { return markBands; }
+    public void setMarkBands(int[] markBands) { this.markBands = markBands; }
+
+    public Map<String, Integer> getGradeCounts() { return gradeCounts; }
+    public void setGradeCounts(Map<String, Integer> gradeCounts) { this.gradeCounts = gradeCounts; }
+
+    @Override
+    public String toString() {
+        return "ReportStatistics{group='" + group + "', count=" + count + ", mean=" + mean
+                + ", median=" + median + ", passRate=" + getPassRate() + "}";
+    }
+}
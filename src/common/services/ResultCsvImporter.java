@@ -0,0 +1,235 @@
+package common.services;
+
+import common.models.Result;
+import common.network.RequestHandler;
+import common.network.Response;
+import common.storage.DataStorage;
+import common.utils.Constants;
+import common.utils.GradeCalculator;
+import common.utils.IDGenerator;
+import common.utils.Validator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Streaming bulk import of results from CSV (UPLOAD_CSV)
+ *
+ * Each line goes through parse -> validate -> grade -> deduplicate and is
+ * buffered into a batch; every full batch is committed with one
+ * DataStorage.appendAll() call instead of one file rewrite per result.
+ * Bad rows are reported in the ImportReport and do not stop the upload; a
+ * batch the storage fails to write is reported as failed rows, not imported.
+ *
+ * CSV columns: studentId,moduleCode,marks[,examId[,moduleName[,credits]]]
+ * A first line starting with "studentId" is treated as a header.
+ */
+public class ResultCsvImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 5000;
+
+    private final DataStorage storage;
+    private final int batchSize;
+
+    public ResultCsvImporter(DataStorage storage) {
+        this(storage, DEFAULT_BATCH_SIZE);
+    }
+
+    public ResultCsvImporter(DataStorage storage, int batchSize) {
+        this.storage = storage;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Handler for UPLOAD_CSV: request data is the CSV text, response data the ImportReport
+     * @param lecturerIdResolver Supplies the uploading lecturer from the session (may return null)
+     */
+    public RequestHandler handler(Function<String, String> lecturerIdResolver) {
+        return request -> {
+            if (!(request.getData() instanceof String)) {
+                return Response.failure("UPLOAD_CSV expects the CSV text as data");
+            }
+            String lecturerId = lecturerIdResolver.apply(request.getSessionId());
+            ImportReport report = importCsv(new StringReader((String) request.getData()), lecturerId);
+            return report.getImported() > 0 || report.getErrors().isEmpty()
+                    ? Response.success(report)
+                    : new Response(Constants.FAILED, "No rows imported", report);
+        };
+    }
+
+    /**
+     * Import results from CSV text
+     * @param csv The CSV source, read line by line
+     * @param lecturerId Lecturer recorded on every imported result (may be null)
+     * @return Counts and per-row errors
+     */
+    public ImportReport importCsv(Reader csv, String lecturerId) throws IOException {
+        ImportReport report = new ImportReport();
+        Set<String> seen = existingKeys();
+        List<Result> batch = new ArrayList<>(batchSize);
+        int batchStart = 0;
+        int batchEnd = 0;
+
+        BufferedReader reader = csv instanceof BufferedReader ? (BufferedReader) csv : new BufferedReader(csv);
+        String line;
+        int lineNumber = 0;
+        String[] fields = new String[6];
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty() || (lineNumber == 1 && line.regionMatches(true, 0, "studentId", 0, 9))) {
+                continue;
+            }
+            report.rowRead();
+
+            // Parse
+            int count = split(line, fields);
+            if (count < 3) {
+                report.error(lineNumber, "Expected at least studentId,moduleCode,marks");
+                continue;
+            }
+
+            // Validate
+            String studentId = fields[0];
+            String moduleCode = fields[1];
+            if (!Validator.isNotEmpty(studentId) || !Validator.isNotEmpty(moduleCode)) {
+                report.error(lineNumber, "Missing student id or module code");
+                continue;
+            }
+            int marks;
+            try {
+                marks = Integer.parseInt(fields[2]);
+            } catch (NumberFormatException e) {
+                report.error(lineNumber, "Marks is not a number: " + fields[2]);
+                continue;
+            }
+            if (!Validator.isValidMarks(marks)) {
+                report.error(lineNumber, "Marks out of range: " + marks);
+                continue;
+            }
+            int credits = 3;
+            if (count > 5 && !fields[5].isEmpty()) {
+                try {
+                    credits = Integer.parseInt(fields[5]);
+                } catch (NumberFormatException e) {
+                    credits = -1;
+                }
+                if (!Validator.isValidCredits(credits)) {
+                    report.error(lineNumber, "Invalid credits: " + fields[5]);
+                    continue;
+                }
+            }
+            String examId = count > 3 && !fields[3].isEmpty() ? fields[3] : null;
+
+            // Deduplicate against stored results and earlier rows
+            if (!seen.add(key(studentId, moduleCode, examId))) {
+                report.duplicate(lineNumber, studentId, moduleCode);
+                continue;
+            }
+
+            // Grade and build
+            Result result = new Result(studentId, moduleCode, marks);
+            result.setId(IDGenerator.generateResultId());
+            result.setExamId(examId);
+            result.setGrade(GradeCalculator.getGrade(marks));
+            result.setCredits(credits);
+            result.setLecturerId(lecturerId);
+            if (count > 4 && !fields[4].isEmpty()) {
+                result.setModuleName(fields[4]);
+            }
+            if (batch.isEmpty()) {
+                batchStart = lineNumber;
+            }
+            batch.add(result);
+            batchEnd = lineNumber;
+
+            // Commit
+            if (batch.size() >= batchSize) {
+                commit(batch, report, batchStart, batchEnd);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        commit(batch, report, batchStart, batchEnd);
+
+        System.out.println("📥 CSV import: " + report);
+        return report;
+    }
+
+    private void commit(List<Result> batch, ImportReport report, int firstLine, int lastLine) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            storage.appendAll(batch, Constants.RESULTS_FILE);
+        } catch (UncheckedIOException e) {
+            System.err.println("❌ Error saving " + batch.size() + " imported results: " + e.getMessage());
+            report.batchFailed(firstLine, lastLine, batch.size(), e.getMessage());
+            return;
+        }
+        report.batchCommitted(batch.size());
+    }
+
+    private Set<String> existingKeys() {
+        Set<String> keys = new HashSet<>();
+        for (Object obj : storage.loadAll(Constants.RESULTS_FILE)) {
+            if (obj instanceof Result) {
+                Result r = (Result) obj;
+                keys.add(key(r.getStudentId(), r.getModuleCode(), r.getExamId()));
+            }
+        }
+        return keys;
+    }
+
+    private static String key(String studentId, String moduleCode, String examId) {
+        return studentId + '\u0000' + moduleCode + '\u0000' + (examId != null ? examId : "");
+    }
+
+    /**
+     * Split a CSV line on commas into fields, trimming each field
+     * Double-quoted fields may contain commas; "" inside quotes is a quote.
+     * @return Number of fields found (fields beyond the array length are dropped)
+     */
+    static int split(String line, String[] fields) {
+        int count = 0;
+        int length = line.length();
+        int i = 0;
+        while (i <= length && count < fields.length) {
+            String field;
+            if (i < length && line.charAt(i) == '"') {
+                StringBuilder quoted = new StringBuilder();
+                i++;
+                while (i < length) {
+                    char c = line.charAt(i);
+                    if (c == '"') {
+                        if (i + 1 < length && line.charAt(i + 1) == '"') {
+                            quoted.append('"');
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    quoted.append(c);
+                    i++;
+                }
+                field = quoted.toString();
+                int comma = line.indexOf(',', i);
+                i = comma < 0 ? length + 1 : comma + 1;
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = comma < 0 ? length : comma;
+                field = line.substring(i, end);
+                i = end + 1;
+            }
+            fields[count++] = field.trim();
+        }
+        return count;
+    }
+}
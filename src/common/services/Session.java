@@ -0,0 +1,53 @@
+package common.services;
+
+import java.io.Serializable;
+
+/**
+ * A logged-in user's session
+ * Sent back to the client on LOGIN; the client puts the session id on
+ * every later Request.
+ */
+public class Session implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String sessionId;
+    private String userId;
+    private String role;
+    private long createdAt;
+    private volatile long expiresAt;
+
+    public Session() {}
+
+    public Session(String sessionId, String userId, String role, long createdAt, long expiresAt) {
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.role = role;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+
+    // Getters and Setters
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getRole() { return role; }
+    public void setRole(String role) { this.role = role; }
+
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+    public long getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(long expiresAt) { this.expiresAt = expiresAt; }
+
+    @Override
+    public String toString() {
+        return "Session{userId='" + userId + "', role='" + role + "'}";
+    }
+}
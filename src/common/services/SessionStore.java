@@ -0,0 +1,149 @@
+package common.services;
+
+import common.utils.Constants;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent in-memory session store with sliding expiry
+ *
+ * Validating a session is one ConcurrentHashMap lookup and a volatile
+ * read. A session that is used after half of its TTL has passed gets a
+ * fresh TTL, so active users stay logged in while idle sessions expire.
+ * Expired sessions are removed when they are looked up and by a sweep
+ * that runs at most once per TTL from create(); no timer thread is needed.
+ */
+public class SessionStore {
+
+    private static final int SWEEP_EVERY_CREATES = 1024;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final long ttlMillis;
+    private final AtomicInteger createsSinceSweep = new AtomicInteger();
+    private final AtomicLong lastSweep = new AtomicLong(System.currentTimeMillis());
+
+    public SessionStore() {
+        this(TimeUnit.MINUTES.toMillis(Constants.SESSION_TTL_MINUTES));
+    }
+
+    /**
+     * @param ttlMillis How long a session lives without being used
+     */
+    public SessionStore(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Start a session for an authenticated user
+     * @return The new session
+     */
+    public Session create(String userId, String role) {
+        long now = System.currentTimeMillis();
+        maybeSweep(now);
+        byte[] token = new byte[18];
+        random.nextBytes(token);
+        Session session = new Session(encoder.encodeToString(token), userId, role, now, now + ttlMillis);
+        sessions.put(session.getSessionId(), session);
+        return session;
+    }
+
+    /**
+     * Get a live session, renewing it if it is past half of its TTL
+     * @param sessionId The id from the request (may be null)
+     * @return The session, or null if it does not exist or has expired
+     */
+    public Session validate(String sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        long expiresAt = session.getExpiresAt();
+        if (now >= expiresAt) {
+            sessions.remove(sessionId, session);
+            return null;
+        }
+        if (expiresAt - now < ttlMillis / 2) {
+            session.setExpiresAt(now + ttlMillis);
+        }
+        return session;
+    }
+
+    /**
+     * Get the user id of a live session
+     * @return The user id, or null if the session is not valid
+     */
+    public String getUserId(String sessionId) {
+        Session session = validate(sessionId);
+        return session != null ? session.getUserId() : null;
+    }
+
+    /**
+     * End a session
+     * @return true if the session existed
+     */
+    public boolean invalidate(String sessionId) {
+        return sessionId != null && sessions.remove(sessionId) != null;
+    }
+
+    /**
+     * End every session of a user, e.g. after the account is deleted or deactivated
+     * @return Number of sessions ended
+     */
+    public int invalidateUser(String userId) {
+        int[] removed = new int[1];
+        sessions.values().removeIf(session -> {
+            if (session.getUserId() != null && session.getUserId().equals(userId)) {
+                removed[0]++;
+                return true;
+            }
+            return false;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Remove every expired session
+     * @return Number of sessions removed
+     */
+    public int sweep() {
+        long now = System.currentTimeMillis();
+        lastSweep.set(now);
+        createsSinceSweep.set(0);
+        int before = sessions.size();
+        sessions.values().removeIf(session -> session.isExpired(now));
+        return Math.max(0, before - sessions.size());
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    private void maybeSweep(long now) {
+        if (createsSinceSweep.incrementAndGet() < SWEEP_EVERY_CREATES) {
+            return;
+        }
+        long last = lastSweep.get();
+        if (now - last >= ttlMillis && lastSweep.compareAndSet(last, now)) {
+            int removed = sweep();
+            if (removed > 0) {
+                System.out.println("🧹 Removed " + removed + " expired sessions");
+            }
+        }
+    }
+}
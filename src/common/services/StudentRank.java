@@ -0,0 +1,51 @@
+package common.services;
+
+import java.io.Serializable;
+
+/**
+ * A student's place in a batch ranking
+ */
+public class StudentRank implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int rank;
+    private String studentId;
+    private double gpa;
+    private double averageMarks;
+    private int credits;
+    private int results;
+
+    public StudentRank() {}
+
+    public StudentRank(String studentId, double gpa, double averageMarks, int credits, int results) {
+        this.studentId = studentId;
+        this.gpa = gpa;
+        this.averageMarks = averageMarks;
+        this.credits = credits;
+        this.results = results;
+    }
+
+    // Getters and Setters
+    public int getRank() { return rank; }
+    public void setRank(int rank) { this.rank = rank; }
+
+    public String getStudentId() { return studentId; }
+    public void setStudentId(String studentId) { this.studentId = studentId; }
+
+    public double getGpa() { return gpa; }
+    public void setGpa(double gpa) { this.gpa = gpa; }
+
+    public double getAverageMarks() { return averageMarks; }
+    public void setAverageMarks(double averageMarks) { this.averageMarks = averageMarks; }
+
+    public int getCredits() { return credits; }
+    public void setCredits(int credits) { this.credits = credits; }
+
+    public int getResults() { return results; }
+    public void setResults(int results) { this.results = results; }
+
+    @Override
+    public String toString() {
+        return "StudentRank{rank=" + rank + ", studentId='" + studentId + "', gpa=" + gpa + "}";
+    }
+}
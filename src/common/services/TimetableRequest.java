@@ -0,0 +1,68 @@
+package common.services;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parameters for GENERATE_EXAM_SCHEDULE
+ * Exams are placed into days x slotTimes, each slot lasting durationMinutes.
+ */
+public class TimetableRequest implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private Date startDate;
+    private int days;
+    private List<String> slotTimes;
+    private int durationMinutes;
+    private Map<String, Integer> venues; // venue -> seats
+    private List<String> moduleCodes; // empty for every module with students
+    private long timeLimitMillis;
+    
+    public TimetableRequest() {
+        this.slotTimes = new ArrayList<>();
+        this.venues = new LinkedHashMap<>();
+        this.moduleCodes = new ArrayList<>();
+        this.days = 10;
+        this.durationMinutes = 120;
+        this.timeLimitMillis = 3000;
+        this.slotTimes.add("09:00");
+        this.slotTimes.add("13:00");
+        this.slotTimes.add("16:00");
+    }
+    
+    public TimetableRequest(Date startDate, int days) {
+        this();
+        this.startDate = startDate;
+        this.days = days;
+    }
+    
+    public void addVenue(String venue, int seats) {
+        venues.put(venue, seats);
+    }
+    
+    // Getters and Setters
+    public Date getStartDate() { return startDate; }
+    public void setStartDate(Date startDate) { this.startDate = startDate; }
+    
+    public int getDays() { return days; }
+    public void setDays(int days) { this.days = days; }
+    
+    public List<String> getSlotTimes() { return slotTimes; }
+    public void setSlotTimes(List<String> slotTimes) { this.slotTimes = slotTimes; }
+    
+    public int getDurationMinutes() { return durationMinutes; }
+    public void setDurationMinutes(int durationMinutes) { this.durationMinutes = durationMinutes; }
+    
+    public Map<String, Integer> getVenues() { return venues; }
+    public void setVenues(Map<String, Integer> venues) { this.venues = venues; }
+    
+    public List<String> getModuleCodes() { return moduleCodes; }
+    public void setModuleCodes(List<String> moduleCodes) { this.moduleCodes = moduleCodes; }
+    
+    public long getTimeLimitMillis() { return timeLimitMillis; }
+    public void setTimeLimitMillis(long timeLimitMillis) { this.timeLimitMillis = timeLimitMillis; }
+}
@@ -0,0 +1,55 @@
+package common.services;
+
+import common.models.Exam;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generated exam timetable and how far it is from a clash-free one
+ * conflictScore = studentClashes + unseatedStudents; 0 means every
+ * student sits at most one exam per slot and every exam has a venue.
+ */
+public class TimetableResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private List<Exam> exams;
+    private int studentClashes;
+    private int unseatedStudents;
+    private long elapsedMillis;
+    
+    public TimetableResult() {
+        this.exams = new ArrayList<>();
+    }
+    
+    public TimetableResult(List<Exam> exams, int studentClashes, int unseatedStudents, long elapsedMillis) {
+        this.exams = exams;
+        this.studentClashes = studentClashes;
+        this.unseatedStudents = unseatedStudents;
+        this.elapsedMillis = elapsedMillis;
+    }
+    
+    public int getConflictScore() {
+        return studentClashes + unseatedStudents;
+    }
+    
+    // Getters and Setters
+    public List<Exam> getExams() { return exams; }
+    public void setExams(List<Exam> exams) { this.exams = exams; }
+    
+    public int getStudentClashes() { return studentClashes; }
+    public void setStudentClashes(int studentClashes) { this.studentClashes = studentClashes; }
+    
+    public int getUnseatedStudents() { return unseatedStudents; }
+    public void setUnseatedStudents(int unseatedStudents) { this.unseatedStudents = unseatedStudents; }
+    
+    public long getElapsedMillis() { return elapsedMillis; }
+    public void setElapsedMillis(long elapsedMillis) { this.elapsedMillis = elapsedMillis; }
+    
+    @Override
+    public String toString() {
+        return "TimetableResult{exams=" + exams.size() + ", clashes=" + studentClashes + 
+               ", unseated=" + unseatedStudents + ", " + elapsedMillis + "ms}";
+    }
+}
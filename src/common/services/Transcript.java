@@ -0,0 +1,56 @@
+package common.services;
+
+import common.models.Result;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Snapshot of a student's published results and GPA
+ */
+public class Transcript implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private String studentId;
+    private int totalCredits;
+    private double weightedGradePoints;
+    private List<Result> results;
+    
+    public Transcript() {
+        this.results = new ArrayList<>();
+    }
+    
+    public Transcript(String studentId, int totalCredits, double weightedGradePoints, List<Result> results) {
+        this.studentId = studentId;
+        this.totalCredits = totalCredits;
+        this.weightedGradePoints = weightedGradePoints;
+        this.results = results;
+    }
+    
+    /**
+     * Credit-weighted GPA, 0 when there are no credits
+     */
+    public double getGpa() {
+        return totalCredits > 0 ? weightedGradePoints / totalCredits : 0.0;
+    }
+    
+    // Getters and Setters
+    public String getStudentId() { return studentId; }
+    public void setStudentId(String studentId) { this.studentId = studentId; }
+    
+    public int getTotalCredits() { return totalCredits; }
+    public void setTotalCredits(int totalCredits) { this.totalCredits = totalCredits; }
+    
+    public double getWeightedGradePoints() { return weightedGradePoints; }
+    public void setWeightedGradePoints(double weightedGradePoints) { this.weightedGradePoints = weightedGradePoints; }
+    
+    public List<Result> getResults() { return results; }
+    public void setResults(List<Result> results) { this.results = results; }
+    
+    @Override
+    public String toString() {
+        return "Transcript{student='" + studentId + "', credits=" + totalCredits + 
+               ", gpa=" + String.format("%.2f", getGpa()) + ", results=" + results.size() + "}";
+    }
+}
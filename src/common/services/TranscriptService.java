@@ -0,0 +1,224 @@
+package common.services;
+
+import common.models.Result;
+import common.network.RequestDispatcher;
+import common.network.RequestHandler;
+import common.network.Response;
+import common.storage.DataStorage;
+import common.storage.ObservableStorage;
+import common.storage.StorageListener;
+import common.utils.Constants;
+import common.utils.GradeCalculator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Materialized per-student GPA and transcript
+ *
+ * Keeps, for every student, the total credits and credit-weighted grade
+ * points of their published results. The aggregate is built once from
+ * the results file and then maintained from ObservableStorage events, so
+ * CALCULATE_GPA, VIEW_MY_RESULTS and DOWNLOAD_TRANSCRIPT no longer scan
+ * every Result. Each result's last contribution is remembered by id, which
+ * makes updates (including setPublished toggles on the same instance)
+ * a subtract-then-add.
+ */
+public class TranscriptService implements StorageListener {
+
+    private final DataStorage storage;
+    private final Map<String, StudentAggregate> students = new HashMap<>();
+    private final Map<String, Contribution> contributions = new HashMap<>();
+    private boolean loaded;
+
+    /**
+     * @param storage Storage whose result writes keep this service current
+     */
+    public TranscriptService(ObservableStorage storage) {
+        this.storage = storage;
+        storage.addListener(this);
+    }
+
+    /**
+     * Register the portal handlers
+     * The student always comes from the session; request data is ignored.
+     * @param dispatcher The student service dispatcher
+     * @param studentIdResolver Maps a session id to the logged-in student id
+     */
+    public void register(RequestDispatcher dispatcher, Function<String, String> studentIdResolver) {
+        dispatcher.register(Constants.CALCULATE_GPA, handler(studentIdResolver, t -> Response.success(t.getGpa())));
+        dispatcher.register(Constants.VIEW_MY_RESULTS, handler(studentIdResolver, t -> Response.success(t.getResults())));
+        dispatcher.register(Constants.DOWNLOAD_TRANSCRIPT, handler(studentIdResolver, Response::success));
+    }
+
+    /**
+     * Register GET_STUDENT_TRANSCRIPT (data: student id, response: Transcript)
+     * @param dispatcher The admin or result service dispatcher
+     * @param staffResolver Maps a session id to a user allowed to view any
+     *                      student's transcript, or to null
+     */
+    public void registerLookup(RequestDispatcher dispatcher, Function<String, String> staffResolver) {
+        dispatcher.register(Constants.GET_STUDENT_TRANSCRIPT, request -> {
+            if (staffResolver.apply(request.getSessionId()) == null) {
+                return Response.failure("Not authorized");
+            }
+            if (!(request.getData() instanceof String)) {
+                return Response.failure("GET_STUDENT_TRANSCRIPT expects the student id as data");
+            }
+            return Response.success(getTranscript((String) request.getData()));
+        });
+    }
+
+    private RequestHandler handler(Function<String, String> studentIdResolver, Function<Transcript, Response> view) {
+        return request -> {
+            String studentId = studentIdResolver.apply(request.getSessionId());
+            if (studentId == null) {
+                return Response.failure("Student not found");
+            }
+            return view.apply(getTranscript(studentId));
+        };
+    }
+
+    /**
+     * Get a student's GPA over published results
+     */
+    public synchronized double getGpa(String studentId) {
+        ensureLoaded();
+        StudentAggregate aggregate = students.get(studentId);
+        return aggregate != null && aggregate.credits > 0 ? aggregate.points / aggregate.credits : 0.0;
+    }
+
+    /**
+     * Get a snapshot of a student's published results and GPA
+     */
+    public synchronized Transcript getTranscript(String studentId) {
+        ensureLoaded();
+        StudentAggregate aggregate = students.get(studentId);
+        if (aggregate == null) {
+            return new Transcript(studentId, 0, 0.0, new ArrayList<>());
+        }
+        return new Transcript(studentId, aggregate.credits, aggregate.points,
+                new ArrayList<>(aggregate.published.values()));
+    }
+
+    // StorageListener
+
+    @Override
+    public synchronized void onSave(String filename, Object obj) {
+        if (loaded && Constants.RESULTS_FILE.equals(filename) && obj instanceof Result) {
+            apply((Result) obj);
+        }
+    }
+
+    @Override
+    public synchronized void onUpdate(String filename, Object oldObj, Object newObj) {
+        if (!loaded || !Constants.RESULTS_FILE.equals(filename)) {
+            return;
+        }
+        if (oldObj instanceof Result) {
+            String oldId = ((Result) oldObj).getId();
+            if (!(newObj instanceof Result) || !Objects.equals(oldId, ((Result) newObj).getId())) {
+                remove(oldId);
+            }
+        }
+        if (newObj instanceof Result) {
+            apply((Result) newObj);
+        }
+    }
+
+    @Override
+    public synchronized void onDelete(String filename, String id) {
+        if (loaded && Constants.RESULTS_FILE.equals(filename)) {
+            remove(id);
+        }
+    }
+
+    @Override
+    public synchronized void onReset(String filename) {
+        if (Constants.RESULTS_FILE.equals(filename)) {
+            // Rebuild on next read
+            loaded = false;
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        students.clear();
+        contributions.clear();
+        for (Object obj : storage.loadAll(Constants.RESULTS_FILE)) {
+            if (obj instanceof Result) {
+                apply((Result) obj);
+            }
+        }
+        loaded = true;
+    }
+
+    /**
+     * Replace a result's previous contribution with its current state
+     */
+    private void apply(Result result) {
+        if (result.getId() == null || result.getStudentId() == null) {
+            return;
+        }
+        remove(result.getId());
+        double gradePoints = result.getGrade() != null
+                ? GradeCalculator.getGradePoints(result.getGrade())
+                : GradeCalculator.getGradePoints(result.getMarks());
+        Contribution contribution = new Contribution(result.getStudentId(), result.getCredits(),
+                gradePoints * result.getCredits(), result.isPublished());
+        contributions.put(result.getId(), contribution);
+        if (contribution.published) {
+            StudentAggregate aggregate = students.computeIfAbsent(result.getStudentId(), s -> new StudentAggregate());
+            aggregate.credits += contribution.credits;
+            aggregate.points += contribution.points;
+            aggregate.published.put(result.getId(), result);
+        }
+    }
+
+    private void remove(String resultId) {
+        Contribution contribution = resultId != null ? contributions.remove(resultId) : null;
+        if (contribution == null || !contribution.published) {
+            return;
+        }
+        StudentAggregate aggregate = students.get(contribution.studentId);
+        aggregate.credits -= contribution.credits;
+        aggregate.points -= contribution.points;
+        aggregate.published.remove(resultId);
+        if (aggregate.published.isEmpty()) {
+            students.remove(contribution.studentId);
+        }
+    }
+
+    /**
+     * What one result last added to its student's aggregate
+     */
+    private static final class Contribution {
+        private final String studentId;
+        private final int credits;
+        private final double points;
+        private final boolean published;
+
+        Contribution(String studentId, int credits, double points, boolean published) {
+            this.studentId = studentId;
+            this.credits = credits;
+            this.points = points;
+            this.published = published;
+        }
+    }
+
+    /**
+     * Running totals over one student's published results
+     */
+    private static final class StudentAggregate {
+        private int credits;
+        private double points;
+        private final Map<String, Result> published = new LinkedHashMap<>();
+    }
+}
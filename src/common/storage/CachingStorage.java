@@ -0,0 +1,323 @@
+package common.storage;
+
+import common.utils.Constants;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Write-through caching decorator for DataStorage
+ * Keeps the decoded list of each file in memory. An entry is dropped when
+ * the backing file's modification time or length changes, or when a write
+ * through this cache cannot be applied in place. Entries are evicted in
+ * least-recently-used order once the memory budget is exceeded.
+ *
+ * Writes through the cache run one at a time per file. A write changes the
+ * cached list only if the entry still matched the file just before the
+ * write and the delegate returned normally (failed writes throw, see
+ * DataStorage); otherwise the entry is dropped and the next read reloads.
+ *
+ * The objects returned by load() and loadAll() are the cached instances,
+ * shared by every caller. Treat them as read-only: change a record by
+ * passing the changed object to update() or save(), never by mutating a
+ * loaded object and leaving it at that.
+ */
+public class CachingStorage implements DataStorage {
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final DataStorage delegate;
+    private final Function<String, File> fileResolver;
+    private final long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    // Writes started through this cache per file, so a load that raced one is not cached
+    private final Map<String, AtomicLong> writeCounts = new ConcurrentHashMap<>();
+    private final Map<String, Object> writeLocks = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Cache a storage with the default memory budget
+     * Entries are guarded by the file in the data directory, or by the
+     * segment file when the delegate is a LogStructuredStorage.
+     * @param delegate The storage to decorate
+     */
+    public CachingStorage(DataStorage delegate) {
+        this(delegate, defaultResolver(delegate), DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param delegate The storage to decorate
+     * @param fileResolver Maps a file name to the file whose mtime/length guards the entry
+     * @param maxBytes Memory budget, measured as the on-disk size of cached files
+     */
+    public CachingStorage(DataStorage delegate, Function<String, File> fileResolver, long maxBytes) {
+        this.delegate = delegate;
+        this.fileResolver = fileResolver;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void save(Object obj, String filename) {
+        write(filename, () -> delegate.save(obj, filename), objects -> objects.add(obj));
+    }
+
+    @Override
+    public Object load(String filename) {
+        List<Object> objects = cachedList(filename);
+        synchronized (this) {
+            return objects.isEmpty() ? null : objects.get(0);
+        }
+    }
+
+    /**
+     * Load all objects of a file
+     * The list is a copy the caller may modify; its elements are the cached
+     * (read-only) instances.
+     */
+    @Override
+    public List<Object> loadAll(String filename) {
+        List<Object> objects = cachedList(filename);
+        synchronized (this) {
+            return new ArrayList<>(objects);
+        }
+    }
+
+    @Override
+    public void delete(String id, String filename) {
+        write(filename, () -> delegate.delete(id, filename), null);
+    }
+
+    @Override
+    public boolean fileExists(String filename) {
+        return delegate.fileExists(filename);
+    }
+
+    @Override
+    public void clearFile(String filename) {
+        write(filename, () -> delegate.clearFile(filename), null);
+    }
+
+    @Override
+    public void saveAll(List<?> objects, String filename) {
+        writeCount(filename).incrementAndGet();
+        synchronized (writeLock(filename)) {
+            invalidate(filename);
+            delegate.saveAll(objects, filename);
+            Entry entry = new Entry(new ArrayList<>(objects));
+            restamp(filename, entry);
+            put(filename, entry);
+        }
+    }
+
+    @Override
+    public void appendAll(List<?> objects, String filename) {
+        write(filename, () -> delegate.appendAll(objects, filename), cached -> cached.addAll(objects));
+    }
+
+    @Override
+    public void update(Object oldObj, Object newObj, String filename) {
+        write(filename, () -> delegate.update(oldObj, newObj, filename), objects -> {
+            for (int i = 0; i < objects.size(); i++) {
+                if (EntityKeys.sameRecord(objects.get(i), oldObj)) {
+                    objects.set(i, newObj);
+                    break;
+                }
+            }
+        });
+    }
+
+    @Override
+    public int getCount(String filename) {
+        List<Object> objects = cachedList(filename);
+        synchronized (this) {
+            return objects.size();
+        }
+    }
+
+    /**
+     * Drop the cached entry for a file
+     * @param filename The file name
+     */
+    public synchronized void invalidate(String filename) {
+        Entry removed = entries.remove(filename);
+        if (removed != null) {
+            usedBytes -= removed.weight;
+        }
+    }
+
+    /**
+     * Drop every cached entry
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    public long getHits() { return hits.get(); }
+
+    public long getMisses() { return misses.get(); }
+
+    public long getEvictions() { return evictions.get(); }
+
+    public synchronized long getUsedBytes() { return usedBytes; }
+
+    public long getMaxBytes() { return maxBytes; }
+
+    /**
+     * Fraction of reads served from memory
+     * @return Hit ratio between 0 and 1
+     */
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Print cache counters to the console
+     */
+    public void printStats() {
+        System.out.println("📊 Cache: hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions() + ", used=" + getUsedBytes() + "/" + maxBytes + " bytes");
+    }
+
+    private List<Object> cachedList(String filename) {
+        Entry entry = validEntry(filename);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry.objects;
+        }
+        misses.incrementAndGet();
+        // Stamp before loading: a write landing during the load changes the
+        // stamp or the write count, and the loaded list is then not cached
+        long writes = writeCount(filename).get();
+        File file = fileResolver.apply(filename);
+        long lastModified = file.lastModified();
+        long length = file.length();
+        entry = new Entry(delegate.loadAll(filename));
+        entry.lastModified = lastModified;
+        entry.length = length;
+        synchronized (this) {
+            if (writeCount(filename).get() == writes
+                    && file.lastModified() == lastModified && file.length() == length) {
+                put(filename, entry);
+            }
+        }
+        return entry.objects;
+    }
+
+    /**
+     * Run a write through to the delegate and apply it to the cached list
+     * @param write The delegate write; throws if it failed
+     * @param change Applies the write to the cached list, or null to drop the entry
+     */
+    private void write(String filename, Runnable write, Consumer<List<Object>> change) {
+        writeCount(filename).incrementAndGet();
+        synchronized (writeLock(filename)) {
+            // Checked right before the write, so another writer's change is not adopted below
+            Entry entry = change != null ? validEntry(filename) : null;
+            boolean written = false;
+            try {
+                write.run();
+                written = true;
+            } finally {
+                if (entry != null && written) {
+                    synchronized (this) {
+                        change.accept(entry.objects);
+                    }
+                    restamp(filename, entry);
+                } else {
+                    invalidate(filename);
+                }
+            }
+        }
+    }
+
+    private Object writeLock(String filename) {
+        return writeLocks.computeIfAbsent(filename, name -> new Object());
+    }
+
+    private static Function<String, File> defaultResolver(DataStorage delegate) {
+        if (delegate instanceof LogStructuredStorage) {
+            return ((LogStructuredStorage) delegate)::getSegmentFile;
+        }
+        return filename -> new File(Constants.DATA_DIR + filename);
+    }
+
+    private AtomicLong writeCount(String filename) {
+        return writeCounts.computeIfAbsent(filename, name -> new AtomicLong());
+    }
+
+    private synchronized Entry validEntry(String filename) {
+        Entry entry = entries.get(filename);
+        if (entry == null) {
+            return null;
+        }
+        File file = fileResolver.apply(filename);
+        if (file.lastModified() != entry.lastModified || file.length() != entry.length) {
+            invalidate(filename);
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void restamp(String filename, Entry entry) {
+        File file = fileResolver.apply(filename);
+        entry.lastModified = file.lastModified();
+        entry.length = file.length();
+        if (entries.get(filename) == entry) {
+            usedBytes += entry.length - entry.weight;
+            entry.weight = entry.length;
+            evictIfNeeded();
+        }
+    }
+
+    private synchronized void put(String filename, Entry entry) {
+        invalidate(filename);
+        entry.weight = entry.length;
+        if (entry.weight > maxBytes) {
+            return;
+        }
+        entries.put(filename, entry);
+        usedBytes += entry.weight;
+        evictIfNeeded();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            usedBytes -= eldest.weight;
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Decoded contents of one file plus the file stamp it was read at
+     */
+    private static final class Entry {
+        private final List<Object> objects;
+        private long lastModified;
+        private long length;
+        private long weight;
+
+        Entry(List<Object> objects) {
+            this.objects = objects;
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package common.storage;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Interface for data storage operations
  * Implementations can be file-based, database-based, etc.
+ * Writes throw java.io.UncheckedIOException when they fail, so a caller
+ * never takes a lost write for a stored one; reads log the error and
+ * return what they could read.
  */
 public interface DataStorage {
     
@@ -55,4 +62,106 @@ public interface DataStorage {
      * @param filename The file/collection name
      */
     void saveAll(List<?> objects, String filename);
-}
\ No newline at end of file
+    
+    /**
+     * Replace an existing object
+     * @param oldObj The object to replace
+     * @param newObj The new object
+     * @param filename The file/collection name
+     */
+    default void update(Object oldObj, Object newObj, String filename) {
+        List<Object> objects = loadAll(filename);
+        for (int i = 0; i < objects.size(); i++) {
+            if (EntityKeys.sameRecord(objects.get(i), oldObj)) {
+                objects.set(i, newObj);
+                saveAll(objects, filename);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Get count of objects in storage
+     * @param filename The file/collection name
+     * @return Number of objects
+     */
+    default int getCount(String filename) {
+        return loadAll(filename).size();
+    }
+    
+    /**
+     * Append several objects in one storage write
+     * @param objects Objects to append
+     * @param filename The file/collection name
+     * @throws java.io.UncheckedIOException if the objects could not be written
+     */
+    default void appendAll(List<?> objects, String filename) {
+        if (objects.isEmpty()) {
+            return;
+        }
+        List<Object> existing = loadAll(filename);
+        existing.addAll(objects);
+        saveAll(existing, filename);
+    }
+    
+    /**
+     * Stream the objects of a file
+     * Implementations that can decode records one at a time override this,
+     * so short-circuiting operations stop reading early and parallel streams
+     * split the file. The default streams over loadAll().
+     * @param filename The file/collection name
+     * @return Stream of stored objects in file order
+     */
+    default Stream<Object> stream(String filename) {
+        return loadAll(filename).stream();
+    }
+    
+    /**
+     * Stream the objects of a file that are of one type
+     * @param filename The file/collection name
+     * @param type The model type
+     * @return Stream of matching objects
+     */
+    default <T> Stream<T> stream(String filename, Class<T> type) {
+        return stream(filename).filter(type::isInstance).map(type::cast);
+    }
+    
+    /**
+     * Find the first object of a type matching a filter
+     * @param filename The file/collection name
+     * @param type The model type
+     * @param filter Condition to match
+     * @return The first match, if any
+     */
+    default <T> Optional<T> findFirst(String filename, Class<T> type, Predicate<? super T> filter) {
+        try (Stream<T> objects = stream(filename, type)) {
+            return objects.filter(filter).findFirst();
+        }
+    }
+    
+    /**
+     * Find all objects of a type matching a filter
+     * @param filename The file/collection name
+     * @param type The model type
+     * @param filter Condition to match
+     * @return Matches in file order
+     */
+    default <T> List<T> findAll(String filename, Class<T> type, Predicate<? super T> filter) {
+        try (Stream<T> objects = stream(filename, type)) {
+            return objects.filter(filter).collect(Collectors.toList());
+        }
+    }
+    
+    /**
+     * Count objects of a type matching a filter
+     * @param filename The file/collection name
+     * @param type The model type
+     * @param filter Condition to match
+     * @return Number of matches
+     */
+    default <T> long count(String filename, Class<T> type, Predicate<? super T> filter) {
+        try (Stream<T> objects = stream(filename, type)) {
+            return objects.filter(filter).count();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package common.storage;
+
+import common.models.Batch;
+import common.models.Exam;
+import common.models.Lecturer;
+import common.models.Module;
+import common.models.ModuleRegistration;
+import common.models.Result;
+import common.models.Student;
+import common.models.User;
+
+/**
+ * Primary keys of the stored models
+ * Used to match records by their real id instead of by toString()
+ */
+public final class EntityKeys {
+
+    private EntityKeys() {}
+
+    /**
+     * Get the primary key of a model object
+     * @param obj The stored object
+     * @return The key, or null if the type has no known key or the key is not set
+     */
+    public static String keyOf(Object obj) {
+        if (obj instanceof Student) return ((Student) obj).getId();
+        if (obj instanceof Module) return ((Module) obj).getCode();
+        if (obj instanceof Exam) return ((Exam) obj).getId();
+        if (obj instanceof Result) return ((Result) obj).getId();
+        if (obj instanceof Lecturer) return ((Lecturer) obj).getId();
+        if (obj instanceof Batch) return ((Batch) obj).getId();
+        if (obj instanceof User) return ((User) obj).getUserId();
+        if (obj instanceof ModuleRegistration) {
+            ModuleRegistration registration = (ModuleRegistration) obj;
+            return registrationKey(registration.getStudentId(), registration.getModuleCode());
+        }
+        return null;
+    }
+
+    /**
+     * Check whether a stored object has the given id
+     * Known models compare their primary key exactly; other objects fall back
+     * to the legacy toString() match.
+     * @param obj The stored object
+     * @param id The id to match
+     * @return true if the object is identified by id
+     */
+    public static boolean matches(Object obj, String id) {
+        if (obj == null || id == null) {
+            return false;
+        }
+        if (isKeyed(obj)) {
+            return id.equals(keyOf(obj));
+        }
+        return obj.toString().contains(id);
+    }
+
+    /**
+     * Check whether two objects are the same stored record
+     * Known models of the same type compare by primary key, so a modified
+     * copy still identifies the record it was loaded from.
+     */
+    public static boolean sameRecord(Object stored, Object obj) {
+        if (stored == null || obj == null) {
+            return false;
+        }
+        if (stored.equals(obj)) {
+            return true;
+        }
+        if (stored.getClass() != obj.getClass() || !isKeyed(obj)) {
+            return false;
+        }
+        String key = keyOf(obj);
+        return key != null && key.equals(keyOf(stored));
+    }
+
+    /**
+     * Check whether the object's type has a known primary key
+     */
+    public static boolean isKeyed(Object obj) {
+        return obj instanceof Student || obj instanceof Module || obj instanceof Exam
+                || obj instanceof Result || obj instanceof Lecturer || obj instanceof Batch
+                || obj instanceof User || obj instanceof ModuleRegistration;
+    }
+
+    /**
+     * Key of a module registration (studentId:moduleCode)
+     */
+    public static String registrationKey(String studentId, String moduleCode) {
+        return studentId + ":" + moduleCode;
+    }
+}
@@ -1,21 +1,83 @@
 package common.storage;
 
+import common.codec.Codec;
+import common.codec.Codecs;
 import common.utils.Constants;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BooleanSupplier;
 
 /**
  * File-based implementation of DataStorage
- * Uses Java serialization for object persistence
+ * Uses a pluggable codec for object persistence (see Constants.STORAGE_CODEC).
+ * Files written by either codec can be read back.
+ *
+ * Every file is guarded by a striped read/write lock shared by all
+ * FileManager instances: reads of a file run in parallel, and each
+ * read-modify-write (save, delete, update, appendAll) runs under the
+ * write lock so concurrent writers cannot lose each other's changes.
+ * Files are replaced atomically through a temporary file. A write that
+ * fails throws UncheckedIOException; reads log the error and return what
+ * they could read.
+ *
+ * Every write is first made durable in a shared WriteAheadLog (group
+ * commit, so concurrent writers share fsyncs) and then applied. The first
+ * FileManager created replays the log, so a crash between logging and
+ * applying loses nothing. Replay applies saves as upserts by primary key
+ * (see EntityKeys), so replaying an already applied write is harmless.
+ * Writes of objects without a key are logged as the whole resulting file
+ * instead, so their replay cannot add them twice. The log is checkpointed
+ * by closeLog(), which also runs at JVM shutdown.
+ *
+ * For optimistic updates, read getVersion() before loading a record and
+ * pass it to compareAndUpdate(), which fails if the record was written
+ * in between.
+ *
+ * A file holds one encoded list, which neither codec can decode a record
+ * at a time, so stream() and the findFirst/findAll/count helpers still
+ * load the whole file. Files that are searched often belong in
+ * LogStructuredStorage, whose stream() decodes records lazily.
  */
 public class FileManager implements DataStorage {
-    
+
+    private static final StripedLocks LOCKS = new StripedLocks();
+    private static final AtomicLong VERSION_CLOCK = new AtomicLong();
+    private static final Map<String, FileVersions> VERSIONS = new ConcurrentHashMap<>();
+
+    // Write-ahead log operations
+    private static final byte OP_SAVE = 1;
+    private static final byte OP_APPEND = 2;
+    private static final byte OP_UPDATE = 3;
+    private static final byte OP_DELETE = 4;
+    private static final byte OP_SAVE_ALL = 5;
+    private static final byte OP_CLEAR = 6;
+
+    private static WriteAheadLog wal;
+
+    private final Codec codec;
+
     /**
      * Constructor - creates data directory if not exists
      */
     public FileManager() {
+        this(Codecs.forName(Constants.STORAGE_CODEC));
+    }
+
+    /**
+     * Constructor with an explicit codec for writes
+     * @param codec The codec used to encode files
+     */
+    public FileManager(Codec codec) {
+        this.codec = codec;
         File dataDir = new File(Constants.DATA_DIR);
         if (!dataDir.exists()) {
             boolean created = dataDir.mkdirs();
@@ -23,167 +85,466 @@ public class FileManager implements DataStorage {
                 System.out.println("📁 Data directory created: " + Constants.DATA_DIR);
             }
         }
+        openLog();
     }
-    
-    @Override
-    public void save(Object obj, String filename) {
-        String filepath = Constants.DATA_DIR + filename;
-        
-        // Load existing objects
-        List<Object> existingObjects = loadAll(filename);
-        
-        // Add new object
-        existingObjects.add(obj);
-        
-        // Save all objects
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(filepath))) {
-            oos.writeObject(existingObjects);
-            System.out.println("✅ Saved to: " + filename);
+
+    /**
+     * Open the shared write-ahead log and replay it once per JVM
+     */
+    private void openLog() {
+        synchronized (FileManager.class) {
+            if (wal != null) {
+                return;
+            }
+            try {
+                WriteAheadLog log = new WriteAheadLog(new File(Constants.DATA_DIR + Constants.WAL_FILE),
+                        new File(Constants.DATA_DIR), Constants.WAL_CHECKPOINT_BYTES);
+                int replayed = log.replay(this::replay);
+                if (replayed > 0) {
+                    System.out.println("🔁 Replayed " + replayed + " logged writes");
+                }
+                log.checkpoint();
+                wal = log;
+                Runtime.getRuntime().addShutdownHook(new Thread(FileManager::closeLog, "wal-close"));
+            } catch (IOException e) {
+                System.err.println("❌ Write-ahead log unavailable, writing without it");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Checkpoint and close the shared write-ahead log
+     * Data files are forced to disk and the log is emptied, so the next
+     * start has nothing to replay. Writes after this go without the log
+     * until another FileManager is created.
+     */
+    public static void closeLog() {
+        WriteAheadLog log;
+        synchronized (FileManager.class) {
+            log = wal;
+            wal = null;
+        }
+        if (log == null) {
+            return;
+        }
+        try {
+            log.close();
         } catch (IOException e) {
-            System.err.println("❌ Error saving to file: " + filename);
+            System.err.println("❌ Error closing write-ahead log");
             e.printStackTrace();
         }
     }
-    
+
     @Override
-    public Object load(String filename) {
-        String filepath = Constants.DATA_DIR + filename;
-        
-        if (!fileExists(filename)) {
-            return null;
-        }
-        
-        try (ObjectInputStream ois = new ObjectInputStream(
-                new FileInputStream(filepath))) {
-            Object obj = ois.readObject();
-            
-            // If it's a list, return first element
-            if (obj instanceof List) {
-                List<?> list = (List<?>) obj;
-                return list.isEmpty() ? null : list.get(0);
+    public void save(Object obj, String filename) {
+        Lock lock = LOCKS.get(filename).writeLock();
+        lock.lock();
+        try {
+            // Load existing objects
+            List<Object> existingObjects = loadAll(filename);
+
+            // Add new object
+            existingObjects.add(obj);
+
+            // Save all objects; without a key replay could not tell it was applied
+            boolean saved = hasKey(obj)
+                    ? commit(OP_SAVE, filename, obj, () -> writeFile(existingObjects, filename))
+                    : commit(OP_SAVE_ALL, filename, existingObjects, () -> writeFile(existingObjects, filename));
+            if (saved) {
+                versions(filename).touch(EntityKeys.keyOf(obj));
+                System.out.println("✅ Saved to: " + filename);
+            } else {
+                System.err.println("❌ Error saving to file: " + filename);
+                throw new UncheckedIOException(new IOException("Cannot save to file: " + filename));
             }
-            
-            return obj;
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println("❌ Error loading from file: " + filename);
-            e.printStackTrace();
-            return null;
+        } finally {
+            lock.unlock();
         }
     }
-    
+
+    @Override
+    public Object load(String filename) {
+        List<Object> objects = loadAll(filename);
+        return objects.isEmpty() ? null : objects.get(0);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public List<Object> loadAll(String filename) {
         String filepath = Constants.DATA_DIR + filename;
         List<Object> objects = new ArrayList<>();
-        
-        if (!fileExists(filename)) {
-            return objects;
-        }
-        
-        try (ObjectInputStream ois = new ObjectInputStream(
-                new FileInputStream(filepath))) {
-            Object obj = ois.readObject();
-            
+
+        Lock lock = LOCKS.get(filename).readLock();
+        lock.lock();
+        try {
+            if (!fileExists(filename)) {
+                return objects;
+            }
+
+            Object obj = Codecs.decode(Files.readAllBytes(new File(filepath).toPath()));
+
             // If the stored object is already a list
             if (obj instanceof List) {
                 objects = (List<Object>) obj;
             } else {
                 objects.add(obj);
             }
-            
+
             System.out.println("📖 Loaded " + objects.size() + " objects from: " + filename);
-            
+
         } catch (EOFException e) {
             // End of file - normal condition
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             System.err.println("❌ Error loading all from file: " + filename);
             e.printStackTrace();
+        } finally {
+            lock.unlock();
         }
-        
+
         return objects;
     }
-    
+
     @Override
     public void delete(String id, String filename) {
-        List<Object> objects = loadAll(filename);
-        
-        // Remove object with matching id
-        objects.removeIf(obj -> {
-            // This is a simplified version
-            // In real implementation, check object type and get its id
-            return obj.toString().contains(id);
-        });
-        
-        // Save remaining objects
-        clearFile(filename);
-        saveAll(objects, filename);
-        
-        System.out.println("🗑️ Deleted object with id: " + id + " from: " + filename);
-    }
-    
+        Lock lock = LOCKS.get(filename).writeLock();
+        lock.lock();
+        try {
+            List<Object> objects = loadAll(filename);
+
+            // Remove object with matching id
+            boolean unkeyed = false;
+            for (Object obj : objects) {
+                if (EntityKeys.matches(obj, id) && !EntityKeys.isKeyed(obj)) {
+                    unkeyed = true;
+                }
+            }
+            objects.removeIf(obj -> EntityKeys.matches(obj, id));
+
+            // Save remaining objects
+            if (commit(OP_DELETE, filename, id, () -> writeFile(objects, filename))) {
+                versions(filename).touch(unkeyed ? null : id);
+                System.out.println("🗑️ Deleted object with id: " + id + " from: " + filename);
+            } else {
+                System.err.println("❌ Error deleting from file: " + filename);
+                throw new UncheckedIOException(new IOException("Cannot delete from file: " + filename));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     public boolean fileExists(String filename) {
         File file = new File(Constants.DATA_DIR + filename);
         return file.exists() && file.length() > 0;
     }
-    
+
     @Override
     public void clearFile(String filename) {
-        File file = new File(Constants.DATA_DIR + filename);
-        if (file.exists()) {
-            boolean deleted = file.delete();
-            if (deleted) {
+        Lock lock = LOCKS.get(filename).writeLock();
+        lock.lock();
+        try {
+            File file = new File(Constants.DATA_DIR + filename);
+            if (file.exists()) {
+                boolean deleted = commit(OP_CLEAR, filename, filename, file::delete);
+                if (!deleted) {
+                    System.err.println("❌ Error clearing file: " + filename);
+                    throw new UncheckedIOException(new IOException("Cannot clear file: " + filename));
+                }
+                versions(filename).reset();
                 System.out.println("🗑️ Cleared file: " + filename);
             }
+        } finally {
+            lock.unlock();
         }
     }
-    
+
     @Override
     public void saveAll(List<?> objects, String filename) {
-        String filepath = Constants.DATA_DIR + filename;
-        
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(filepath))) {
-            oos.writeObject(objects);
-            System.out.println("✅ Saved " + objects.size() + " objects to: " + filename);
-        } catch (IOException e) {
-            System.err.println("❌ Error saving all to file: " + filename);
-            e.printStackTrace();
+        Lock lock = LOCKS.get(filename).writeLock();
+        lock.lock();
+        try {
+            if (commit(OP_SAVE_ALL, filename, objects, () -> writeFile(objects, filename))) {
+                versions(filename).reset();
+                System.out.println("✅ Saved " + objects.size() + " objects to: " + filename);
+            } else {
+                System.err.println("❌ Error saving all to file: " + filename);
+                throw new UncheckedIOException(new IOException("Cannot save all to file: " + filename));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void appendAll(List<?> objects, String filename) {
+        if (objects.isEmpty()) {
+            return;
+        }
+        Lock lock = LOCKS.get(filename).writeLock();
+        lock.lock();
+        try {
+            List<Object> existingObjects = loadAll(filename);
+            existingObjects.addAll(objects);
+            boolean appended = objects.stream().allMatch(FileManager::hasKey)
+                    ? commit(OP_APPEND, filename, objects, () -> writeFile(existingObjects, filename))
+                    : commit(OP_SAVE_ALL, filename, existingObjects, () -> writeFile(existingObjects, filename));
+            if (appended) {
+                FileVersions versions = versions(filename);
+                for (Object obj : objects) {
+                    versions.touch(EntityKeys.keyOf(obj));
+                }
+                System.out.println("✅ Appended " + objects.size() + " objects to: " + filename);
+            } else {
+                System.err.println("❌ Error appending to file: " + filename);
+                throw new UncheckedIOException(new IOException("Cannot append to file: " + filename));
+            }
+        } finally {
+            lock.unlock();
         }
     }
-    
+
     /**
      * Update an existing object in file
      * @param oldObj The object to replace
      * @param newObj The new object
      * @param filename The file name
      */
+    @Override
     public void update(Object oldObj, Object newObj, String filename) {
+        Lock lock = LOCKS.get(filename).writeLock();
+        lock.lock();
+        try {
+            replace(oldObj, newObj, filename);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the version of a record, to be read before loading it
+     * @param id The record's id (see EntityKeys); null for the whole file
+     * @param filename The file name
+     * @return A value that changes whenever the record may have been written
+     */
+    public long getVersion(String id, String filename) {
+        return versions(filename).of(id);
+    }
+
+    /**
+     * Update an object only if its record was not written since expectedVersion
+     * @param oldObj The object to replace
+     * @param newObj The new object
+     * @param filename The file name
+     * @param expectedVersion Value of getVersion() read before oldObj was loaded
+     * @return false if the record changed meanwhile; reload and retry
+     */
+    public boolean compareAndUpdate(Object oldObj, Object newObj, String filename, long expectedVersion) {
+        Lock lock = LOCKS.get(filename).writeLock();
+        lock.lock();
+        try {
+            if (versions(filename).of(EntityKeys.keyOf(oldObj)) != expectedVersion) {
+                return false;
+            }
+            replace(oldObj, newObj, filename);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get count of objects in file
+     * @param filename The file name
+     * @return Number of objects
+     */
+    @Override
+    public int getCount(String filename) {
+        return loadAll(filename).size();
+    }
+
+    private void replace(Object oldObj, Object newObj, String filename) {
         List<Object> objects = loadAll(filename);
-        
+
         // Find and replace
         for (int i = 0; i < objects.size(); i++) {
-            if (objects.get(i).equals(oldObj)) {
+            if (EntityKeys.sameRecord(objects.get(i), oldObj)) {
                 objects.set(i, newObj);
                 break;
             }
         }
-        
+
         // Save all
-        clearFile(filename);
-        saveAll(objects, filename);
-        
-        System.out.println("✏️ Updated object in: " + filename);
+        boolean updated;
+        if (hasKey(oldObj) && hasKey(newObj)) {
+            List<Object> pair = new ArrayList<>();
+            pair.add(oldObj);
+            pair.add(newObj);
+            updated = commit(OP_UPDATE, filename, pair, () -> writeFile(objects, filename));
+        } else {
+            updated = commit(OP_SAVE_ALL, filename, objects, () -> writeFile(objects, filename));
+        }
+        if (updated) {
+            FileVersions versions = versions(filename);
+            versions.touch(EntityKeys.keyOf(oldObj));
+            versions.touch(EntityKeys.keyOf(newObj));
+            System.out.println("✏️ Updated object in: " + filename);
+        } else {
+            System.err.println("❌ Error updating file: " + filename);
+            throw new UncheckedIOException(new IOException("Cannot update file: " + filename));
+        }
     }
-    
+
     /**
-     * Get count of objects in file
+     * Log a write, then apply it
+     * @param op Operation code
      * @param filename The file name
-     * @return Number of objects
+     * @param data What replay needs to redo the write
+     * @param apply Writes the data file
      */
-    public int getCount(String filename) {
-        return loadAll(filename).size();
+    private boolean commit(byte op, String filename, Object data, BooleanSupplier apply) {
+        WriteAheadLog log = wal;
+        if (log == null) {
+            return apply.getAsBoolean();
+        }
+        try {
+            return log.write(op, filename, codec.encode(data), apply);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Redo one logged write as an idempotent operation
+     */
+    private void replay(byte op, String filename, byte[] data) throws IOException {
+        Object value = Codecs.decode(data);
+        List<Object> objects;
+        switch (op) {
+            case OP_SAVE:
+                upsert(filename, Collections.singletonList(value));
+                break;
+            case OP_APPEND:
+                upsert(filename, (List<?>) value);
+                break;
+            case OP_UPDATE:
+                List<?> pair = (List<?>) value;
+                objects = loadAll(filename);
+                boolean replaced = false;
+                for (int i = 0; i < objects.size() && !replaced; i++) {
+                    if (EntityKeys.sameRecord(objects.get(i), pair.get(0))) {
+                        objects.set(i, pair.get(1));
+                        replaced = true;
+                    }
+                }
+                if (!replaced) {
+                    upsertInto(objects, pair.get(1));
+                }
+                writeFile(objects, filename);
+                break;
+            case OP_DELETE:
+                objects = loadAll(filename);
+                if (objects.removeIf(obj -> EntityKeys.matches(obj, (String) value))) {
+                    writeFile(objects, filename);
+                }
+                break;
+            case OP_SAVE_ALL:
+                writeFile((List<?>) value, filename);
+                break;
+            case OP_CLEAR:
+                new File(Constants.DATA_DIR + filename).delete();
+                break;
+            default:
+                throw new IOException("Unknown log operation: " + op);
+        }
+    }
+
+    /**
+     * Whether replay can find an object again by its primary key
+     */
+    private static boolean hasKey(Object obj) {
+        return EntityKeys.keyOf(obj) != null;
+    }
+
+    private void upsert(String filename, List<?> added) {
+        List<Object> objects = loadAll(filename);
+        for (Object obj : added) {
+            upsertInto(objects, obj);
+        }
+        writeFile(objects, filename);
+    }
+
+    private static void upsertInto(List<Object> objects, Object obj) {
+        for (int i = 0; i < objects.size(); i++) {
+            if (EntityKeys.sameRecord(objects.get(i), obj)) {
+                objects.set(i, obj);
+                return;
+            }
+        }
+        objects.add(obj);
+    }
+
+    /**
+     * Write the list to a temporary file and move it over the data file
+     * Callers hold the file's write lock.
+     */
+    private boolean writeFile(List<?> objects, String filename) {
+        File file = new File(Constants.DATA_DIR + filename);
+        File temp = new File(Constants.DATA_DIR + filename + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(codec.encode(objects));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static FileVersions versions(String filename) {
+        return VERSIONS.computeIfAbsent(filename, f -> new FileVersions());
+    }
+
+    /**
+     * Write versions of the records of one file
+     * A write that may touch any record (saveAll, clearFile, unkeyed
+     * objects) moves the whole file's version forward.
+     */
+    private static final class FileVersions {
+        private final Map<String, Long> records = new ConcurrentHashMap<>();
+        private volatile long fileVersion;
+        private volatile long lastWrite;
+
+        long of(String id) {
+            if (id == null) {
+                return lastWrite;
+            }
+            Long version = records.get(id);
+            return version != null && version > fileVersion ? version : fileVersion;
+        }
+
+        void touch(String id) {
+            if (id == null) {
+                reset();
+            } else {
+                long version = VERSION_CLOCK.incrementAndGet();
+                records.put(id, version);
+                lastWrite = version;
+            }
+        }
+
+        void reset() {
+            long version = VERSION_CLOCK.incrementAndGet();
+            fileVersion = version;
+            lastWrite = version;
+            records.clear();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,370 @@
+package common.storage;
+
+import common.models.Exam;
+import common.models.ModuleRegistration;
+import common.models.Result;
+import common.models.Student;
+import common.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Indexing decorator for DataStorage
+ * Keeps a hash index on each model's primary key plus any declared
+ * secondary indexes, so lookups by id or by a foreign key are point
+ * lookups instead of full-file scans. Indexes are built on first use
+ * and maintained on every write made through this storage.
+ *
+ * Writes and index builds of a file are serialized on a per-file lock, so
+ * a write cannot land between the load an index is built from and the
+ * index being published. Each entry remembers the secondary values it was
+ * indexed under, so an object changed in place and passed to
+ * update(obj, obj) is moved out of its old buckets.
+ */
+public class IndexedStorage implements DataStorage {
+
+    // Secondary index names
+    public static final String BY_STUDENT_ID = "studentId";
+    public static final String BY_MODULE_CODE = "moduleCode";
+    public static final String BY_BATCH_ID = "batchId";
+
+    private final DataStorage delegate;
+    private final Map<String, Map<String, Function<Object, String>>> declared = new ConcurrentHashMap<>();
+    private final Map<String, FileIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<String, Object> fileLocks = new ConcurrentHashMap<>();
+
+    public IndexedStorage(DataStorage delegate) {
+        this.delegate = delegate;
+
+        declareIndex(Constants.RESULTS_FILE, BY_STUDENT_ID, Result.class, Result::getStudentId);
+        declareIndex(Constants.RESULTS_FILE, BY_MODULE_CODE, Result.class, Result::getModuleCode);
+        declareIndex(Constants.EXAMS_FILE, BY_BATCH_ID, Exam.class, Exam::getBatchId);
+        declareIndex(Constants.EXAMS_FILE, BY_MODULE_CODE, Exam.class, Exam::getModuleCode);
+        declareIndex(Constants.REGISTRATIONS_FILE, BY_STUDENT_ID, ModuleRegistration.class, ModuleRegistration::getStudentId);
+        declareIndex(Constants.REGISTRATIONS_FILE, BY_MODULE_CODE, ModuleRegistration.class, ModuleRegistration::getModuleCode);
+        declareIndex(Constants.STUDENTS_FILE, BY_BATCH_ID, Student.class, Student::getBatchId);
+    }
+
+    /**
+     * Declare a secondary index on a file
+     * Objects that are not of the given type are left out of the index.
+     * @param filename The file name
+     * @param indexName Name used with findBy()
+     * @param type The model type stored in the file
+     * @param extractor Extracts the indexed value from a model
+     */
+    public <T> void declareIndex(String filename, String indexName, Class<T> type, Function<T, String> extractor) {
+        declared.computeIfAbsent(filename, f -> new ConcurrentHashMap<>())
+                .put(indexName, obj -> type.isInstance(obj) ? extractor.apply(type.cast(obj)) : null);
+        // Rebuild lazily with the new index included
+        indexes.remove(filename);
+    }
+
+    /**
+     * Find an object by its primary key
+     * @param id The primary key (see EntityKeys)
+     * @param filename The file name
+     * @return The object or null if not found
+     */
+    public Object findById(String id, String filename) {
+        FileIndex index = index(filename);
+        synchronized (index) {
+            return index.get(id);
+        }
+    }
+
+    /**
+     * Find all objects whose indexed value equals the given value
+     * @param filename The file name
+     * @param indexName A declared index name
+     * @param value The value to look up
+     * @return Matching objects in storage order (empty if none)
+     */
+    public List<Object> findBy(String filename, String indexName, String value) {
+        FileIndex index = index(filename);
+        synchronized (index) {
+            Map<String, List<Object>> secondary = index.secondary.get(indexName);
+            if (secondary == null) {
+                throw new IllegalArgumentException("No index '" + indexName + "' declared on " + filename);
+            }
+            List<Object> matches = secondary.get(value);
+            return matches == null ? new ArrayList<>() : new ArrayList<>(matches);
+        }
+    }
+
+    /**
+     * Results of a student (GET_STUDENT_RESULTS)
+     */
+    public List<Result> getStudentResults(String studentId) {
+        return typed(findBy(Constants.RESULTS_FILE, BY_STUDENT_ID, studentId), Result.class);
+    }
+
+    /**
+     * Exams of a module (GET_MODULE_EXAMS)
+     */
+    public List<Exam> getModuleExams(String moduleCode) {
+        return typed(findBy(Constants.EXAMS_FILE, BY_MODULE_CODE, moduleCode), Exam.class);
+    }
+
+    /**
+     * Module registrations of a student (GET_STUDENT_MODULES)
+     */
+    public List<ModuleRegistration> getStudentModules(String studentId) {
+        return typed(findBy(Constants.REGISTRATIONS_FILE, BY_STUDENT_ID, studentId), ModuleRegistration.class);
+    }
+
+    @Override
+    public void save(Object obj, String filename) {
+        synchronized (lockOf(filename)) {
+            delegate.save(obj, filename);
+            FileIndex index = indexes.get(filename);
+            if (index != null) {
+                synchronized (index) {
+                    index.add(obj);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Object load(String filename) {
+        return delegate.load(filename);
+    }
+
+    @Override
+    public List<Object> loadAll(String filename) {
+        return delegate.loadAll(filename);
+    }
+
+    @Override
+    public void delete(String id, String filename) {
+        synchronized (lockOf(filename)) {
+            delegate.delete(id, filename);
+            FileIndex index = indexes.get(filename);
+            if (index != null) {
+                synchronized (index) {
+                    if (!index.removeKey(id)) {
+                        indexes.remove(filename);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean fileExists(String filename) {
+        return delegate.fileExists(filename);
+    }
+
+    @Override
+    public void clearFile(String filename) {
+        synchronized (lockOf(filename)) {
+            delegate.clearFile(filename);
+            indexes.remove(filename);
+        }
+    }
+
+    @Override
+    public void saveAll(List<?> objects, String filename) {
+        synchronized (lockOf(filename)) {
+            delegate.saveAll(objects, filename);
+            indexes.put(filename, new FileIndex(declaredFor(filename), objects));
+        }
+    }
+
+    @Override
+    public void appendAll(List<?> objects, String filename) {
+        synchronized (lockOf(filename)) {
+            delegate.appendAll(objects, filename);
+            FileIndex index = indexes.get(filename);
+            if (index != null) {
+                synchronized (index) {
+                    for (Object obj : objects) {
+                        index.add(obj);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void update(Object oldObj, Object newObj, String filename) {
+        synchronized (lockOf(filename)) {
+            delegate.update(oldObj, newObj, filename);
+            FileIndex index = indexes.get(filename);
+            if (index != null) {
+                synchronized (index) {
+                    if (index.remove(oldObj)) {
+                        index.add(newObj);
+                    } else {
+                        indexes.remove(filename);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public Stream<Object> stream(String filename) {
+        return delegate.stream(filename);
+    }
+
+    @Override
+    public int getCount(String filename) {
+        FileIndex index = indexes.get(filename);
+        if (index != null) {
+            synchronized (index) {
+                return index.size;
+            }
+        }
+        return delegate.getCount(filename);
+    }
+
+    private FileIndex index(String filename) {
+        FileIndex index = indexes.get(filename);
+        if (index != null) {
+            return index;
+        }
+        synchronized (lockOf(filename)) {
+            return indexes.computeIfAbsent(filename,
+                    f -> new FileIndex(declaredFor(f), delegate.loadAll(f)));
+        }
+    }
+
+    private Object lockOf(String filename) {
+        return fileLocks.computeIfAbsent(filename, f -> new Object());
+    }
+
+    private Map<String, Function<Object, String>> declaredFor(String filename) {
+        return declared.getOrDefault(filename, Collections.emptyMap());
+    }
+
+    private static <T> List<T> typed(List<Object> objects, Class<T> type) {
+        List<T> typedList = new ArrayList<>(objects.size());
+        for (Object obj : objects) {
+            typedList.add(type.cast(obj));
+        }
+        return typedList;
+    }
+
+    /**
+     * Primary and secondary indexes of one file
+     * Guarded by synchronizing on the instance
+     */
+    private static final class FileIndex {
+        private final String[] indexNames;
+        private final List<Function<Object, String>> extractors;
+        // Normally one entry per key, but FileManager.save() does not reject duplicates
+        private final Map<String, List<Entry>> primary = new HashMap<>();
+        private final Map<String, Map<String, List<Object>>> secondary = new HashMap<>();
+        private int size;
+        private int unkeyed;
+
+        FileIndex(Map<String, Function<Object, String>> extractors, List<?> objects) {
+            this.indexNames = extractors.keySet().toArray(new String[0]);
+            this.extractors = new ArrayList<>(extractors.values());
+            for (String indexName : indexNames) {
+                secondary.put(indexName, new HashMap<>());
+            }
+            for (Object obj : objects) {
+                add(obj);
+            }
+        }
+
+        Object get(String key) {
+            List<Entry> entries = primary.get(key);
+            return entries == null ? null : entries.get(0).obj;
+        }
+
+        void add(Object obj) {
+            size++;
+            String[] values = new String[indexNames.length];
+            for (int i = 0; i < indexNames.length; i++) {
+                values[i] = extractors.get(i).apply(obj);
+                if (values[i] != null) {
+                    secondary.get(indexNames[i]).computeIfAbsent(values[i], v -> new ArrayList<>()).add(obj);
+                }
+            }
+            String key = EntityKeys.keyOf(obj);
+            if (key != null) {
+                primary.computeIfAbsent(key, k -> new ArrayList<>(1)).add(new Entry(obj, values));
+            } else {
+                unkeyed++;
+            }
+        }
+
+        /**
+         * @return false if the object could not be located and the index must be rebuilt
+         */
+        boolean remove(Object obj) {
+            String key = EntityKeys.keyOf(obj);
+            List<Entry> entries = key == null ? null : primary.get(key);
+            int position = -1;
+            for (int i = 0; entries != null && i < entries.size(); i++) {
+                if (EntityKeys.sameRecord(entries.get(i).obj, obj)) {
+                    position = i;
+                    break;
+                }
+            }
+            if (position < 0) {
+                return false;
+            }
+            unlink(entries.remove(position));
+            if (entries.isEmpty()) {
+                primary.remove(key);
+            }
+            return true;
+        }
+
+        /**
+         * @return false if unkeyed objects may also have matched and the index must be rebuilt
+         */
+        boolean removeKey(String id) {
+            List<Entry> entries = primary.remove(id);
+            if (entries != null) {
+                for (Entry entry : entries) {
+                    unlink(entry);
+                }
+            }
+            return unkeyed == 0;
+        }
+
+        /**
+         * Remove an entry from the buckets it was added to, whatever its
+         * object's fields say now
+         */
+        private void unlink(Entry entry) {
+            size--;
+            for (int i = 0; i < indexNames.length; i++) {
+                String value = entry.values[i];
+                List<Object> bucket = value == null ? null : secondary.get(indexNames[i]).get(value);
+                if (bucket != null) {
+                    bucket.removeIf(o -> o == entry.obj);
+                    if (bucket.isEmpty()) {
+                        secondary.get(indexNames[i]).remove(value);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * An indexed object and the secondary values it was indexed under
+     */
+    private static final class Entry {
+        private final Object obj;
+        private final String[] values;
+
+        Entry(Object obj, String[] values) {
+            this.obj = obj;
+            this.values = values;
+        }
+    }
+}
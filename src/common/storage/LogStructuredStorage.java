@@ -0,0 +1,610 @@
+package common.storage;
+
+import common.codec.Codec;
+import common.codec.Codecs;
+import common.utils.Constants;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Log-structured implementation of DataStorage
+ * Each file is an append-only segment of length-prefixed records.
+ * Live record offsets are kept in memory, so save() is a single append
+ * instead of a full rewrite. Dead records are compacted in the background.
+ * The first time a file is opened, the records of an existing FileManager
+ * file of the same name are imported into its new segment.
+ *
+ * Writes throw UncheckedIOException when the segment cannot be written;
+ * reads log the error and return what they could read. Rewritten
+ * segments are forced to disk before they replace the old one.
+ */
+public class LogStructuredStorage implements DataStorage, Closeable {
+
+    // Record layout: [int payloadLength][byte kind][payload]
+    static final String SEGMENT_SUFFIX = ".log";
+    static final int HEADER_SIZE = 5;
+    static final byte RECORD_PUT = 1;
+    static final byte RECORD_DELETE = 2;
+
+    private static final long COMPACTION_INTERVAL_SECONDS = 30;
+    private static final long COMPACTION_MIN_DEAD_BYTES = 64 * 1024;
+    private static final double COMPACTION_DEAD_RATIO = 0.5;
+
+    private final Codec codec;
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService compactor;
+
+    /**
+     * Constructor - creates data directory and starts the background compactor
+     */
+    public LogStructuredStorage() {
+        this(Codecs.forName(Constants.STORAGE_CODEC));
+    }
+
+    /**
+     * Constructor with an explicit codec for record payloads
+     * @param codec The codec used to encode records
+     */
+    public LogStructuredStorage(Codec codec) {
+        this.codec = codec;
+        File dataDir = new File(Constants.DATA_DIR);
+        if (!dataDir.exists()) {
+            boolean created = dataDir.mkdirs();
+            if (created) {
+                System.out.println("📁 Data directory created: " + Constants.DATA_DIR);
+            }
+        }
+
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "segment-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::compactAll,
+                COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void save(Object obj, String filename) {
+        Segment segment = segment(filename);
+        try {
+            synchronized (segment) {
+                segment.appendPut(serialize(obj));
+            }
+            System.out.println("✅ Appended to: " + filename);
+        } catch (IOException e) {
+            System.err.println("❌ Error appending to segment: " + filename);
+            throw new UncheckedIOException("Cannot append to segment: " + filename, e);
+        }
+    }
+
+    @Override
+    public Object load(String filename) {
+        Segment segment = segment(filename);
+        try {
+            synchronized (segment) {
+                if (segment.live.isEmpty()) {
+                    return null;
+                }
+                return deserialize(segment.readPayload(segment.live.firstKey()));
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error loading from segment: " + filename);
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public List<Object> loadAll(String filename) {
+        List<Object> objects = new ArrayList<>();
+        Segment segment = segment(filename);
+        try {
+            synchronized (segment) {
+                for (long offset : segment.live.keySet()) {
+                    objects.add(deserialize(segment.readPayload(offset)));
+                }
+            }
+            System.out.println("📖 Loaded " + objects.size() + " objects from: " + filename);
+        } catch (IOException e) {
+            System.err.println("❌ Error loading all from segment: " + filename);
+            e.printStackTrace();
+        }
+        return objects;
+    }
+
+    /**
+     * Stream the live records, decoding each only when the stream reaches it
+     * The stream reads a read-only mapping of the segment as it was when
+     * stream() was called, so later writes and compaction do not affect it.
+     */
+    @Override
+    public Stream<Object> stream(String filename) {
+        try {
+            return StreamSupport.stream(map(filename, null).spliterator(), false);
+        } catch (IOException e) {
+            System.err.println("⚠️ Cannot map segment " + filename + ", reading it into memory: " + e.getMessage());
+            return loadAll(filename).stream();
+        }
+    }
+
+    @Override
+    public void delete(String id, String filename) {
+        Segment segment = segment(filename);
+        int removed = 0;
+        try {
+            synchronized (segment) {
+                for (long offset : new ArrayList<>(segment.live.keySet())) {
+                    Object obj = deserialize(segment.readPayload(offset));
+                    if (EntityKeys.matches(obj, id)) {
+                        segment.appendDelete(offset);
+                        removed++;
+                    }
+                }
+            }
+            System.out.println("🗑️ Deleted " + removed + " object(s) with id: " + id + " from: " + filename);
+        } catch (IOException e) {
+            System.err.println("❌ Error deleting from segment: " + filename);
+            throw new UncheckedIOException("Cannot delete from segment: " + filename, e);
+        }
+    }
+
+    @Override
+    public boolean fileExists(String filename) {
+        if (!segmentFile(filename).exists() && !legacyFile(filename).exists()) {
+            return false;
+        }
+        Segment segment = segment(filename);
+        synchronized (segment) {
+            return !segment.live.isEmpty();
+        }
+    }
+
+    /**
+     * Replace the segment with an empty one
+     * The segment stays open, so writers holding it never see a closed channel,
+     * and the empty segment keeps an old FileManager file from being imported again.
+     */
+    @Override
+    public void clearFile(String filename) {
+        Segment segment = segment(filename);
+        try {
+            synchronized (segment) {
+                File tmp = new File(segment.file.getPath() + ".tmp");
+                Files.write(tmp.toPath(), new byte[0]);
+                segment.replaceWith(tmp);
+            }
+            System.out.println("🗑️ Cleared segment: " + filename);
+        } catch (IOException e) {
+            System.err.println("❌ Error clearing segment: " + filename);
+            throw new UncheckedIOException("Cannot clear segment: " + filename, e);
+        }
+    }
+
+    @Override
+    public void saveAll(List<?> objects, String filename) {
+        Segment segment = segment(filename);
+        try {
+            synchronized (segment) {
+                File tmp = new File(segment.file.getPath() + ".tmp");
+                try (FileChannel out = FileChannel.open(tmp.toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    for (Object obj : objects) {
+                        out.write(record(RECORD_PUT, serialize(obj)));
+                    }
+                    out.force(true);
+                }
+                segment.replaceWith(tmp);
+            }
+            System.out.println("✅ Saved " + objects.size() + " objects to: " + filename);
+        } catch (IOException e) {
+            System.err.println("❌ Error saving all to segment: " + filename);
+            throw new UncheckedIOException("Cannot save segment: " + filename, e);
+        }
+    }
+
+    @Override
+    public void appendAll(List<?> objects, String filename) {
+        Segment segment = segment(filename);
+        try {
+            synchronized (segment) {
+                for (Object obj : objects) {
+                    segment.appendPut(serialize(obj));
+                }
+            }
+            System.out.println("✅ Appended " + objects.size() + " objects to: " + filename);
+        } catch (IOException e) {
+            System.err.println("❌ Error appending to segment: " + filename);
+            throw new UncheckedIOException("Cannot append to segment: " + filename, e);
+        }
+    }
+
+    /**
+     * Rewrite a segment keeping only its live records
+     * Failures are logged and leave the old segment in place; compaction
+     * is maintenance, so it never fails a caller.
+     * @param filename The file name
+     */
+    public void compact(String filename) {
+        Segment segment = segment(filename);
+        try {
+            synchronized (segment) {
+                long before = segment.size;
+                File tmp = new File(segment.file.getPath() + ".tmp");
+                try (FileChannel out = FileChannel.open(tmp.toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    for (Map.Entry<Long, Integer> entry : segment.live.entrySet()) {
+                        long offset = entry.getKey();
+                        long length = HEADER_SIZE + entry.getValue();
+                        long copied = 0;
+                        while (copied < length) {
+                            copied += segment.channel.transferTo(offset + copied, length - copied, out);
+                        }
+                    }
+                    out.force(true);
+                }
+                segment.replaceWith(tmp);
+                System.out.println("🧹 Compacted " + filename + ": " + before + " -> " + segment.size + " bytes");
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error compacting segment: " + filename);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Get the segment file backing a file name
+     * @param filename The file name
+     * @return The segment file
+     */
+    public File getSegmentFile(String filename) {
+        return segmentFile(filename);
+    }
+
+    /**
+     * Stop the compactor and close all open segments
+     */
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+        for (Segment segment : segments.values()) {
+            synchronized (segment) {
+                segment.close();
+            }
+        }
+        segments.clear();
+    }
+
+    /**
+     * Map a segment read-only together with its live record positions
+     * Returns previous unchanged if the segment has not been written since.
+     * @param filename The file name
+     * @param previous The last mapping of this file, or null
+     * @return The current mapping
+     */
+    MappedSegment map(String filename, MappedSegment previous) throws IOException {
+        Segment segment = segment(filename);
+        synchronized (segment) {
+            if (previous != null && previous.owner == segment
+                    && previous.generation == segment.generation && previous.size == segment.size) {
+                return previous;
+            }
+            if (segment.size > Integer.MAX_VALUE) {
+                throw new IOException("Segment too large to map: " + segment.file.getName());
+            }
+            ByteBuffer buffer = segment.size == 0
+                    ? ByteBuffer.allocate(0)
+                    : segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+            long[] offsets = new long[segment.live.size()];
+            int[] lengths = new int[offsets.length];
+            int i = 0;
+            for (Map.Entry<Long, Integer> entry : segment.live.entrySet()) {
+                offsets[i] = entry.getKey() + HEADER_SIZE;
+                lengths[i++] = entry.getValue();
+            }
+            return new MappedSegment(segment, segment.generation, segment.size, buffer, offsets, lengths);
+        }
+    }
+
+    private void compactAll() {
+        for (Map.Entry<String, Segment> entry : segments.entrySet()) {
+            Segment segment = entry.getValue();
+            boolean needsCompaction;
+            synchronized (segment) {
+                needsCompaction = segment.deadBytes >= COMPACTION_MIN_DEAD_BYTES
+                        && segment.deadBytes > segment.size * COMPACTION_DEAD_RATIO;
+            }
+            if (needsCompaction) {
+                compact(entry.getKey());
+            }
+        }
+    }
+
+    private Segment segment(String filename) {
+        return segments.computeIfAbsent(filename, name -> {
+            try {
+                File file = segmentFile(name);
+                if (!file.exists()) {
+                    importLegacyFile(name, file);
+                }
+                return new Segment(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open segment: " + name, e);
+            }
+        });
+    }
+
+    /**
+     * Write the records of a FileManager file into a new segment
+     * The segment is built in a temporary file and moved into place, so an
+     * interrupted import is simply redone on the next open.
+     */
+    private void importLegacyFile(String filename, File segmentFile) throws IOException {
+        File legacy = legacyFile(filename);
+        if (!legacy.exists() || legacy.length() == 0) {
+            return;
+        }
+        Object stored = Codecs.decode(Files.readAllBytes(legacy.toPath()));
+        List<?> objects = stored instanceof List ? (List<?>) stored
+                : stored != null ? List.of(stored) : List.of();
+        File tmp = new File(segmentFile.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Object obj : objects) {
+                ByteBuffer record = record(RECORD_PUT, serialize(obj));
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(true);
+        }
+        Files.move(tmp.toPath(), segmentFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("📥 Imported " + objects.size() + " records from: " + filename);
+    }
+
+    private static File segmentFile(String filename) {
+        return new File(Constants.DATA_DIR + filename + SEGMENT_SUFFIX);
+    }
+
+    private static File legacyFile(String filename) {
+        return new File(Constants.DATA_DIR + filename);
+    }
+
+    static ByteBuffer record(byte kind, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length).put(kind).put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    private byte[] serialize(Object obj) throws IOException {
+        return codec.encode(obj);
+    }
+
+    private static Object deserialize(byte[] payload) throws IOException {
+        return Codecs.decode(payload);
+    }
+
+    /**
+     * One open segment file with its in-memory offset index
+     * All access is guarded by synchronizing on the segment
+     */
+    private static final class Segment {
+        private final File file;
+        private FileChannel channel;
+        // Offset of each live PUT record -> payload length, in append order
+        private final TreeMap<Long, Integer> live = new TreeMap<>();
+        private long size;
+        private long deadBytes;
+        // Incremented whenever the file is replaced, which moves records
+        private int generation;
+
+        Segment(File file) throws IOException {
+            this.file = file;
+            open();
+        }
+
+        private void open() throws IOException {
+            channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            live.clear();
+            deadBytes = 0;
+            size = 0;
+
+            long fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (size + HEADER_SIZE <= fileSize) {
+                header.clear();
+                channel.read(header, size);
+                header.flip();
+                int length = header.getInt();
+                byte kind = header.get();
+                if (length < 0 || size + HEADER_SIZE + length > fileSize) {
+                    break;
+                }
+                if (kind == RECORD_PUT) {
+                    live.put(size, length);
+                } else if (kind == RECORD_DELETE) {
+                    ByteBuffer target = ByteBuffer.allocate(Long.BYTES);
+                    channel.read(target, size + HEADER_SIZE);
+                    target.flip();
+                    Integer removed = live.remove(target.getLong());
+                    if (removed != null) {
+                        deadBytes += HEADER_SIZE + removed;
+                    }
+                    deadBytes += HEADER_SIZE + length;
+                } else {
+                    break;
+                }
+                size += HEADER_SIZE + length;
+            }
+
+            // Drop a torn record left behind by an interrupted append
+            if (size < fileSize) {
+                System.err.println("⚠️ Truncating incomplete tail of segment: " + file.getName());
+                channel.truncate(size);
+            }
+        }
+
+        void appendPut(byte[] payload) throws IOException {
+            long offset = append(record(RECORD_PUT, payload));
+            live.put(offset, payload.length);
+        }
+
+        void appendDelete(long target) throws IOException {
+            Integer length = live.remove(target);
+            if (length == null) {
+                return;
+            }
+            append(record(RECORD_DELETE, ByteBuffer.allocate(Long.BYTES).putLong(target).array()));
+            deadBytes += HEADER_SIZE + length + HEADER_SIZE + Long.BYTES;
+        }
+
+        private long append(ByteBuffer record) throws IOException {
+            long offset = size;
+            while (record.hasRemaining()) {
+                size += channel.write(record, size);
+            }
+            return offset;
+        }
+
+        byte[] readPayload(long offset) throws IOException {
+            ByteBuffer payload = ByteBuffer.allocate(live.get(offset));
+            long position = offset + HEADER_SIZE;
+            while (payload.hasRemaining()) {
+                int read = channel.read(payload, position + payload.position());
+                if (read < 0) {
+                    throw new EOFException("Segment truncated at offset " + offset);
+                }
+            }
+            return payload.array();
+        }
+
+        void replaceWith(File tmp) throws IOException {
+            close();
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            generation++;
+            open();
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("❌ Error closing segment: " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * Read-only mapping of a segment and the payload positions of its live records
+     * Records up to size never change, so the mapping stays valid for readers
+     * even after later appends or a compaction.
+     */
+    static final class MappedSegment {
+        final Object owner;
+        final int generation;
+        final long size;
+        final ByteBuffer buffer;
+        final long[] offsets;
+        final int[] lengths;
+
+        MappedSegment(Object owner, int generation, long size, ByteBuffer buffer, long[] offsets, int[] lengths) {
+            this.owner = owner;
+            this.generation = generation;
+            this.size = size;
+            this.buffer = buffer;
+            this.offsets = offsets;
+            this.lengths = lengths;
+        }
+
+        int count() {
+            return offsets.length;
+        }
+
+        /**
+         * Decode the live record at an index
+         */
+        Object decode(int index) throws IOException {
+            byte[] payload = new byte[lengths[index]];
+            ByteBuffer view = buffer.duplicate();
+            view.position((int) offsets[index]);
+            view.get(payload);
+            return deserialize(payload);
+        }
+
+        /**
+         * Splittable, lazily decoding iteration over the live records
+         */
+        Spliterator<Object> spliterator() {
+            return new RecordSpliterator(this, 0, offsets.length);
+        }
+    }
+
+    private static final class RecordSpliterator implements Spliterator<Object> {
+        private final MappedSegment segment;
+        private int index;
+        private final int end;
+
+        RecordSpliterator(MappedSegment segment, int index, int end) {
+            this.segment = segment;
+            this.index = index;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Object> action) {
+            if (index >= end) {
+                return false;
+            }
+            try {
+                action.accept(segment.decode(index++));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot decode record " + (index - 1), e);
+            }
+            return true;
+        }
+
+        @Override
+        public Spliterator<Object> trySplit() {
+            int middle = (index + end) >>> 1;
+            if (middle - index < 64) {
+                return null;
+            }
+            Spliterator<Object> prefix = new RecordSpliterator(segment, index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package common.storage;
+
+import common.codec.Codec;
+import common.models.Result;
+import common.utils.Constants;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Log-structured storage with a memory-mapped read path
+ * Writes go to the segment files exactly as in LogStructuredStorage. Reads
+ * map the segment with FileChannel.map instead of copying it onto the heap:
+ * loadAll() returns a list that decodes a record only when it is accessed,
+ * and scan() skips records whose raw bytes cannot match before decoding
+ * them. The mapping is reused until the segment is written again.
+ *
+ * Meant for read-heavy services such as the student portal.
+ */
+public class MappedLogStorage extends LogStructuredStorage {
+
+    private final Map<String, MappedSegment> mappings = new ConcurrentHashMap<>();
+
+    public MappedLogStorage() {
+        super();
+    }
+
+    public MappedLogStorage(Codec codec) {
+        super(codec);
+    }
+
+    @Override
+    public Object load(String filename) {
+        MappedSegment segment = mapping(filename);
+        if (segment == null) {
+            return super.load(filename);
+        }
+        try {
+            return segment.count() == 0 ? null : segment.decode(0);
+        } catch (IOException e) {
+            System.err.println("❌ Error loading from segment: " + filename);
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Load all objects lazily
+     * Each record is decoded the first time get() is called for it and
+     * kept, so repeated reads return the same instance; modifying the list
+     * first decodes every record into an ordinary list.
+     */
+    @Override
+    public List<Object> loadAll(String filename) {
+        MappedSegment segment = mapping(filename);
+        if (segment == null) {
+            return super.loadAll(filename);
+        }
+        return new LazyRecordList(segment);
+    }
+
+    /**
+     * Stream the live records from the cached mapping, decoding lazily
+     */
+    @Override
+    public Stream<Object> stream(String filename) {
+        MappedSegment segment = mapping(filename);
+        if (segment == null) {
+            return super.loadAll(filename).stream();
+        }
+        return StreamSupport.stream(segment.spliterator(), false);
+    }
+
+    /**
+     * Find the objects of a file that match a filter
+     * Records whose encoded bytes do not contain hint are skipped without
+     * being decoded. The hint must be the exact value of a String field that
+     * every match has, such as a student id.
+     * @param filename The file name
+     * @param hint Required field value, or null to decode every record
+     * @param filter Test applied to each decoded candidate
+     * @return Matching objects in file order
+     */
+    public List<Object> scan(String filename, String hint, Predicate<Object> filter) {
+        MappedSegment segment = mapping(filename);
+        List<Object> matches = new ArrayList<>();
+        if (segment == null) {
+            for (Object obj : super.loadAll(filename)) {
+                if (filter.test(obj)) {
+                    matches.add(obj);
+                }
+            }
+            return matches;
+        }
+        byte[] needle = hint != null && !hint.isEmpty() ? hint.getBytes(StandardCharsets.UTF_8) : null;
+        try {
+            for (int i = 0; i < segment.offsets.length; i++) {
+                if (needle != null && !contains(segment.buffer, (int) segment.offsets[i], segment.lengths[i], needle)) {
+                    continue;
+                }
+                Object obj = segment.decode(i);
+                if (filter.test(obj)) {
+                    matches.add(obj);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error scanning segment: " + filename);
+            e.printStackTrace();
+        }
+        return matches;
+    }
+
+    /**
+     * Get a student's results without decoding other students' records
+     */
+    public List<Result> getStudentResults(String studentId) {
+        List<Result> results = new ArrayList<>();
+        for (Object obj : scan(Constants.RESULTS_FILE, studentId,
+                o -> o instanceof Result && studentId.equals(((Result) o).getStudentId()))) {
+            results.add((Result) obj);
+        }
+        return results;
+    }
+
+    @Override
+    public void clearFile(String filename) {
+        mappings.remove(filename);
+        super.clearFile(filename);
+    }
+
+    @Override
+    public void close() {
+        mappings.clear();
+        super.close();
+    }
+
+    /**
+     * Current mapping of a file, or null if it cannot be mapped
+     */
+    private MappedSegment mapping(String filename) {
+        try {
+            MappedSegment previous = mappings.get(filename);
+            MappedSegment current = map(filename, previous);
+            if (current != previous) {
+                mappings.put(filename, current);
+            }
+            return current;
+        } catch (IOException e) {
+            System.err.println("⚠️ Cannot map segment " + filename + ", reading it into memory: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean contains(ByteBuffer buffer, int offset, int length, byte[] needle) {
+        int last = offset + length - needle.length;
+        byte first = needle[0];
+        for (int i = offset; i <= last; i++) {
+            if (buffer.get(i) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < needle.length && buffer.get(i + j) == needle[j]) {
+                j++;
+            }
+            if (j == needle.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * List view over the live records of one mapping
+     */
+    private static final class LazyRecordList extends AbstractList<Object> implements RandomAccess {
+        private final MappedSegment segment;
+        // Records decoded so far, by index; dropped once materialized
+        private Object[] decoded;
+        private List<Object> materialized;
+
+        LazyRecordList(MappedSegment segment) {
+            this.segment = segment;
+            this.decoded = new Object[segment.count()];
+        }
+
+        @Override
+        public Object get(int index) {
+            if (materialized != null) {
+                return materialized.get(index);
+            }
+            if (index < 0 || index >= decoded.length) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + decoded.length);
+            }
+            Object obj = decoded[index];
+            if (obj == null) {
+                try {
+                    obj = segment.decode(index);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot decode record " + index, e);
+                }
+                decoded[index] = obj;
+            }
+            return obj;
+        }
+
+        @Override
+        public int size() {
+            return materialized != null ? materialized.size() : decoded.length;
+        }
+
+        @Override
+        public Object set(int index, Object element) {
+            return materialize().set(index, element);
+        }
+
+        @Override
+        public void add(int index, Object element) {
+            materialize().add(index, element);
+            modCount++;
+        }
+
+        @Override
+        public Object remove(int index) {
+            modCount++;
+            return materialize().remove(index);
+        }
+
+        private List<Object> materialize() {
+            if (materialized == null) {
+                List<Object> objects = new ArrayList<>(decoded.length);
+                for (int i = 0; i < decoded.length; i++) {
+                    objects.add(get(i));
+                }
+                materialized = objects;
+                decoded = null;
+            }
+            return materialized;
+        }
+    }
+}
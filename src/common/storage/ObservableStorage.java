@@ -0,0 +1,170 @@
+package common.storage;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * DataStorage decorator that notifies StorageListeners of every write
+ * Lets derived views (aggregates, indexes) stay up to date incrementally
+ * instead of rescanning the file on every read.
+ *
+ * A write and its notifications run under the file's stripe lock, so
+ * listeners see the writes to one file in the order they reached the
+ * delegate. Listeners must not block on another thread's write.
+ */
+public class ObservableStorage implements DataStorage {
+
+    private final DataStorage delegate;
+    private final List<StorageListener> listeners = new CopyOnWriteArrayList<>();
+    private final StripedLocks locks = new StripedLocks();
+
+    public ObservableStorage(DataStorage delegate) {
+        this.delegate = delegate;
+    }
+
+    public void addListener(StorageListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(StorageListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Get the wrapped storage
+     */
+    public DataStorage getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void save(Object obj, String filename) {
+        Lock lock = locks.get(filename).writeLock();
+        lock.lock();
+        try {
+            delegate.save(obj, filename);
+            for (StorageListener listener : listeners) {
+                listener.onSave(filename, obj);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Run a read-modify-write of one file as a single write
+     * Other writes to the file through this storage wait until it returns,
+     * so none can land between its load and its save and be overwritten.
+     * Writes made inside notify listeners as usual.
+     * @param filename The file name
+     * @param readModifyWrite Loads, changes and writes the file
+     */
+    public void modify(String filename, Runnable readModifyWrite) {
+        Lock lock = locks.get(filename).writeLock();
+        lock.lock();
+        try {
+            readModifyWrite.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Object load(String filename) {
+        return delegate.load(filename);
+    }
+
+    @Override
+    public List<Object> loadAll(String filename) {
+        return delegate.loadAll(filename);
+    }
+
+    @Override
+    public void delete(String id, String filename) {
+        Lock lock = locks.get(filename).writeLock();
+        lock.lock();
+        try {
+            delegate.delete(id, filename);
+            for (StorageListener listener : listeners) {
+                listener.onDelete(filename, id);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean fileExists(String filename) {
+        return delegate.fileExists(filename);
+    }
+
+    @Override
+    public void clearFile(String filename) {
+        Lock lock = locks.get(filename).writeLock();
+        lock.lock();
+        try {
+            delegate.clearFile(filename);
+            for (StorageListener listener : listeners) {
+                listener.onReset(filename);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(List<?> objects, String filename) {
+        Lock lock = locks.get(filename).writeLock();
+        lock.lock();
+        try {
+            delegate.saveAll(objects, filename);
+            for (StorageListener listener : listeners) {
+                listener.onReset(filename);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void appendAll(List<?> objects, String filename) {
+        Lock lock = locks.get(filename).writeLock();
+        lock.lock();
+        try {
+            delegate.appendAll(objects, filename);
+            for (StorageListener listener : listeners) {
+                for (Object obj : objects) {
+                    listener.onSave(filename, obj);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void update(Object oldObj, Object newObj, String filename) {
+        Lock lock = locks.get(filename).writeLock();
+        lock.lock();
+        try {
+            delegate.update(oldObj, newObj, filename);
+            for (StorageListener listener : listeners) {
+                listener.onUpdate(filename, oldObj, newObj);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Stream<Object> stream(String filename) {
+        return delegate.stream(filename);
+    }
+
+    @Override
+    public int getCount(String filename) {
+        return delegate.getCount(filename);
+    }
+}
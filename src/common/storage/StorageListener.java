@@ -0,0 +1,36 @@
+package common.storage;
+
+/**
+ * Callback for writes made through an ObservableStorage
+ * Listeners run on the writing thread after the write has been stored.
+ */
+public interface StorageListener {
+
+    /**
+     * An object was saved or appended
+     * @param filename The file name
+     * @param obj The saved object
+     */
+    void onSave(String filename, Object obj);
+
+    /**
+     * An object was replaced
+     * @param filename The file name
+     * @param oldObj The replaced object (may be the same instance as newObj)
+     * @param newObj The new object
+     */
+    void onUpdate(String filename, Object oldObj, Object newObj);
+
+    /**
+     * An object was deleted
+     * @param filename The file name
+     * @param id The id passed to delete()
+     */
+    void onDelete(String filename, String id);
+
+    /**
+     * The whole file was replaced or cleared; state derived from it must be rebuilt
+     * @param filename The file name
+     */
+    void onReset(String filename);
+}
@@ -0,0 +1,41 @@
+package common.storage;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Fixed set of read/write locks shared out by key hash
+ * Different files usually map to different stripes, so they do not block
+ * each other, and readers of one file share its read lock. Memory stays
+ * bounded no matter how many keys are used.
+ */
+public class StripedLocks {
+
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final ReadWriteLock[] stripes;
+
+    public StripedLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes Number of locks, rounded up to a power of two
+     */
+    public StripedLocks(int stripes) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReadWriteLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Get the lock guarding a key
+     */
+    public ReadWriteLock get(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return stripes[hash & (stripes.length - 1)];
+    }
+}
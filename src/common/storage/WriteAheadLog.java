@@ -0,0 +1,354 @@
+package common.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log with group commit
+ *
+ * A write is first appended to the log and made durable, then applied to
+ * its data file. Concurrent writers share fsyncs: the first writer to find
+ * no flush in progress becomes the leader, writes every pending record in
+ * one batch and forces the log once, and all writers covered by that batch
+ * return together.
+ *
+ * Once the log grows past the checkpoint size, the data files written
+ * since the last checkpoint are forced to disk and the log is truncated,
+ * so replay after a crash never reads more than about that much.
+ *
+ * A write whose apply fails is followed by an abort record naming it, and
+ * replay skips both, so a write the caller saw fail is not redone after a
+ * restart. Callers write each data file from one thread at a time, so an
+ * abort always refers to the latest record of its file.
+ *
+ * Record layout: [int length][int crc32][byte op][UTF filename][data]
+ * An abort record has op OP_ABORT and the aborted record's length and crc as data.
+ */
+public class WriteAheadLog {
+
+    // Reserved operation code of abort records; never passed to a RecordHandler
+    public static final byte OP_ABORT = 0;
+
+    private final File file;
+    private final File dataDir;
+    private final FileChannel channel;
+    private final long checkpointBytes;
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final Set<String> dirty = new HashSet<>();
+
+    // Group commit state, guarded by this
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedSeq;
+    private long durableSeq;
+    private long failedSeq;
+    private boolean flushing;
+    private long size;
+
+    /**
+     * Open or create a log
+     * @param file The log file
+     * @param dataDir Directory of the data files named in records
+     * @param checkpointBytes Log size that triggers a checkpoint
+     */
+    public WriteAheadLog(File file, File dataDir, long checkpointBytes) throws IOException {
+        this.file = file;
+        this.dataDir = dataDir;
+        this.checkpointBytes = checkpointBytes;
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.size = channel.size();
+        channel.position(size);
+    }
+
+    /**
+     * Log a write, wait until it is durable, then apply it
+     * @param op Operation code understood by the replay handler
+     * @param filename Data file the write goes to
+     * @param data Encoded operation data
+     * @param apply Applies the write to the data file; returns false on failure
+     * @return The result of apply
+     */
+    public boolean write(byte op, String filename, byte[] data, BooleanSupplier apply) throws IOException {
+        boolean applied;
+        checkpointLock.readLock().lock();
+        try {
+            byte[] record = encode(op, filename, data);
+            commit(record);
+            try {
+                applied = apply.getAsBoolean();
+            } catch (RuntimeException e) {
+                abort(filename, record);
+                throw e;
+            }
+            if (!applied) {
+                abort(filename, record);
+            }
+            synchronized (dirty) {
+                dirty.add(filename);
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        if (sizeNow() >= checkpointBytes) {
+            checkpoint();
+        }
+        return applied;
+    }
+
+    /**
+     * Read every complete record from the start of the log
+     * A torn or corrupt tail from a crash ends the replay.
+     * @param handler Called for each record in log order
+     * @return Number of records replayed
+     */
+    public int replay(RecordHandler handler) throws IOException {
+        int count = 0;
+        channel.position(0);
+        DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+        long valid = 0;
+        // The latest record of each file is held back until it is known not to be aborted
+        Map<String, Held> held = new LinkedHashMap<>();
+        try {
+            while (true) {
+                int length = in.readInt();
+                int crc = in.readInt();
+                if (length < 0 || valid + 8 + length > size) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                in.readFully(record);
+                CRC32 check = new CRC32();
+                check.update(record);
+                if ((int) check.getValue() != crc) {
+                    break;
+                }
+                DataInputStream body = new DataInputStream(new ByteArrayInputStream(record));
+                byte op = body.readByte();
+                String filename = body.readUTF();
+                byte[] data = new byte[body.available()];
+                body.readFully(data);
+                valid += 8 + length;
+                if (op == OP_ABORT) {
+                    Held last = held.get(filename);
+                    if (last != null && last.length == ByteBuffer.wrap(data).getInt()
+                            && last.crc == ByteBuffer.wrap(data).getInt(4)) {
+                        held.remove(filename);
+                    }
+                    continue;
+                }
+                Held previous = held.put(filename, new Held(op, data, length, crc));
+                if (previous != null) {
+                    count += apply(handler, filename, previous);
+                }
+            }
+        } catch (EOFException e) {
+            // Torn tail
+        }
+        for (Map.Entry<String, Held> entry : held.entrySet()) {
+            count += apply(handler, entry.getKey(), entry.getValue());
+        }
+        synchronized (this) {
+            size = valid;
+        }
+        channel.truncate(valid);
+        channel.position(valid);
+        return count;
+    }
+
+    /**
+     * Force the data files written since the last checkpoint and empty the log
+     */
+    public void checkpoint() throws IOException {
+        checkpointLock.writeLock().lock();
+        try {
+            synchronized (this) {
+                if (size == 0) {
+                    return;
+                }
+            }
+            Set<String> files;
+            synchronized (dirty) {
+                files = new HashSet<>(dirty);
+                dirty.clear();
+            }
+            for (String filename : files) {
+                File dataFile = new File(dataDir, filename);
+                if (dataFile.exists()) {
+                    try (FileChannel data = FileChannel.open(dataFile.toPath(), StandardOpenOption.WRITE)) {
+                        data.force(true);
+                    }
+                }
+            }
+            forceDirectory(dataDir);
+            synchronized (this) {
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(true);
+                size = 0;
+            }
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checkpoint and close the log; it cannot be written afterwards
+     */
+    public void close() throws IOException {
+        checkpointLock.writeLock().lock();
+        try {
+            checkpoint();
+            channel.close();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    private int apply(RecordHandler handler, String filename, Held record) throws IOException {
+        handler.apply(record.op, filename, record.data);
+        synchronized (dirty) {
+            dirty.add(filename);
+        }
+        return 1;
+    }
+
+    /**
+     * Log that a durable record was not applied, so replay skips it
+     */
+    private void abort(String filename, byte[] record) throws IOException {
+        // The record's own [length][crc] header identifies it
+        commit(encode(OP_ABORT, filename, Arrays.copyOf(record, 8)));
+    }
+
+    private synchronized long sizeNow() {
+        return size;
+    }
+
+    /**
+     * Append a record and return once it is on disk, flushing as leader if needed
+     */
+    private void commit(byte[] record) throws IOException {
+        long seq;
+        synchronized (this) {
+            pending.write(record, 0, record.length);
+            seq = ++appendedSeq;
+        }
+        while (true) {
+            byte[] batch;
+            long upTo;
+            synchronized (this) {
+                while (flushing && durableSeq < seq) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for log flush", e);
+                    }
+                }
+                if (durableSeq >= seq) {
+                    return;
+                }
+                if (seq <= failedSeq) {
+                    throw new IOException("Log flush failed");
+                }
+                flushing = true;
+                batch = pending.toByteArray();
+                pending.reset();
+                upTo = appendedSeq;
+            }
+            IOException failure = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                failure = e;
+            }
+            synchronized (this) {
+                flushing = false;
+                if (failure == null) {
+                    durableSeq = upTo;
+                    size += batch.length;
+                } else {
+                    failedSeq = upTo;
+                }
+                notifyAll();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private static byte[] encode(byte op, String filename, byte[] data) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(data.length + 32);
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeByte(op);
+        out.writeUTF(filename);
+        out.write(data);
+        byte[] record = body.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        ByteBuffer framed = ByteBuffer.allocate(8 + record.length);
+        framed.putInt(record.length).putInt((int) crc.getValue()).put(record);
+        return framed.array();
+    }
+
+    private static void forceDirectory(File dir) {
+        // Makes renames durable; not supported on every platform
+        try (FileChannel directory = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Best effort
+        }
+    }
+
+    /**
+     * A replayed record waiting to see whether it is aborted
+     */
+    private static final class Held {
+        final byte op;
+        final byte[] data;
+        final int length;
+        final int crc;
+
+        Held(byte op, byte[] data, int length, int crc) {
+            this.op = op;
+            this.data = data;
+            this.length = length;
+            this.crc = crc;
+        }
+    }
+
+    /**
+     * Applies one logged write during replay
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void apply(byte op, String filename, byte[] data) throws IOException;
+    }
+}
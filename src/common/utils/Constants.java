@@ -11,9 +11,51 @@ public class Constants {
     // Server Host
     public static final String SERVER_HOST = "localhost";
     
+    // Server Runtime
+    public static final String SERVER_MODE = "NIO"; // NIO or VIRTUAL_THREADS
+    public static final int SERVICE_MAX_CONCURRENT_REQUESTS = 256;
+    public static final int MAX_PIPELINED_REQUESTS = 32;
+    public static final int MAX_QUEUED_REQUESTS = 64;
+    public static final int MAX_OUTBOUND_BYTES = 1024 * 1024;
+    public static final int STREAM_CHUNK_SIZE = 500;
+    public static final int SERVER_BACKLOG = 4096;
+    public static final int SERVER_WORKER_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+    public static final int IO_BUFFER_SIZE = 8 * 1024;
+    public static final int BUFFER_POOL_SIZE = 1024;
+    
     // Data Directory
     public static final String DATA_DIR = "data/";
     
+    // Write-ahead log for FileManager (checkpointed once it reaches WAL_CHECKPOINT_BYTES)
+    public static final String WAL_FILE = "wal.log";
+    public static final long WAL_CHECKPOINT_BYTES = 4 * 1024 * 1024;
+    
+    // ID generation: ids are reserved in blocks recorded in ID_STATE_FILE;
+    // each node sets its own NODE_ID below 2^NODE_ID_BITS (-Dbackend.nodeId=n)
+    public static final String ID_STATE_FILE = "ids.properties";
+    public static final int ID_BLOCK_SIZE = 1000;
+    public static final int NODE_ID_BITS = Integer.getInteger("backend.nodeIdBits", 0);
+    public static final int NODE_ID = Integer.getInteger("backend.nodeId", 0);
+    
+    // Sessions expire after SESSION_TTL_MINUTES without a request
+    public static final int SESSION_TTL_MINUTES = 30;
+    
+    // Module registrations are written in batches at most this often
+    public static final long REGISTRATION_FLUSH_MILLIS = 200;
+    
+    // Longest search a GENERATE_EXAM_SCHEDULE request may ask for
+    public static final long TIMETABLE_MAX_MILLIS = 30_000;
+    
+    // Server-side cache of encoded read responses (see ResponseCache)
+    public static final int RESPONSE_CACHE_MAX_ENTRIES = 10_000;
+    public static final long RESPONSE_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    
+    // Codecs ("java" or "binary"); either format is read whatever is set here,
+    // so switching back to "java" is a rollback path for files written in "binary"
+    public static final String STORAGE_CODEC = System.getProperty("backend.storageCodec", "java");
+    public static final String WIRE_CODEC = System.getProperty("backend.wireCodec", "java");
+    public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+    
     // File Names
     public static final String USERS_FILE = "users.dat";
     public static final String LECTURERS_FILE = "lecturers.dat";
@@ -38,6 +80,11 @@ public class Constants {
     public static final String SUCCESS = "SUCCESS";
     public static final String ERROR = "ERROR";
     public static final String FAILED = "FAILED";
+    public static final String PARTIAL = "PARTIAL"; // more chunks of a streamed response follow
+    
+    // Request Types - Authentication
+    public static final String LOGIN = "LOGIN";
+    public static final String LOGOUT = "LOGOUT";
     
     // Request Types - Admin Management (Member 1)
     public static final String ADD_LECTURER = "ADD_LECTURER";
@@ -64,6 +111,7 @@ public class Constants {
     public static final String UPDATE_MODULE = "UPDATE_MODULE";
     public static final String DELETE_MODULE = "DELETE_MODULE";
     public static final String REGISTER_MODULE = "REGISTER_MODULE";
+    public static final String DROP_MODULE = "DROP_MODULE";
     public static final String GET_STUDENT_MODULES = "GET_STUDENT_MODULES";
     public static final String GET_AVAILABLE_MODULES = "GET_AVAILABLE_MODULES";
     
@@ -75,6 +123,7 @@ public class Constants {
     public static final String DELETE_EXAM = "DELETE_EXAM";
     public static final String GET_MODULE_EXAMS = "GET_MODULE_EXAMS";
     public static final String GET_EXAM_SCHEDULE = "GET_EXAM_SCHEDULE";
+    public static final String GENERATE_EXAM_SCHEDULE = "GENERATE_EXAM_SCHEDULE";
     
     // Request Types - Result Management (Member 4)
     public static final String ADD_RESULT = "ADD_RESULT";
@@ -84,6 +133,7 @@ public class Constants {
     public static final String DELETE_RESULT = "DELETE_RESULT";
     public static final String UPLOAD_CSV = "UPLOAD_CSV";
     public static final String GET_STUDENT_RESULTS = "GET_STUDENT_RESULTS";
+    public static final String GET_STUDENT_TRANSCRIPT = "GET_STUDENT_TRANSCRIPT";
     
     // Request Types - Student Portal (Member 5)
     public static final String VIEW_MY_RESULTS = "VIEW_MY_RESULTS";
@@ -1,182 +1,363 @@
 package common.utils;
 
-import java.text.SimpleDateFormat;
-import java.text.ParseException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.time.zone.ZoneRules;
 import java.util.Date;
-import java.util.Calendar;
 
+/**
+ * Date helpers built on java.time
+ *
+ * All state is immutable, so every method is safe to call from any
+ * thread. The fixed yyyy-MM-dd, HH:mm and yyyy-MM-dd HH:mm:ss forms are
+ * formatted and parsed by hand without going through a formatter; other
+ * input falls back to the cached formatters below. Date arguments and
+ * results are kept for the models, which still store java.util.Date.
+ *
+ * Dates are interpreted in the JVM default time zone as it was when this
+ * class was loaded.
+ */
 public class DateUtils {
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
-    private static final SimpleDateFormat DATE_TIME_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-    private static final SimpleDateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm");
-    
+    public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd");
+    public static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss");
+    public static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    // Accept single-digit fields, as the old SimpleDateFormat parsing did
+    private static final DateTimeFormatter LENIENT_DATE = DateTimeFormatter.ofPattern("uuuu-M-d")
+            .withResolverStyle(ResolverStyle.STRICT);
+    private static final DateTimeFormatter LENIENT_DATE_TIME = DateTimeFormatter.ofPattern("uuuu-M-d H:m:s")
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final ZoneRules RULES = ZONE.getRules();
+    private static final boolean FIXED_OFFSET = RULES.isFixedOffset();
+    private static final long FIXED_OFFSET_MILLIS = FIXED_OFFSET
+            ? RULES.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L : 0;
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
     /**
      * Format date to yyyy-MM-dd
      */
     public static String formatDate(Date date) {
         if (date == null) return "";
-        return DATE_FORMAT.format(date);
+        return formatDate(epochDay(date.getTime()));
     }
-    
+
+    /**
+     * Format date to yyyy-MM-dd
+     */
+    public static String formatDate(LocalDate date) {
+        if (date == null) return "";
+        return formatDate(date.toEpochDay());
+    }
+
     /**
      * Format date to yyyy-MM-dd HH:mm:ss
      */
     public static String formatDateTime(Date date) {
         if (date == null) return "";
-        return DATE_TIME_FORMAT.format(date);
+        long local = localMillis(date.getTime());
+        LocalDate day = LocalDate.ofEpochDay(Math.floorDiv(local, MILLIS_PER_DAY));
+        if (day.getYear() < 0 || day.getYear() > 9999) {
+            return DATE_TIME_FORMAT.format(toLocalDateTime(date));
+        }
+        int seconds = (int) (Math.floorMod(local, MILLIS_PER_DAY) / 1000);
+        char[] out = new char[19];
+        writeDate(out, day);
+        out[10] = ' ';
+        writeTwo(out, 11, seconds / 3600);
+        out[13] = ':';
+        writeTwo(out, 14, seconds / 60 % 60);
+        out[16] = ':';
+        writeTwo(out, 17, seconds % 60);
+        return new String(out);
     }
-    
+
     /**
      * Format time to HH:mm
      */
     public static String formatTime(Date date) {
         if (date == null) return "";
-        return TIME_FORMAT.format(date);
+        int minutes = (int) (Math.floorMod(localMillis(date.getTime()), MILLIS_PER_DAY) / 60000);
+        char[] out = new char[5];
+        writeTwo(out, 0, minutes / 60);
+        out[2] = ':';
+        writeTwo(out, 3, minutes % 60);
+        return new String(out);
     }
-    
+
     /**
      * Parse string to Date (yyyy-MM-dd)
      */
     public static Date parseDate(String dateStr) {
+        LocalDate date = parseLocalDate(dateStr);
+        return date != null ? toDate(date) : null;
+    }
+
+    /**
+     * Parse string to LocalDate (yyyy-MM-dd)
+     * @return The date, or null if the string is empty or not a valid date
+     */
+    public static LocalDate parseLocalDate(String dateStr) {
         if (dateStr == null || dateStr.trim().isEmpty()) {
             return null;
         }
         try {
-            return DATE_FORMAT.parse(dateStr);
-        } catch (ParseException e) {
+            String s = dateStr.trim();
+            if (s.length() == 10 && s.charAt(4) == '-' && s.charAt(7) == '-') {
+                int year = digits(s, 0, 4);
+                int month = digits(s, 5, 2);
+                int day = digits(s, 8, 2);
+                if (year >= 0 && month >= 0 && day >= 0) {
+                    return LocalDate.of(year, month, day);
+                }
+            }
+            return LocalDate.parse(s, LENIENT_DATE);
+        } catch (DateTimeException e) {
             System.err.println("Error parsing date: " + dateStr);
             return null;
         }
     }
-    
+
     /**
      * Parse string to Date (yyyy-MM-dd HH:mm:ss)
      */
     public static Date parseDateTime(String dateTimeStr) {
+        LocalDateTime dateTime = parseLocalDateTime(dateTimeStr);
+        return dateTime != null ? toDate(dateTime) : null;
+    }
+
+    /**
+     * Parse string to LocalDateTime (yyyy-MM-dd HH:mm:ss)
+     * @return The date and time, or null if the string is empty or not valid
+     */
+    public static LocalDateTime parseLocalDateTime(String dateTimeStr) {
         if (dateTimeStr == null || dateTimeStr.trim().isEmpty()) {
             return null;
         }
         try {
-            return DATE_TIME_FORMAT.parse(dateTimeStr);
-        } catch (ParseException e) {
+            String s = dateTimeStr.trim();
+            if (s.length() == 19 && s.charAt(4) == '-' && s.charAt(7) == '-' && s.charAt(10) == ' '
+                    && s.charAt(13) == ':' && s.charAt(16) == ':') {
+                int year = digits(s, 0, 4);
+                int month = digits(s, 5, 2);
+                int day = digits(s, 8, 2);
+                int hour = digits(s, 11, 2);
+                int minute = digits(s, 14, 2);
+                int second = digits(s, 17, 2);
+                if ((year | month | day | hour | minute | second) >= 0) {
+                    return LocalDateTime.of(year, month, day, hour, minute, second);
+                }
+            }
+            return LocalDateTime.parse(s, LENIENT_DATE_TIME);
+        } catch (DateTimeException e) {
             System.err.println("Error parsing datetime: " + dateTimeStr);
             return null;
         }
     }
-    
+
+    /**
+     * Parse HH:mm to minutes since midnight
+     * @return Minutes, or -1 if the string is not a valid time
+     */
+    public static int parseMinutes(String time) {
+        if (time == null) return -1;
+        String t = time.trim();
+        int colon = t.indexOf(':');
+        if (colon < 1 || colon > 2 || t.length() != colon + 3) return -1;
+        int hours = digits(t, 0, colon);
+        int minutes = digits(t, colon + 1, 2);
+        if (hours < 0 || minutes < 0) return -1;
+        if (hours > 24 || minutes > 59 || (hours == 24 && minutes > 0)) return -1;
+        return hours * 60 + minutes;
+    }
+
+    /**
+     * Convert a Date to a LocalDate in the default zone
+     */
+    public static LocalDate toLocalDate(Date date) {
+        if (date == null) return null;
+        return LocalDate.ofEpochDay(epochDay(date.getTime()));
+    }
+
+    /**
+     * Convert a Date to a LocalDateTime in the default zone
+     */
+    public static LocalDateTime toLocalDateTime(Date date) {
+        if (date == null) return null;
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()), ZONE);
+    }
+
+    /**
+     * Convert a LocalDate to a Date at the start of that day
+     */
+    public static Date toDate(LocalDate date) {
+        if (date == null) return null;
+        if (FIXED_OFFSET) {
+            return new Date(date.toEpochDay() * MILLIS_PER_DAY - FIXED_OFFSET_MILLIS);
+        }
+        return new Date(date.atStartOfDay(ZONE).toInstant().toEpochMilli());
+    }
+
+    /**
+     * Convert a LocalDateTime to a Date
+     */
+    public static Date toDate(LocalDateTime dateTime) {
+        if (dateTime == null) return null;
+        return Date.from(dateTime.atZone(ZONE).toInstant());
+    }
+
     /**
      * Check if date is in the past
      */
     public static boolean isInPast(Date date) {
         if (date == null) return false;
-        return date.before(new Date());
+        return date.getTime() < System.currentTimeMillis();
     }
-    
+
     /**
      * Check if date is today
      */
     public static boolean isToday(Date date) {
         if (date == null) return false;
-        String today = formatDate(new Date());
-        String checkDate = formatDate(date);
-        return today.equals(checkDate);
+        return epochDay(date.getTime()) == epochDay(System.currentTimeMillis());
     }
-    
+
     /**
      * Check if date is in the future
      */
     public static boolean isInFuture(Date date) {
         if (date == null) return false;
-        return date.after(new Date());
+        return date.getTime() > System.currentTimeMillis();
     }
-    
+
     /**
      * Get number of days between two dates
      */
     public static long getDaysBetween(Date start, Date end) {
         if (start == null || end == null) return 0;
         long diff = end.getTime() - start.getTime();
-        return diff / (24 * 60 * 60 * 1000);
+        return diff / MILLIS_PER_DAY;
     }
-    
+
     /**
      * Add days to a date
      */
     public static Date addDays(Date date, int days) {
         if (date == null) return null;
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.add(Calendar.DAY_OF_MONTH, days);
-        return calendar.getTime();
+        return toDate(toLocalDateTime(date).plusDays(days));
     }
-    
+
     /**
      * Add months to a date
      */
     public static Date addMonths(Date date, int months) {
         if (date == null) return null;
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.add(Calendar.MONTH, months);
-        return calendar.getTime();
+        return toDate(toLocalDateTime(date).plusMonths(months));
     }
-    
+
     /**
      * Get current date and time
      */
     public static Date getCurrentDateTime() {
         return new Date();
     }
-    
+
     /**
      * Get current date (time set to 00:00:00)
      */
     public static Date getCurrentDate() {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        return calendar.getTime();
+        return toDate(LocalDate.ofEpochDay(epochDay(System.currentTimeMillis())));
     }
-    
+
     /**
      * Compare two dates (ignoring time)
      */
     public static boolean isSameDate(Date date1, Date date2) {
         if (date1 == null || date2 == null) return false;
-        String d1 = formatDate(date1);
-        String d2 = formatDate(date2);
-        return d1.equals(d2);
+        return epochDay(date1.getTime()) == epochDay(date2.getTime());
     }
-    
+
     /**
      * Get year from date
      */
     public static int getYear(Date date) {
         if (date == null) return 0;
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        return calendar.get(Calendar.YEAR);
+        return toLocalDate(date).getYear();
     }
-    
+
     /**
      * Get month from date (1-12)
      */
     public static int getMonth(Date date) {
         if (date == null) return 0;
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        return calendar.get(Calendar.MONTH) + 1;
+        return toLocalDate(date).getMonthValue();
     }
-    
+
     /**
      * Get day of month from date
      */
     public static int getDayOfMonth(Date date) {
         if (date == null) return 0;
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        return calendar.get(Calendar.DAY_OF_MONTH);
+        return toLocalDate(date).getDayOfMonth();
+    }
+
+    private static long localMillis(long epochMillis) {
+        if (FIXED_OFFSET) {
+            return epochMillis + FIXED_OFFSET_MILLIS;
+        }
+        return epochMillis + RULES.getOffset(Instant.ofEpochMilli(epochMillis)).getTotalSeconds() * 1000L;
+    }
+
+    private static long epochDay(long epochMillis) {
+        return Math.floorDiv(localMillis(epochMillis), MILLIS_PER_DAY);
+    }
+
+    private static String formatDate(long epochDay) {
+        LocalDate day = LocalDate.ofEpochDay(epochDay);
+        if (day.getYear() < 0 || day.getYear() > 9999) {
+            return DATE_FORMAT.format(day);
+        }
+        char[] out = new char[10];
+        writeDate(out, day);
+        return new String(out);
+    }
+
+    private static void writeDate(char[] out, LocalDate day) {
+        int year = day.getYear();
+        out[0] = (char) ('0' + year / 1000);
+        out[1] = (char) ('0' + year / 100 % 10);
+        writeTwo(out, 2, year % 100);
+        out[4] = '-';
+        writeTwo(out, 5, day.getMonthValue());
+        out[7] = '-';
+        writeTwo(out, 8, day.getDayOfMonth());
+    }
+
+    private static void writeTwo(char[] out, int at, int value) {
+        out[at] = (char) ('0' + value / 10);
+        out[at + 1] = (char) ('0' + value % 10);
+    }
+
+    /**
+     * Read length ASCII digits starting at from
+     * @return The value, or -1 if any character is not a digit
+     */
+    private static int digits(String s, int from, int length) {
+        int value = 0;
+        for (int i = from; i < from + length; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package common.utils;
+
+/**
+ * Marks to grade and grade point conversion
+ */
+public class GradeCalculator {
+    
+    private static final int[] MIN_MARKS = {85, 75, 70, 65, 60, 55, 50, 45, Constants.PASS_MARKS};
+    private static final String[] GRADES = {"A+", "A", "A-", "B+", "B", "B-", "C+", "C", "C-"};
+    private static final double[] POINTS = {4.0, 4.0, 3.7, 3.3, 3.0, 2.7, 2.3, 2.0, 1.7};
+    
+    public static final String FAIL_GRADE = "F";
+    
+    /**
+     * Get grade for marks (F below Constants.PASS_MARKS)
+     */
+    public static String getGrade(int marks) {
+        for (int i = 0; i < MIN_MARKS.length; i++) {
+            if (marks >= MIN_MARKS[i]) {
+                return GRADES[i];
+            }
+        }
+        return FAIL_GRADE;
+    }
+    
+    /**
+     * Get grade points for a grade (0.0 for F or unknown grades)
+     */
+    public static double getGradePoints(String grade) {
+        if (grade == null) return 0.0;
+        for (int i = 0; i < GRADES.length; i++) {
+            if (GRADES[i].equals(grade)) {
+                return POINTS[i];
+            }
+        }
+        return 0.0;
+    }
+    
+    /**
+     * Get grade points for marks
+     */
+    public static double getGradePoints(int marks) {
+        return getGradePoints(getGrade(marks));
+    }
+    
+    public static boolean isPass(int marks) {
+        return marks >= Constants.PASS_MARKS;
+    }
+}
@@ -1,31 +1,251 @@
 package common.utils;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import common.storage.DataStorage;
+import common.storage.EntityKeys;
+import common.storage.FileManager;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unique id generation
+ * Each id type has a sequence whose high-water mark is persisted in
+ * Constants.ID_STATE_FILE one block (Constants.ID_BLOCK_SIZE) ahead, so ids
+ * are not reused after a restart and only one write per block is needed.
+ * Unused ids of a block are skipped after a restart. When the state file
+ * is missing or unreadable, the sequences start above the ids stored in
+ * the entity files instead. Ids are never handed out from a block whose
+ * limit could not be written.
+ *
+ * The node id occupies the low Constants.NODE_ID_BITS bits of the number,
+ * so nodes with different ids never generate the same id. With the default
+ * of 0 bits ids look as before: S001, S002, ...
+ */
 public class IDGenerator {
-    private static AtomicInteger lecturerCounter = new AtomicInteger(1);
-    private static AtomicInteger studentCounter = new AtomicInteger(1);
-    private static AtomicInteger batchCounter = new AtomicInteger(1);
-    private static AtomicInteger examCounter = new AtomicInteger(1);
-    private static AtomicInteger resultCounter = new AtomicInteger(1);
+    private static final Map<Character, Sequence> SEQUENCES = new LinkedHashMap<>();
+    private static final Sequence lecturerCounter = sequence('L', Constants.LECTURERS_FILE);
+    private static final Sequence studentCounter = sequence('S', Constants.STUDENTS_FILE);
+    private static final Sequence batchCounter = sequence('B', Constants.BATCHES_FILE);
+    private static final Sequence examCounter = sequence('E', Constants.EXAMS_FILE);
+    private static final Sequence resultCounter = sequence('R', Constants.RESULTS_FILE);
+    
+    static {
+        if (Constants.NODE_ID < 0 || Constants.NODE_ID >= (1 << Constants.NODE_ID_BITS)) {
+            throw new IllegalStateException("Node id " + Constants.NODE_ID + " does not fit in "
+                    + Constants.NODE_ID_BITS + " bits");
+        }
+        load();
+    }
     
     public static String generateLecturerId() {
-        return String.format("L%03d", lecturerCounter.getAndIncrement());
+        return lecturerCounter.next();
     }
     
     public static String generateStudentId() {
-        return String.format("S%03d", studentCounter.getAndIncrement());
+        return studentCounter.next();
     }
     
     public static String generateBatchId() {
-        return String.format("B%03d", batchCounter.getAndIncrement());
+        return batchCounter.next();
     }
     
     public static String generateExamId() {
-        return String.format("E%03d", examCounter.getAndIncrement());
+        return examCounter.next();
     }
     
     public static String generateResultId() {
-        return String.format("R%03d", resultCounter.getAndIncrement());
+        return resultCounter.next();
+    }
+    
+    /**
+     * Make sure no id at or below an existing one is generated again
+     * Used when importing data that was created without this generator.
+     * @param id An existing id such as S042
+     */
+    public static void reserveAbove(String id) {
+        long number = sequenceNumber(id);
+        if (number >= 0) {
+            SEQUENCES.get(id.charAt(0)).advancePast(number);
+        }
+    }
+    
+    /**
+     * Sequence value of an id this class could have generated, or -1
+     */
+    private static long sequenceNumber(String id) {
+        if (id == null || id.length() < 2 || !SEQUENCES.containsKey(id.charAt(0))) return -1;
+        try {
+            return Long.parseLong(id.substring(1)) >>> Constants.NODE_ID_BITS;
+        } catch (NumberFormatException e) {
+            // Not generated by this class
+            return -1;
+        }
+    }
+    
+    private static Sequence sequence(char prefix, String filename) {
+        Sequence sequence = new Sequence(prefix, filename);
+        SEQUENCES.put(prefix, sequence);
+        return sequence;
+    }
+    
+    /**
+     * Read the persisted high-water marks, seeding from the data if they are unusable
+     */
+    private static void load() {
+        File file = stateFile();
+        Properties state = new Properties();
+        boolean usable = file.exists();
+        if (usable) {
+            try (InputStream in = new FileInputStream(file)) {
+                state.load(in);
+            } catch (IOException e) {
+                System.err.println("❌ Error reading id state: " + e.getMessage());
+                usable = false;
+            }
+        }
+        for (Sequence sequence : SEQUENCES.values()) {
+            String mark = state.getProperty(String.valueOf(sequence.prefix));
+            if (mark == null) {
+                usable = false;
+                continue;
+            }
+            try {
+                sequence.start(Long.parseLong(mark.trim()));
+            } catch (NumberFormatException e) {
+                System.err.println("❌ Invalid id mark for " + sequence.prefix + ": " + mark);
+                usable = false;
+            }
+        }
+        if (!usable) {
+            seed();
+        }
+    }
+    
+    /**
+     * Move every sequence past the highest id stored in its entity file
+     * A reservation that cannot be written now is retried by the next id.
+     */
+    private static void seed() {
+        DataStorage storage = new FileManager();
+        for (Sequence sequence : SEQUENCES.values()) {
+            long highest = 0;
+            for (Object obj : storage.loadAll(sequence.filename)) {
+                highest = Math.max(highest, sequenceNumber(EntityKeys.keyOf(obj)));
+            }
+            try {
+                sequence.advancePast(highest);
+            } catch (UncheckedIOException e) {
+                System.err.println("❌ " + e.getMessage());
+            }
+        }
+        System.out.println("🔢 Id sequences seeded from stored records");
+    }
+    
+    /**
+     * Write every sequence's reserved limit, replacing the file atomically
+     */
+    private static synchronized void persist() throws IOException {
+        Properties state = new Properties();
+        for (Sequence sequence : SEQUENCES.values()) {
+            state.setProperty(String.valueOf(sequence.prefix), String.valueOf(sequence.persistedUpTo));
+        }
+        File file = stateFile();
+        File temp = new File(file.getPath() + ".tmp");
+        file.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            state.store(out, "Reserved id high-water marks");
+            out.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private static File stateFile() {
+        return new File(Constants.DATA_DIR + Constants.ID_STATE_FILE);
+    }
+    
+    /**
+     * Counter for one id prefix
+     * next() is a single atomic increment until the reserved block runs out.
+     */
+    private static final class Sequence {
+        private final char prefix;
+        // Entity file whose ids this sequence generates
+        private final String filename;
+        private final AtomicLong counter = new AtomicLong(1);
+        private volatile long reservedUpTo = 1;
+        // Limit written to the state file; only changed while holding the IDGenerator lock
+        private long persistedUpTo = 1;
+        
+        Sequence(char prefix, String filename) {
+            this.prefix = prefix;
+            this.filename = filename;
+        }
+        
+        void start(long highWaterMark) {
+            counter.set(Math.max(1, highWaterMark));
+            reservedUpTo = Math.max(1, highWaterMark);
+            persistedUpTo = reservedUpTo;
+        }
+        
+        String next() {
+            long value = counter.getAndIncrement();
+            if (value >= reservedUpTo) {
+                reserve(value);
+            }
+            return format(prefix, (value << Constants.NODE_ID_BITS) | Constants.NODE_ID);
+        }
+        
+        void advancePast(long value) {
+            counter.accumulateAndGet(value + 1, Math::max);
+            if (value >= reservedUpTo) {
+                reserve(value);
+            }
+        }
+        
+        private void reserve(long value) {
+            synchronized (IDGenerator.class) {
+                if (value < reservedUpTo) return;
+                // Record the new limit before any id from the block is handed out
+                long previous = persistedUpTo;
+                persistedUpTo = (value / Constants.ID_BLOCK_SIZE + 1) * Constants.ID_BLOCK_SIZE;
+                try {
+                    persist();
+                } catch (IOException e) {
+                    persistedUpTo = previous;
+                    System.err.println("❌ Error saving id state: " + e.getMessage());
+                    throw new UncheckedIOException("Cannot reserve " + prefix + " ids", e);
+                }
+                reservedUpTo = persistedUpTo;
+            }
+        }
+    }
+    
+    /**
+     * prefix + number zero-padded to at least three digits, without String.format
+     * The inverse of the ids this class generates, e.g. format('R', 7) is R007.
+     */
+    public static String format(char prefix, long number) {
+        char[] digits = new char[20];
+        int pos = digits.length;
+        do {
+            digits[--pos] = (char) ('0' + number % 10);
+            number /= 10;
+        } while (number > 0);
+        while (digits.length - pos < 3) {
+            digits[--pos] = '0';
+        }
+        digits[--pos] = prefix;
+        return new String(digits, pos, digits.length - pos);
     }
-}
\ No newline at end of file
+}
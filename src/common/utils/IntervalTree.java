@@ -0,0 +1,197 @@
+package common.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Set of half-open intervals [start, end) with overlap queries
+ * A treap ordered by start, where every node also stores the largest end
+ * in its subtree. Insert and remove take O(log n) expected time, and an
+ * overlap query takes O(log n + k) for k matches, because subtrees that
+ * end before the query starts are skipped.
+ * Not thread-safe.
+ */
+public class IntervalTree<T> {
+
+    private Node<T> root;
+    private int size;
+
+    /**
+     * Add an interval
+     * @param start Inclusive start
+     * @param end Exclusive end (must be greater than start)
+     * @param value Value returned by queries
+     */
+    public void insert(int start, int end, T value) {
+        if (end <= start) {
+            throw new IllegalArgumentException("Empty interval [" + start + ", " + end + ")");
+        }
+        root = insert(root, new Node<>(start, end, value));
+        size++;
+    }
+
+    /**
+     * Remove an interval previously inserted with the same bounds and value
+     * @return true if it was found
+     */
+    public boolean remove(int start, int end, T value) {
+        int before = size;
+        root = remove(root, start, end, value);
+        return size < before;
+    }
+
+    /**
+     * Find every stored interval overlapping [start, end)
+     */
+    public List<T> overlapping(int start, int end) {
+        List<T> matches = new ArrayList<>();
+        collect(root, start, end, matches);
+        return matches;
+    }
+
+    /**
+     * Check whether any stored interval overlaps [start, end)
+     */
+    public boolean overlaps(int start, int end) {
+        Node<T> node = root;
+        while (node != null) {
+            if (node.start < end && start < node.end) {
+                return true;
+            }
+            // Go left if something there can still reach past start
+            if (node.left != null && node.left.maxEnd > start) {
+                node = node.left;
+            } else if (node.start < end) {
+                node = node.right;
+            } else {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static <T> Node<T> insert(Node<T> node, Node<T> added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.start < node.start) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private Node<T> remove(Node<T> node, int start, int end, T value) {
+        if (node == null) {
+            return null;
+        }
+        if (node.start == start && node.end == end && node.value.equals(value)) {
+            size--;
+            return merge(node.left, node.right);
+        }
+        // Equal starts may sit on either side after rotations
+        if (start <= node.start) {
+            int before = size;
+            node.left = remove(node.left, start, end, value);
+            if (size == before && start == node.start) {
+                node.right = remove(node.right, start, end, value);
+            }
+        } else {
+            node.right = remove(node.right, start, end, value);
+        }
+        node.update();
+        return node;
+    }
+
+    private static <T> Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static <T> void collect(Node<T> node, int start, int end, List<T> matches) {
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        collect(node.left, start, end, matches);
+        if (node.start < end) {
+            if (start < node.end) {
+                matches.add(node.value);
+            }
+            collect(node.right, start, end, matches);
+        }
+    }
+
+    private static <T> Node<T> rotateRight(Node<T> node) {
+        Node<T> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        left.update();
+        return left;
+    }
+
+    private static <T> Node<T> rotateLeft(Node<T> node) {
+        Node<T> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        right.update();
+        return right;
+    }
+
+    private static final class Node<T> {
+        private final int start;
+        private final int end;
+        private final T value;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private int maxEnd;
+        private Node<T> left;
+        private Node<T> right;
+
+        Node(int start, int end, T value) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+            this.maxEnd = end;
+        }
+
+        void update() {
+            maxEnd = end;
+            if (left != null && left.maxEnd > maxEnd) {
+                maxEnd = left.maxEnd;
+            }
+            if (right != null && right.maxEnd > maxEnd) {
+                maxEnd = right.maxEnd;
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package common.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary encoding of strings as dense int codes
+ * Each distinct string is stored once and identified by the order in which
+ * it was first added (0, 1, 2, ...), so columns of repeated values such as
+ * student ids or module codes can be kept as int arrays. null is encoded
+ * as -1. Not thread-safe; build it on one thread and share it read-only.
+ */
+public class StringDictionary implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+
+    /**
+     * Get the code of a string, adding it if it is new
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        codes.put(value, size);
+        return size++;
+    }
+
+    /**
+     * Get the code of a string without adding it
+     * @return The code, or NULL_CODE if the string is null or not in the dictionary
+     */
+    public int lookup(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : NULL_CODE;
+    }
+
+    /**
+     * Get the string for a code
+     * @return The string, or null for NULL_CODE
+     */
+    public String decode(int code) {
+        if (code == NULL_CODE) {
+            return null;
+        }
+        if (code < 0 || code >= size) {
+            throw new IndexOutOfBoundsException("Unknown code: " + code);
+        }
+        return values[code];
+    }
+
+    public int size() {
+        return size;
+    }
+}
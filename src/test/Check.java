@@ -0,0 +1,100 @@
+package test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal assertions for the main() test harnesses under src/test
+ *
+ * Build and run from the repository root:
+ *   javac -d out $(find src -name '*.java')
+ *   java -cp out test.CodecCompatibilityTest
+ * A harness prints each failed check and exits with status 1.
+ */
+public final class Check {
+
+    private static final List<String> failures = new ArrayList<>();
+    private static int checks;
+
+    private Check() {}
+
+    public static void isTrue(boolean condition, String what) {
+        checks++;
+        if (!condition) {
+            failures.add(what);
+            System.err.println("❌ " + what);
+        }
+    }
+
+    public static void equal(Object expected, Object actual, String what) {
+        isTrue(expected == null ? actual == null : expected.equals(actual),
+                what + ": expected " + expected + " but was " + actual);
+    }
+
+    /**
+     * Compare two objects field by field, skipping static and transient fields
+     */
+    public static void sameFields(Object expected, Object actual, String what) {
+        equal(describe(expected), describe(actual), what);
+    }
+
+    /**
+     * Print the summary and exit with status 1 if any check failed
+     */
+    public static void done(String harness) {
+        if (failures.isEmpty()) {
+            System.out.println("✅ " + harness + ": " + checks + " checks passed");
+            System.exit(0);
+        }
+        System.err.println("❌ " + harness + ": " + failures.size() + " of " + checks + " checks failed");
+        System.exit(1);
+    }
+
+    /**
+     * Render an object's persistent state, recursing into model classes
+     */
+    public static String describe(Object obj) {
+        if (obj == null || obj instanceof String || obj instanceof Number || obj instanceof Boolean
+                || obj instanceof Character || obj instanceof Enum) {
+            return String.valueOf(obj);
+        }
+        if (obj instanceof Date) {
+            return "Date(" + ((Date) obj).getTime() + ")";
+        }
+        if (obj instanceof Collection) {
+            List<String> items = new ArrayList<>();
+            for (Object item : (Collection<?>) obj) {
+                items.add(describe(item));
+            }
+            return items.toString();
+        }
+        if (obj instanceof Map) {
+            List<String> items = new ArrayList<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) obj).entrySet()) {
+                items.add(describe(entry.getKey()) + "=" + describe(entry.getValue()));
+            }
+            return "{" + String.join(", ", items) + "}";
+        }
+        StringBuilder out = new StringBuilder(obj.getClass().getSimpleName()).append('{');
+        for (Class<?> type = obj.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+                    continue;
+                }
+                field.setAccessible(true);
+                try {
+                    out.append(field.getName()).append('=').append(describe(field.get(obj))).append(' ');
+                } catch (IllegalAccessException e) {
+                    out.append(field.getName()).append("=? ");
+                }
+            }
+        }
+        return out.append('}').toString();
+    }
+}
@@ -0,0 +1,233 @@
+package test;
+
+import common.codec.Codec;
+import common.codec.Codecs;
+import common.models.Batch;
+import common.models.Exam;
+import common.models.Lecturer;
+import common.models.ModuleRegistration;
+import common.models.Result;
+import common.models.Student;
+import common.models.User;
+import common.network.BatchRequest;
+import common.network.Page;
+import common.network.PageRequest;
+import common.network.Request;
+import common.network.Response;
+import common.storage.FileManager;
+import common.utils.Constants;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Round-trip and compatibility checks for the storage and wire codecs
+ *
+ * BASELINE_FILE is a results-style data file written by the build before
+ * the codec layer existed: an ObjectOutputStream of a List holding one of
+ * every model, all with serialVersionUID 1L. The current build must read
+ * it through both Codecs.decode and FileManager, must write java-codec
+ * files the old build can read back (plain Java serialization), and every
+ * model and wire type must survive both codecs unchanged.
+ */
+public class CodecCompatibilityTest {
+
+    // Written by the baseline build (see the class comment)
+    private static final String BASELINE_FILE =
+            "rO0ABXNyABNqYXZhLnV0aWwuQXJyYXlMaXN0eIHSHZnHYZ0DAAFJAARzaXpleHAAAAAIdwQAAAAI" +
+            "c3IAFWNvbW1vbi5tb2RlbHMuU3R1ZGVudAAAAAAAAAABAgAHTAAHYmF0Y2hJZHQAEkxqYXZhL2xh" +
+            "bmcvU3RyaW5nO0wABWVtYWlscQB+AANMAA5lbnJvbGxtZW50RGF0ZXQAEExqYXZhL3V0aWwvRGF0" +
+            "ZTtMAAJpZHEAfgADTAAEbmFtZXEAfgADTAALcGhvbmVOdW1iZXJxAH4AA0wAEXJlZ2lzdGVyZWRN" +
+            "b2R1bGVzdAAQTGphdmEvdXRpbC9MaXN0O3hwdAACQjF0AAphbm5AdW5pLmxrc3IADmphdmEudXRp" +
+            "bC5EYXRlaGqBAUtZdBkDAAB4cHcIAAABi8/laAB4dAAEUzAwMXQACkFubiBQZXJlcmF0AAowNzcx" +
+            "MjM0NTY3c3EAfgAAAAAAAncEAAAAAnQABUNTMTAxdAAFQ1MxMDJ4c3IAFGNvbW1vbi5tb2RlbHMu" +
+            "TW9kdWxlAAAAAAAAAAECAAdJAAdjcmVkaXRzSQALbWF4U3R1ZGVudHNMAARjb2RlcQB+AANMAAtk" +
+            "ZXNjcmlwdGlvbnEAfgADTAAKbGVjdHVyZXJJZHEAfgADTAAEbmFtZXEAfgADTAAIc2VtZXN0ZXJx" +
+            "AH4AA3hwAAAAAwAAADxxAH4AD3QABUludHJvdAAETDAwMXQAC1Byb2dyYW1taW5ndAABMXNyABJj" +
+            "b21tb24ubW9kZWxzLkV4YW0AAAAAAAAAAQIACUkACG1heE1hcmtzTAAHYmF0Y2hJZHEAfgADTAAE" +
+            "ZGF0ZXEAfgAETAAHZW5kVGltZXEAfgADTAACaWRxAH4AA0wACm1vZHVsZUNvZGVxAH4AA0wACXN0" +
+            "YXJ0VGltZXEAfgADTAAEdHlwZXEAfgADTAAFdmVudWVxAH4AA3hwAAAAZHEAfgAHcQB+AAp0AAUx" +
+            "MTowMHQABEUwMDFxAH4AD3QABTA5OjAwcHQAAkgxc3IAFGNvbW1vbi5tb2RlbHMuUmVzdWx0AAAA" +
+            "AAAAAAECAAtJAAdjcmVkaXRzWgALaXNQdWJsaXNoZWRJAAVtYXJrc0wABmV4YW1JZHEAfgADTAAF" +
+            "Z3JhZGVxAH4AA0wAAmlkcQB+AANMAApsZWN0dXJlcklkcQB+AANMAAptb2R1bGVDb2RlcQB+AANM" +
+            "AAptb2R1bGVOYW1lcQB+AANMAAlzdHVkZW50SWRxAH4AA0wACnVwbG9hZERhdGVxAH4ABHhwAAAA" +
+            "AwEAAABOcQB+ABp0AAJBLXQABFIwMDFxAH4AFHEAfgAPcQB+ABVxAH4AC3EAfgAKc3IAE2NvbW1v" +
+            "bi5tb2RlbHMuQmF0Y2gAAAAAAAAAAQIABkwAC2NyZWF0ZWREYXRlcQB+AARMAAJpZHEAfgADTAAE" +
+            "bmFtZXEAfgADTAAIc2VtZXN0ZXJxAH4AA0wACnN0dWRlbnRJZHNxAH4ABUwABHllYXJxAH4AA3hw" +
+            "cQB+AApxAH4AB3QAB0JhdGNoIDFxAH4AFnNxAH4AAAAAAAJ3BAAAAAJxAH4AC3QABFMwMDJ4dAAE" +
+            "MjAyNHNyABZjb21tb24ubW9kZWxzLkxlY3R1cmVyAAAAAAAAAAECAAdMAApkZXBhcnRtZW50cQB+" +
+            "AANMAAVlbWFpbHEAfgADTAACaWRxAH4AA0wACGpvaW5EYXRlcQB+AARMAAltb2R1bGVJZHNxAH4A" +
+            "BUwABG5hbWVxAH4AA0wAC3Bob25lTnVtYmVycQB+AAN4cHQAAkNTdAAMc2lsdmFAdW5pLmxrcQB+" +
+            "ABRxAH4ACnNxAH4AAAAAAAF3BAAAAAFxAH4AD3h0AAhEciBTaWx2YXBzcgASY29tbW9uLm1vZGVs" +
+            "cy5Vc2VyAAAAAAAAAAECAAVaAAhpc0FjdGl2ZUwACWxhc3RMb2dpbnEAfgAETAAIcGFzc3dvcmRx" +
+            "AH4AA0wABHJvbGVxAH4AA0wABnVzZXJJZHEAfgADeHABcQB+AAp0AAZzZWNyZXR0AAVBRE1JTnQA" +
+            "BWFkbWluc3IAIGNvbW1vbi5tb2RlbHMuTW9kdWxlUmVnaXN0cmF0aW9uAAAAAAAAAAECAARMAApt" +
+            "b2R1bGVDb2RlcQB+AANMABByZWdpc3RyYXRpb25EYXRlcQB+AARMAAZzdGF0dXNxAH4AA0wACXN0" +
+            "dWRlbnRJZHEAfgADeHBxAH4AD3EAfgAKdAAGQUNUSVZFcQB+AAt4";
+
+    private static final Date DATE = new Date(1700000000000L);
+    private static final String JAVA_NAME = "java";
+
+    public static void main(String[] args) throws Exception {
+        byte[] baseline = Base64.getDecoder().decode(BASELINE_FILE);
+        readsBaselineFile(baseline);
+        javaCodecStaysReadableByBaseline(baseline);
+        for (Codec codec : new Codec[]{Codecs.JAVA, Codecs.BINARY}) {
+            roundTrips(codec);
+        }
+        corruptInputOnlyThrowsIOException(baseline);
+        Check.done("CodecCompatibilityTest");
+    }
+
+    private static void readsBaselineFile(byte[] baseline) throws IOException {
+        List<Object> expected = models();
+        Object decoded = Codecs.decode(baseline);
+        Check.isTrue(decoded instanceof List, "baseline file decodes to a List");
+        Check.sameFields(expected, decoded, "baseline file decodes field for field");
+
+        File dir = new File(Constants.DATA_DIR);
+        dir.mkdirs();
+        String filename = "compat-test.dat";
+        File file = new File(dir, filename);
+        Files.write(file.toPath(), baseline);
+        try {
+            List<Object> loaded = new FileManager().loadAll(filename);
+            Check.sameFields(expected, loaded, "FileManager loads the baseline file");
+            Student student = (Student) loaded.get(0);
+            Check.isTrue(student.isRegisteredFor("CS101"), "index of a baseline Student is rebuilt");
+            Batch batch = (Batch) loaded.get(4);
+            Check.isTrue(batch.hasStudent("S002"), "index of a baseline Batch is rebuilt");
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void javaCodecStaysReadableByBaseline(byte[] baseline) throws Exception {
+        if (System.getProperty("backend.storageCodec") == null) {
+            Check.equal(JAVA_NAME, Constants.STORAGE_CODEC, "default storage codec");
+        }
+        byte[] written = Codecs.JAVA.encode(models());
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(written))) {
+            // What the baseline FileManager does when it reads a file
+            Check.sameFields(models(), in.readObject(), "java codec output is plain Java serialization");
+        }
+        Check.isTrue(Arrays.equals(baseline, Codecs.JAVA.encode(Codecs.decode(baseline))),
+                "re-encoding the baseline file with the java codec gives the same bytes");
+    }
+
+    private static void roundTrips(Codec codec) throws IOException {
+        for (Object model : models()) {
+            Check.sameFields(model, codec.decode(codec.encode(model)),
+                    codec.getName() + " round trip of " + model.getClass().getSimpleName());
+        }
+        List<Object> list = models();
+        Check.sameFields(list, codec.decode(codec.encode(list)), codec.getName() + " round trip of a model list");
+
+        Request request = new Request(Constants.VIEW_STUDENT, "S001");
+        request.setSessionId("session-1");
+        Check.sameFields(request, codec.decode(codec.encode(request)), codec.getName() + " round trip of Request");
+
+        Response response = new Response(Constants.SUCCESS, "ok", models());
+        Check.sameFields(response, codec.decode(codec.encode(response)), codec.getName() + " round trip of Response");
+
+        BatchRequest batch = new BatchRequest();
+        batch.add(1, new Request(Constants.LIST_MODULES, null));
+        batch.add(2, new Request(Constants.VIEW_MODULE, "CS101"));
+        Check.sameFields(batch, codec.decode(codec.encode(batch)), codec.getName() + " round trip of BatchRequest");
+
+        Page page = new Page(new ArrayList<>(models()), "8:R001");
+        Check.sameFields(page, codec.decode(codec.encode(page)), codec.getName() + " round trip of Page");
+        PageRequest pageRequest = new PageRequest("8:R001", 50);
+        Check.sameFields(pageRequest, codec.decode(codec.encode(pageRequest)),
+                codec.getName() + " round trip of PageRequest");
+    }
+
+    private static void corruptInputOnlyThrowsIOException(byte[] baseline) throws IOException {
+        byte[] binary = Codecs.BINARY.encode(models());
+        SplittableRandom random = new SplittableRandom(42);
+        int unexpected = 0;
+        for (int i = 0; i < 20_000; i++) {
+            byte[] source = (i & 1) == 0 ? binary : baseline;
+            byte[] data = Arrays.copyOf(source, 1 + random.nextInt(source.length));
+            for (int flips = random.nextInt(4); flips >= 0; flips--) {
+                data[random.nextInt(data.length)] = (byte) random.nextInt(256);
+            }
+            try {
+                Codecs.decode(data);
+            } catch (IOException e) {
+                // Expected for corrupt input
+            } catch (RuntimeException | StackOverflowError | OutOfMemoryError e) {
+                unexpected++;
+            }
+        }
+        Check.equal(0, unexpected, "corrupt payloads that failed with something other than IOException");
+    }
+
+    /**
+     * The records in BASELINE_FILE, built with the current models
+     */
+    private static List<Object> models() {
+        List<Object> models = new ArrayList<>();
+        Student student = new Student("S001", "Ann Perera", "ann@uni.lk", "B1");
+        student.setPhoneNumber("0771234567");
+        student.setEnrollmentDate(DATE);
+        student.setRegisteredModules(new ArrayList<>(Arrays.asList("CS101", "CS102")));
+        models.add(student);
+
+        common.models.Module module = new common.models.Module("CS101", "Programming", 3);
+        module.setLecturerId("L001");
+        module.setSemester("1");
+        module.setDescription("Intro");
+        module.setMaxStudents(60);
+        models.add(module);
+
+        Exam exam = new Exam("E001", "CS101", "B1");
+        exam.setDate(DATE);
+        exam.setStartTime("09:00");
+        exam.setEndTime("11:00");
+        exam.setVenue("H1");
+        exam.setMaxMarks(100);
+        models.add(exam);
+
+        Result result = new Result("S001", "CS101", 78);
+        result.setId("R001");
+        result.setModuleName("Programming");
+        result.setExamId("E001");
+        result.setGrade("A-");
+        result.setCredits(3);
+        result.setLecturerId("L001");
+        result.setUploadDate(DATE);
+        result.setPublished(true);
+        models.add(result);
+
+        Batch batch = new Batch("B1", "Batch 1", "2024", "1");
+        batch.setStudentIds(new ArrayList<>(Arrays.asList("S001", "S002")));
+        batch.setCreatedDate(DATE);
+        models.add(batch);
+
+        Lecturer lecturer = new Lecturer("L001", "Dr Silva", "silva@uni.lk", "CS");
+        lecturer.setModuleIds(new ArrayList<>(Arrays.asList("CS101")));
+        lecturer.setJoinDate(DATE);
+        models.add(lecturer);
+
+        User user = new User("admin", "secret", "ADMIN");
+        user.setLastLogin(DATE);
+        user.setActive(true);
+        models.add(user);
+
+        ModuleRegistration registration = new ModuleRegistration("S001", "CS101");
+        registration.setRegistrationDate(DATE);
+        registration.setStatus("ACTIVE");
+        models.add(registration);
+        return models;
+    }
+}
@@ -0,0 +1,124 @@
+package test;
+
+import common.models.Student;
+import common.storage.EntityKeys;
+import common.storage.FileManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Concurrent writers on one file through the striped locks of FileManager
+ * Several threads, on two FileManager instances, save, append, update and
+ * compare-and-update records of the same files at once. Writes must never
+ * lose data: every record written is read back exactly once, and every
+ * counter increment is counted.
+ *
+ * Run from a scratch directory, it writes under data/:
+ *   java -cp out test.FileManagerStressTest
+ */
+public class FileManagerStressTest {
+
+    private static final String STUDENTS = "stress-students.dat";
+    private static final String COUNTERS = "stress-counters.dat";
+    private static final int THREADS = 8;
+    private static final int SAVES = 40;
+    private static final int BATCHES = 4;
+    private static final int BATCH_SIZE = 5;
+    private static final int UPDATES = 10;
+    private static final int INCREMENTS = 25;
+
+    public static void main(String[] args) throws Exception {
+        FileManager[] storages = {new FileManager(), new FileManager()};
+        storages[0].clearFile(STUDENTS);
+        storages[0].clearFile(COUNTERS);
+        storages[0].save(new common.models.Module("COUNTER", "0", 0), COUNTERS);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            writers.add(pool.submit(() -> {
+                start.await();
+                write(thread, storages);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        pool.shutdown();
+
+        Map<String, Integer> seen = new HashMap<>();
+        Map<String, String> names = new HashMap<>();
+        for (Object obj : storages[1].loadAll(STUDENTS)) {
+            Student student = (Student) obj;
+            seen.merge(student.getId(), 1, Integer::sum);
+            names.put(student.getId(), student.getName());
+        }
+        Check.equal(THREADS * (SAVES + BATCHES * BATCH_SIZE), seen.size(), "distinct records");
+        for (int t = 0; t < THREADS; t++) {
+            for (int k = 0; k < SAVES; k++) {
+                String id = "T" + t + "-" + k;
+                Check.equal(1, seen.get(id), "copies of " + id);
+                Check.equal(k < UPDATES ? "updated" : "saved", names.get(id), "name of " + id);
+            }
+            for (int k = 0; k < BATCHES * BATCH_SIZE; k++) {
+                Check.equal(1, seen.get("A" + t + "-" + k), "copies of A" + t + "-" + k);
+            }
+        }
+        common.models.Module counter = (common.models.Module) storages[0].load(COUNTERS);
+        Check.equal(THREADS * INCREMENTS, counter.getCredits(), "counter increments");
+
+        storages[0].clearFile(STUDENTS);
+        storages[0].clearFile(COUNTERS);
+        Check.done("FileManagerStressTest");
+    }
+
+    private static void write(int thread, FileManager[] storages) {
+        for (int k = 0; k < SAVES; k++) {
+            storages[k % 2].save(new Student("T" + thread + "-" + k, "saved", "e", "B"), STUDENTS);
+        }
+        for (int b = 0; b < BATCHES; b++) {
+            List<Object> batch = new ArrayList<>();
+            for (int k = 0; k < BATCH_SIZE; k++) {
+                batch.add(new Student("A" + thread + "-" + (b * BATCH_SIZE + k), "appended", "e", "B"));
+            }
+            storages[b % 2].appendAll(batch, STUDENTS);
+        }
+        for (int k = 0; k < UPDATES; k++) {
+            Student old = new Student("T" + thread + "-" + k, "saved", "e", "B");
+            storages[k % 2].update(old, new Student(old.getId(), "updated", "e", "B"), STUDENTS);
+        }
+        for (int k = 0; k < INCREMENTS; k++) {
+            increment(storages[k % 2]);
+        }
+    }
+
+    /**
+     * Add one to the counter, reloading and retrying when another writer got there first
+     */
+    private static void increment(FileManager storage) {
+        while (true) {
+            long version = storage.getVersion("COUNTER", COUNTERS);
+            common.models.Module current = null;
+            for (Object obj : storage.loadAll(COUNTERS)) {
+                if ("COUNTER".equals(EntityKeys.keyOf(obj))) {
+                    current = (common.models.Module) obj;
+                }
+            }
+            common.models.Module next = new common.models.Module("COUNTER", "0", current.getCredits() + 1);
+            if (storage.compareAndUpdate(current, next, COUNTERS, version)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package test;
+
+import common.models.ModuleRegistration;
+import common.models.Student;
+import common.services.RegistrationEngine;
+import common.storage.FileManager;
+import common.storage.ObservableStorage;
+import common.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent registrations against RegistrationEngine
+ * Many threads register for and drop a few small modules while students
+ * are added through the same storage. No module may ever hold more
+ * students than its capacity, in memory or in the flushed files, and the
+ * students added meanwhile must survive the engine's writes to the
+ * students file.
+ *
+ * Run from a scratch directory, it writes under data/:
+ *   java -cp out test.RegistrationStressTest
+ */
+public class RegistrationStressTest {
+
+    private static final int MODULES = 5;
+    private static final int CAPACITY = 10;
+    private static final int STUDENTS = 200;
+    private static final int THREADS = 16;
+    private static final int OPERATIONS = 300;
+    private static final int ADDED_STUDENTS = 100;
+
+    public static void main(String[] args) throws Exception {
+        FileManager files = new FileManager();
+        files.clearFile(Constants.MODULES_FILE);
+        files.clearFile(Constants.STUDENTS_FILE);
+        files.clearFile(Constants.REGISTRATIONS_FILE);
+        List<Object> modules = new ArrayList<>();
+        for (int m = 0; m < MODULES; m++) {
+            common.models.Module module = new common.models.Module(moduleCode(m), "Module " + m, 3);
+            module.setMaxStudents(CAPACITY);
+            modules.add(module);
+        }
+        files.saveAll(modules, Constants.MODULES_FILE);
+        List<Object> students = new ArrayList<>();
+        for (int s = 0; s < STUDENTS; s++) {
+            students.add(new Student(studentId(s), "Student " + s, "s" + s + "@uni", "B001"));
+        }
+        files.saveAll(students, Constants.STUDENTS_FILE);
+
+        ObservableStorage storage = new ObservableStorage(new FileManager());
+        RegistrationEngine engine = new RegistrationEngine(storage, 5);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger overbooked = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    String student = studentId(random.nextInt(STUDENTS));
+                    String module = moduleCode(random.nextInt(MODULES));
+                    if (random.nextInt(4) == 0) {
+                        engine.drop(student, module);
+                    } else {
+                        engine.register(student, module);
+                    }
+                }
+                return null;
+            }));
+        }
+        tasks.add(pool.submit(() -> {
+            start.await();
+            for (int s = 0; s < ADDED_STUDENTS; s++) {
+                storage.save(new Student("N" + s, "Added " + s, "n" + s + "@uni", "B001"), Constants.STUDENTS_FILE);
+            }
+            return null;
+        }));
+        Future<?> watcher = pool.submit(() -> {
+            while (running.get()) {
+                for (int m = 0; m < MODULES; m++) {
+                    if (engine.getTakenSeats(moduleCode(m)) > CAPACITY) {
+                        overbooked.incrementAndGet();
+                    }
+                }
+            }
+            return null;
+        });
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        running.set(false);
+        watcher.get();
+        pool.shutdown();
+        engine.close();
+
+        Check.equal(0, overbooked.get(), "times a module was seen over capacity");
+        for (int m = 0; m < MODULES; m++) {
+            String code = moduleCode(m);
+            int taken = engine.getTakenSeats(code);
+            Check.isTrue(taken <= CAPACITY, code + " holds " + taken + " of " + CAPACITY + " seats");
+            Check.isTrue(taken == CAPACITY || engine.getWaitlistSize(code) == 0,
+                    code + " has free seats while students wait");
+        }
+
+        // The flushed files agree with the engine and with each other
+        Map<String, Integer> active = new HashMap<>();
+        Map<String, Set<String>> modulesOfStudent = new HashMap<>();
+        Set<String> keys = new HashSet<>();
+        for (Object obj : files.loadAll(Constants.REGISTRATIONS_FILE)) {
+            ModuleRegistration registration = (ModuleRegistration) obj;
+            Check.isTrue(keys.add(registration.getStudentId() + "/" + registration.getModuleCode()),
+                    "one record for " + registration.getStudentId() + "/" + registration.getModuleCode());
+            if (ModuleRegistration.ACTIVE.equals(registration.getStatus())) {
+                active.merge(registration.getModuleCode(), 1, Integer::sum);
+                modulesOfStudent.computeIfAbsent(registration.getStudentId(), s -> new TreeSet<>())
+                        .add(registration.getModuleCode());
+            }
+        }
+        for (int m = 0; m < MODULES; m++) {
+            String code = moduleCode(m);
+            Check.equal(engine.getTakenSeats(code), active.getOrDefault(code, 0), "stored seats of " + code);
+        }
+        Set<String> stored = new HashSet<>();
+        for (Object obj : files.loadAll(Constants.STUDENTS_FILE)) {
+            Student student = (Student) obj;
+            stored.add(student.getId());
+            Check.equal(modulesOfStudent.getOrDefault(student.getId(), new TreeSet<>()),
+                    new TreeSet<>(student.getRegisteredModules()), "registered modules of " + student.getId());
+        }
+        for (int s = 0; s < ADDED_STUDENTS; s++) {
+            Check.isTrue(stored.contains("N" + s), "added student N" + s + " kept");
+        }
+
+        // A restarted engine loads the same seat counts
+        RegistrationEngine restarted = new RegistrationEngine(new ObservableStorage(new FileManager()));
+        for (int m = 0; m < MODULES; m++) {
+            String code = moduleCode(m);
+            Check.equal(engine.getTakenSeats(code), restarted.getTakenSeats(code), "reloaded seats of " + code);
+        }
+
+        files.clearFile(Constants.MODULES_FILE);
+        files.clearFile(Constants.STUDENTS_FILE);
+        files.clearFile(Constants.REGISTRATIONS_FILE);
+        Check.done("RegistrationStressTest");
+    }
+
+    private static String moduleCode(int m) {
+        return "M" + m;
+    }
+
+    private static String studentId(int s) {
+        return "S" + s;
+    }
+}